@@ -0,0 +1,70 @@
+package com.example.demo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ForkJoinPool;
+
+@Configuration
+public class AsyncConfig {
+
+    // Bulk imports run here instead of on a Tomcat thread. The queue is bounded so a
+    // burst of uploads is refused instead of piling up temp files and memory.
+    @Bean(name = "importExecutor")
+    public ThreadPoolTaskExecutor importExecutor(@Value("${import.executor.pool-size:2}") int poolSize,
+                                                 @Value("${import.executor.queue-capacity:10}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("book-import-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        return executor;
+    }
+
+    // Image downloads and uploads of imported books; the pool size bounds the parallel transfers.
+    // Bounded like the others: images beyond the queue are left at their supplier URL.
+    @Bean(name = "imageIngestionExecutor")
+    public ThreadPoolTaskExecutor imageIngestionExecutor(@Value("${image.ingest.parallelism:4}") int parallelism,
+                                                         @Value("${image.ingest.queue-capacity:2000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("image-ingest-");
+        return executor;
+    }
+
+    // Booklist photos: the image upload and the OCR of each photo run here side by side.
+    // Bounded like the imports; OcrEnginePool separately limits how many are read at once.
+    @Bean(name = "booklistOcrExecutor")
+    public ThreadPoolTaskExecutor booklistOcrExecutor(@Value("${booklist.ocr.pool-size:4}") int poolSize,
+                                                      @Value("${booklist.ocr.queue-capacity:20}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("booklist-ocr-");
+        return executor;
+    }
+
+    // The pages of multi-page booklists are read here in parallel, one worker per OCR engine
+    @Bean(name = "ocrPageExecutor")
+    public ThreadPoolTaskExecutor ocrPageExecutor(@Value("${ocr.pool-size:0}") int poolSize) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("ocr-page-");
+        return executor;
+    }
+
+    // CPU bound row validation for the imports above, one worker per core unless configured
+    @Bean(name = "importValidationPool", destroyMethod = "shutdown")
+    public ForkJoinPool importValidationPool(@Value("${import.validation.parallelism:0}") int parallelism) {
+        return new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+}
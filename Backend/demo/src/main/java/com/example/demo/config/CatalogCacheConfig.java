@@ -0,0 +1,28 @@
+package com.example.demo.config;
+
+import com.example.demo.service.CatalogVersion;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class CatalogCacheConfig implements WebMvcConfigurer {
+
+    private final CatalogVersion catalogVersion;
+    private final long maxAgeSeconds;
+
+    public CatalogCacheConfig(CatalogVersion catalogVersion,
+                              @Value("${catalog.http.max-age-seconds:0}") long maxAgeSeconds) {
+        this.catalogVersion = catalogVersion;
+        this.maxAgeSeconds = maxAgeSeconds;
+    }
+
+    // Read-only catalog endpoints whose responses only change with the catalog version
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new CatalogConditionalGetInterceptor(catalogVersion, maxAgeSeconds))
+                .addPathPatterns("/api/products", "/api/products/**", "/api/filters/**",
+                        "/api/search", "/api/search/**");
+    }
+}
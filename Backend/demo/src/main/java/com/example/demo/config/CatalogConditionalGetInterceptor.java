@@ -0,0 +1,42 @@
+package com.example.demo.config;
+
+import com.example.demo.service.CatalogVersion;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers catalog GETs with 304 Not Modified when the client's ETag or
+ * Last-Modified still matches the catalog version, before the controller runs,
+ * so repeat browsing neither queries the database nor serializes a response.
+ */
+public class CatalogConditionalGetInterceptor implements HandlerInterceptor {
+
+    private final CatalogVersion catalogVersion;
+    private final String cacheControl;
+
+    public CatalogConditionalGetInterceptor(CatalogVersion catalogVersion, long maxAgeSeconds) {
+        this.catalogVersion = catalogVersion;
+        // With no max-age browsers still cache the response but revalidate it on every use
+        this.cacheControl = (maxAgeSeconds > 0
+                ? CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).mustRevalidate()
+                : CacheControl.noCache()).getHeaderValue();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod())) {
+            return true;
+        }
+        // Set before the response is committed so Spring Security keeps it instead of adding no-store
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        // Taken before the handler reads; the version moves only after a commit, so it never runs ahead of the rows
+        ServletWebRequest webRequest = new ServletWebRequest(request, response);
+        return !webRequest.checkNotModified(catalogVersion.getETag(), catalogVersion.getLastModified());
+    }
+}
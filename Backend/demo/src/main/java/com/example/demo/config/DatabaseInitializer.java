@@ -31,12 +31,30 @@ public class DatabaseInitializer {
                 jdbcTemplate.execute("ALTER TABLE product ADD COLUMN publisher VARCHAR(255)");
             }
             
+            // Hibernate creates enum columns as MySQL ENUMs, which ddl-auto=update never widens
+            if ("enum".equalsIgnoreCase(columnType("booklists", "status"))) {
+                logger.info("Changing booklists.status to VARCHAR for the PROCESSING and FAILED statuses");
+                jdbcTemplate.execute("ALTER TABLE booklists MODIFY COLUMN status VARCHAR(20)");
+            }
+            
             logger.info("Database schema update completed successfully");
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error updating database schema: " + e.getMessage(), e);
         }
     }
     
+    private String columnType(String tableName, String columnName) {
+        try {
+            String query = "SELECT data_type FROM information_schema.columns " +
+                          "WHERE table_name = ? AND column_name = ? AND table_schema = DATABASE()";
+            return jdbcTemplate.queryForList(query, String.class, tableName, columnName).stream()
+                    .findFirst().orElse(null);
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Error checking column type: " + e.getMessage(), e);
+            return null;
+        }
+    }
+    
     private boolean columnExists(String tableName, String columnName) {
         try {
             String query = "SELECT COUNT(*) FROM information_schema.columns " +
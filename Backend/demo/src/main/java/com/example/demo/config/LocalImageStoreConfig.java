@@ -0,0 +1,25 @@
+package com.example.demo.config;
+
+import com.example.demo.service.LocalImageStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+// Serves the files of the local image store when it replaces Cloudinary (image.store=local)
+@Configuration
+@ConditionalOnProperty(name = "image.store", havingValue = "local")
+public class LocalImageStoreConfig implements WebMvcConfigurer {
+
+    private final LocalImageStore localImageStore;
+
+    public LocalImageStoreConfig(LocalImageStore localImageStore) {
+        this.localImageStore = localImageStore;
+    }
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        registry.addResourceHandler("/images/**")
+                .addResourceLocations(localImageStore.getDirectory().toUri().toString());
+    }
+}
@@ -48,6 +48,7 @@ public class SecurityConfig {
                         .requestMatchers("/api/products/**").permitAll() // Allow access to product endpoints
                         .requestMatchers("/api/filters/**").permitAll() // Allow access to filter endpoints
                         .requestMatchers("/api/search/**").permitAll() // Allow access to search endpoints
+                        .requestMatchers("/images/**").permitAll() // Product images of the local image store
                         .requestMatchers("/api/wishlist/**").authenticated() // Ensure user is authenticated for wishlist operations
                         .requestMatchers("/api/admin/manual-sales/").hasAnyRole("STAFF", "ADMIN")
                         .requestMatchers("/api/booklists/**").authenticated()
@@ -2,28 +2,34 @@ package com.example.demo.controller;
 
 import com.example.demo.dto.ProductUpdateDTO;
 import com.example.demo.entity.Product;
+import com.example.demo.service.ImageIngestionService;
 import com.example.demo.service.ProductService;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/admin/products")
 public class AdminProductController {
 
     private final ProductService productService;
+    private final ImageIngestionService imageIngestionService;
 
     @Autowired
-    public AdminProductController(ProductService productService) {
+    public AdminProductController(ProductService productService, ImageIngestionService imageIngestionService) {
         this.productService = productService;
+        this.imageIngestionService = imageIngestionService;
     }
 
 
@@ -33,8 +39,13 @@ public class AdminProductController {
             @RequestPart("product") ProductUpdateDTO productDTO,
             @RequestPart(value = "image", required = false) MultipartFile image
     ) throws IOException {
-        Product updated = productService.updateProduct(id, productDTO, image);
-        return ResponseEntity.ok(updated);
+        try {
+            Product updated = productService.updateProduct(id, productDTO, image);
+            return ResponseEntity.ok(updated);
+        } catch (OptimisticLockingFailureException e) {
+            // Sold or changed by someone else while the edit was saved; the admin reloads and edits again
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
     }
 
 
@@ -49,6 +60,16 @@ public class AdminProductController {
         }
     }
 
+    @GetMapping("/cache-stats")
+    public Map<String, Object> getProductCacheStats() {
+        return productService.getProductCacheStats();
+    }
+
+    @GetMapping("/image-ingestion-stats")
+    public Map<String, Object> getImageIngestionStats() {
+        return imageIngestionService.getStats();
+    }
+
     @GetMapping("/search")
     public Page<Product> searchProductsByName(@RequestParam String name, Pageable pageable) {
         return productService.searchByName(name, pageable);
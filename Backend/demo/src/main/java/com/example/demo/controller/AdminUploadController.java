@@ -1,7 +1,8 @@
 package com.example.demo.controller;
 
-import com.example.demo.dto.FileValidationResult;
-import com.example.demo.service.ProductService;
+import com.example.demo.service.BookImportService;
+import com.example.demo.service.ImportJob;
+import com.example.demo.service.ImportJobService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -12,35 +13,40 @@ import org.springframework.web.multipart.MultipartFile;
 @RequestMapping("/api/upload")
 public class AdminUploadController {
 
-    private final ProductService productService;
+    private final ImportJobService importJobService;
 
-    public AdminUploadController(ProductService productService) {
-        this.productService = productService;
+    public AdminUploadController(ImportJobService importJobService) {
+        this.importJobService = importJobService;
     }
 
     // Admin Only: Bulk upload books from CSV or Excel
+    // mode=merge updates books already in the catalog (matched by barcode, else name and author)
     @PreAuthorize("hasAuthority('ADMIN')")
     @PostMapping("/books")
-    public ResponseEntity<?> uploadBooks(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<?> uploadBooks(@RequestParam("file") MultipartFile file,
+                                         @RequestParam(value = "mode", required = false) String mode) {
         try {
-            // Step 1: Validate the file
-            FileValidationResult validationResult = productService.validateBooksFile(file);
-
-            if (!validationResult.getErrors().isEmpty()) {
-                // Return the list of errors to the frontend
-                return ResponseEntity.badRequest().body(validationResult);
-            }
-
-            // Step 2: Import the books if validation passed
-            productService.importBooksFromFile(file);
-            return ResponseEntity.ok("Books uploaded successfully.");
+            // The file is imported in the background; poll /api/upload/jobs/{id} for the outcome
+            ImportJob job = importJobService.submit(file, BookImportService.ImportMode.parse(mode));
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job.toDTO());
 
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body("Invalid file format: " + e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Upload failed: " + e.getMessage());
         }
     }
 
-}
\ No newline at end of file
+    // Admin Only: Progress and outcome of a bulk upload
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<?> getUploadJob(@PathVariable String id) {
+        return importJobService.getJob(id)
+                .<ResponseEntity<?>>map(job -> ResponseEntity.ok(job.toDTO()))
+                .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND).body("Upload job not found."));
+    }
+
+}
@@ -1,15 +1,19 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.CartSelectionRequest;
 import com.example.demo.entity.BookItem;
 import com.example.demo.entity.Booklist;
 import com.example.demo.entity.User;
 import com.example.demo.repository.BooklistRepository;
 import com.example.demo.repository.UserRepository;
+import com.example.demo.service.BooklistMatchService;
+import com.example.demo.service.BooklistOcrService;
 import com.example.demo.service.EmailService;
 
-import com.example.demo.service.CloudinaryService;
-import com.example.demo.service.OCRService;
+import com.example.demo.service.ImageUploadService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
@@ -32,14 +36,21 @@ public class BooklistController {
     private EmailService emailService;
 
     @Autowired
-    private OCRService ocrService;
+    private BooklistOcrService booklistOcrService;
 
     @Autowired
-    private CloudinaryService cloudinaryService;
+    private BooklistMatchService booklistMatchService;
+
+    @Autowired
+    private ImageUploadService imageUploadService;
 
     @Autowired
     private UserRepository userRepository;
 
+    // Booklist photos are read by staff, so they keep more detail than product images
+    @Value("${image.upload.booklist-max-dimension:2400}")
+    private int booklistImageMaxDimension;
+
 
     @GetMapping("/my/{email}")
     public List<Booklist> getMyBooklists(@PathVariable String email) {
@@ -68,8 +79,8 @@ public class BooklistController {
 
             System.out.println("Found booklist: " + booklist.getName());
 
-            String imageUrl = cloudinaryService.uploadImage(image);
-            System.out.println("Uploaded to Cloudinary, URL: " + imageUrl);
+            String imageUrl = imageUploadService.uploadImage(image, booklistImageMaxDimension).getUrl();
+            System.out.println("Uploaded to the image store, URL: " + imageUrl);
 
             booklist.setImageUrl(imageUrl);
             booklistRepository.save(booklist);
@@ -87,6 +98,10 @@ public class BooklistController {
         Booklist booklist = booklistRepository.findById(id).orElseThrow();
         booklist.setName(updated.getName());
         booklist.setBooks(updated.getBooks());
+        // The customer's books replace whatever OCR would have read from the photo
+        if (booklist.getStatus() == Booklist.BooklistStatus.PROCESSING) {
+            booklist.setStatus(Booklist.BooklistStatus.PENDING);
+        }
         return booklistRepository.save(booklist);
     }
 
@@ -133,44 +148,49 @@ public class BooklistController {
             @RequestParam("name") String name
     ) {
         try {
-            User user = userRepository.findByEmail(customerEmail)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-
-            // First, upload the image to Cloudinary
-            String imageUrl = cloudinaryService.uploadImage(file);
-            System.out.println("Image uploaded to Cloudinary: " + imageUrl);
-
-            // Then process OCR
-            String extractedText = ocrService.extractText(file);
-            if (extractedText == null || extractedText.trim().isEmpty()) {
-                return ResponseEntity.badRequest().body("No text could be extracted from the image");
-            }
-
-            List<BookItem> parsedItems = ocrService.parseBookItems(extractedText);
-            if (parsedItems.isEmpty()) {
-                return ResponseEntity.badRequest().body("No book items could be parsed from the extracted text");
-            }
-
-        Booklist booklist = new Booklist();
-        booklist.setName(name);
-        booklist.setCustomerEmail(customerEmail);
-        booklist.setBooks(parsedItems);
-        booklist.setStatus(Booklist.BooklistStatus.PENDING);
-        booklist.setSubmittedDate(LocalDateTime.now());
-        booklist.setUser(user);
-        booklist.setImageUrl(imageUrl);
-
-            Booklist saved = booklistRepository.save(booklist);
-
-            // Send notification to admin with image
-            emailService.sendAdminBooklistNotification(saved);
-
-            return ResponseEntity.ok(saved);
+            // Saved as PROCESSING; the upload and OCR finish in the background
+            Booklist saved = booklistOcrService.submit(file, customerEmail, name);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(saved);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(500).body("Error processing image: " + e.getMessage());
         }
     }
+
+    // Catalog products for each line of the booklist, best match first
+    @GetMapping("/{id}/matches")
+    public ResponseEntity<?> getMatches(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(booklistMatchService.match(id));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        }
+    }
+
+    // Adds the chosen products, or without a body the confident matches, to the owner's cart
+    @PostMapping("/{id}/cart")
+    public ResponseEntity<?> addToCart(@PathVariable Long id,
+                                       @RequestBody(required = false) List<CartSelectionRequest> selections) {
+        try {
+            return ResponseEntity.ok(booklistMatchService.addToCart(id, selections));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        }
+    }
+
+    // Polled by the client until an OCR upload is no longer PROCESSING
+    @GetMapping("/{id}")
+    public ResponseEntity<Booklist> getBooklist(@PathVariable Long id) {
+        return booklistRepository.findById(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
 }
\ No newline at end of file
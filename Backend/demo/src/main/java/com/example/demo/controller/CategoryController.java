@@ -3,6 +3,7 @@ package com.example.demo.controller;
 import com.example.demo.entity.Category;
 import com.example.demo.entity.Product;
 import com.example.demo.repository.CategoryRepository;
+import com.example.demo.service.CatalogVersion;
 import com.example.demo.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -19,6 +20,8 @@ public class CategoryController {
     private CategoryRepository categoryRepository;
     @Autowired
     private ProductService productService;
+    @Autowired
+    private CatalogVersion catalogVersion;
 
     @GetMapping
     public List<Category> getAllCategories() {
@@ -36,6 +39,7 @@ public class CategoryController {
             return ResponseEntity.badRequest().build();
         }
         Category saved = categoryRepository.save(category);
+        catalogVersion.changed();
         return ResponseEntity.status(HttpStatus.CREATED).body(saved);
     }
 }
@@ -1,9 +1,11 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.FacetCountsDTO;
 import com.example.demo.dto.ProductFilterRequest;
 import com.example.demo.entity.Category;
-import com.example.demo.entity.Product;
+import com.example.demo.repository.ProductFields;
 import com.example.demo.service.CategoryService;
+import com.example.demo.service.ProductFacetIndex;
 import com.example.demo.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -25,6 +27,9 @@ public class FilterController {
     @Autowired
     private CategoryService categoryService;
     
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+    
     @GetMapping("/options")
     public ResponseEntity<Map<String, Object>> getFilterOptions() {
         Map<String, Object> filterOptions = new HashMap<>();
@@ -45,7 +50,19 @@ public class FilterController {
     }
     
     @PostMapping("/products")
-    public Page<Product> getFilteredProducts(@RequestBody ProductFilterRequest filterRequest) {
+    public Page<?> getFilteredProducts(@RequestBody ProductFilterRequest filterRequest,
+                                       @RequestParam(required = false) String fields) {
+        List<String> selected = ProductFields.parse(fields);
+        if (selected != null) {
+            return productService.getFilteredProducts(filterRequest, selected);
+        }
         return productService.getFilteredProducts(filterRequest);
     }
+    
+    // Counts per category, author, publisher, price range and stock for the active filters
+    @PostMapping("/facets")
+    public FacetCountsDTO getFacetCounts(@RequestBody ProductFilterRequest filterRequest,
+                                         @RequestParam(defaultValue = "50") int limit) {
+        return productFacetIndex.count(filterRequest, Math.max(limit, 1));
+    }
 }
\ No newline at end of file
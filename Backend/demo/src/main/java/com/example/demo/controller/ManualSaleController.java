@@ -5,6 +5,8 @@ import com.example.demo.entity.ManualSale;
 import com.example.demo.service.ManualSaleService;
 import com.example.demo.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -25,7 +27,11 @@ public class ManualSaleController {
 
     @PostMapping("/populate-barcodes")
     public ResponseEntity<String> populateBarcodes() {
-        productService.assignDummyBarcodes();
+        try {
+            productService.assignDummyBarcodes();
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Products were sold while assigning barcodes, try again.");
+        }
         return ResponseEntity.ok("Barcodes assigned.");
     }
 
@@ -1,15 +1,17 @@
 package com.example.demo.controller;
 
 import com.example.demo.entity.Order;
-import com.example.demo.entity.Product;
 import com.example.demo.entity.Promotion;
 import com.example.demo.repository.OrderRepository;
-import com.example.demo.repository.ProductRepository;
 import com.example.demo.repository.PromotionRepository;
 import com.example.demo.repository.UserRepository;
 import com.example.demo.service.EmailService;
+import com.example.demo.service.OrderService;
+import com.example.demo.service.StockReservationService;
 
 import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -30,6 +32,8 @@ import java.util.stream.Collectors;
 @RestController
 @RequestMapping("/api/payhere")
 public class PaymentController {
+    private static final Logger logger = LoggerFactory.getLogger(PaymentController.class);
+
     @Value("${payhere.merchant.id}")
     private String merchantId;
 
@@ -38,17 +42,19 @@ public class PaymentController {
 
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
-    private final ProductRepository productRepository;
     private final PromotionRepository promotionRepository;
     private final EmailService emailService;
+    private final StockReservationService stockReservationService;
+    private final OrderService orderService;
 
 
-    public PaymentController(OrderRepository orderRepository, UserRepository userRepository, ProductRepository productRepository, PromotionRepository promotionRepository, EmailService emailService) {
+    public PaymentController(OrderRepository orderRepository, UserRepository userRepository, PromotionRepository promotionRepository, EmailService emailService, StockReservationService stockReservationService, OrderService orderService) {
         this.orderRepository = orderRepository;
         this.userRepository = userRepository;
-        this.productRepository = productRepository;
         this.promotionRepository = promotionRepository;
         this.emailService = emailService;
+        this.stockReservationService = stockReservationService;
+        this.orderService = orderService;
     }
 
     @PostMapping("/create-payment")
@@ -79,31 +85,16 @@ public class PaymentController {
         }
 
 
-        List<OrderProductDetails> orderProducts = products.stream().map(p -> {
-            Long productId = Long.valueOf(p.get("product_id").toString());
-            int quantity = Integer.parseInt(p.get("quantity").toString());
-            Product product = productRepository.findById(productId)
-                    .orElseThrow(() -> new RuntimeException("Product not found: " + productId));
-            if (product.getStock() < quantity) {
-                throw new RuntimeException("Insufficient stock for product: " + product.getName());
-            }
-            return new OrderProductDetails(product, quantity, product.getPrice());
-        }).toList();
-
-        // Calculate total amount
-        double totalAmount = orderProducts.stream()
-                .mapToDouble(op -> op.price * op.quantity)
-                .sum();
-
-        double discount = totalAmount * (promo.getDiscountPercentage() / 100.0);
-        double finalAmount = totalAmount+shippingCost-discount;
-
-        // Store order
+        List<OrderService.OrderLine> lines = products.stream().map(p -> new OrderService.OrderLine(
+                Long.valueOf(p.get("product_id").toString()),
+                Integer.parseInt(p.get("quantity").toString()))).toList();
 
+        // Priced and stored with its lines in one go; the stock is held until the payment
+        // notification, or released after stock.reservation.ttl-minutes
         String orderId = (String) paymentData.get("order_id");
-        Order order = new Order(orderId, finalAmount, "Pending", user);
-        orderProducts.forEach(op -> order.addProduct(op.product, op.quantity, op.price));
-        orderRepository.save(order);
+        Order order = orderService.createPendingOrder(orderId, user, lines,
+                promo.getDiscountPercentage(), shippingCost);
+        double finalAmount = order.getAmount();
 
         Map<String, Object> response = new HashMap<>();
         response.put("merchant_id", merchantId);
@@ -192,12 +183,23 @@ public class PaymentController {
 
         if (localMd5.equalsIgnoreCase(md5sig) && "2".equals(statusCode)) {
             System.out.println("✅ Payment verified for order: " + orderId);
+            boolean stocked = stockReservationService.commit(orderId);
             updateOrderStatus(orderId,"Paid");
             Order order = orderRepository.findByOrderId(orderId).orElseThrow(() -> new RuntimeException("Order not found"));
+            if (!stocked) {
+                // Shown on the admin dashboard's order alerts until staff move the order on
+                logger.error("Order {} was paid after its stock reservation expired and is short of stock", orderId);
+                order.setStockShort(true);
+                order = orderRepository.save(order);
+            }
             emailService.sendOrderConfirmationEmail(order);
             emailService.sendAdminOrderConfirmationEmail(order);
         } else {
             System.out.println("❌ Payment verification failed for order: " + orderId);
+            // Only a genuine notification of a cancelled (-1) or failed (-2) payment gives the stock back early
+            if (localMd5.equalsIgnoreCase(md5sig) && ("-1".equals(statusCode) || "-2".equals(statusCode))) {
+                stockReservationService.release(orderId);
+            }
             updateOrderStatus(orderId,"Payment Failed");
         }
 
@@ -247,21 +249,6 @@ public class PaymentController {
         }
     }
 
-
-
-    // Helper class for processing products
-    private static class OrderProductDetails {
-        Product product;
-        int quantity;
-        double price;
-
-        OrderProductDetails(Product product, int quantity, double price) {
-            this.product = product;
-            this.quantity = quantity;
-            this.price = price;
-        }
-    }
-
     
      
 }
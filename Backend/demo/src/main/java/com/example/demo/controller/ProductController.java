@@ -2,11 +2,13 @@ package com.example.demo.controller;
 
 import com.example.demo.dto.ProductFilterRequest;
 import com.example.demo.entity.Product;
+import com.example.demo.repository.ProductFields;
 import com.example.demo.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -18,15 +20,39 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    // fields=summary, fields=detail (or e.g. fields=id,name,price) returns only those columns instead of full products
     @GetMapping
-    public Page<Product> getAllProducts(
+    public Page<?> getAllProducts(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String fields
     ) {
         Pageable pageable = PageRequest.of(page, size);
+        List<String> selected = ProductFields.parse(fields);
+        if (selected != null) {
+            return productService.getAllProducts(pageable, selected);
+        }
         return productService.getAllProducts(pageable);
     }
 
+    // Keyset pagination for infinite scroll: pass the nextCursor of the previous page as "after".
+    // Accepts the same filters as /filter as query parameters, e.g. ?minPrice=500&inStock=true&sort=price,desc
+    @GetMapping("/scroll")
+    public ResponseEntity<?> scrollProducts(
+            @ModelAttribute ProductFilterRequest filterRequest,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(defaultValue = "false") boolean withTotal,
+            @RequestParam(required = false) String fields
+    ) {
+        try {
+            return ResponseEntity.ok(productService.scrollProducts(filterRequest, after, sort, withTotal,
+                    ProductFields.parse(fields)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @GetMapping("/{id}")
     public Product getProductById(@PathVariable Long id) {
         return productService.getProductById(id);
@@ -41,10 +67,31 @@ public class ProductController {
     // New endpoints for filtering
     
     @PostMapping("/filter")
-    public Page<Product> filterProducts(@RequestBody ProductFilterRequest filterRequest) {
+    public Page<?> filterProducts(@RequestBody ProductFilterRequest filterRequest,
+                                  @RequestParam(required = false) String fields) {
+        List<String> selected = ProductFields.parse(fields);
+        if (selected != null) {
+            return productService.getFilteredProducts(filterRequest, selected);
+        }
         return productService.getFilteredProducts(filterRequest);
     }
     
+    @PostMapping("/filter/scroll")
+    public ResponseEntity<?> scrollFilteredProducts(
+            @RequestBody ProductFilterRequest filterRequest,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(defaultValue = "false") boolean withTotal,
+            @RequestParam(required = false) String fields
+    ) {
+        try {
+            return ResponseEntity.ok(productService.scrollProducts(filterRequest, after, sort, withTotal,
+                    ProductFields.parse(fields)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
     @GetMapping("/price-range")
     public Page<Product> getProductsByPriceRange(
             @RequestParam double minPrice,
@@ -87,14 +134,21 @@ public class ProductController {
     
     // Endpoints to get filter options for dropdowns
     
+    // Without a prefix every name is returned, as before
     @GetMapping("/authors")
-    public List<String> getAllAuthors() {
-        return productService.getAllAuthors();
+    public List<String> getAllAuthors(
+            @RequestParam(required = false) String prefix,
+            @RequestParam(required = false) Integer limit
+    ) {
+        return productService.getAuthors(prefix, limit != null ? limit : Integer.MAX_VALUE);
     }
     
     @GetMapping("/publishers")
-    public List<String> getAllPublishers() {
-        return productService.getAllPublishers();
+    public List<String> getAllPublishers(
+            @RequestParam(required = false) String prefix,
+            @RequestParam(required = false) Integer limit
+    ) {
+        return productService.getPublishers(prefix, limit != null ? limit : Integer.MAX_VALUE);
     }
 }
 
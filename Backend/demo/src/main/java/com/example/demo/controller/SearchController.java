@@ -1,9 +1,14 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.AutocompleteSuggestion;
 import com.example.demo.dto.ProductFilterRequest;
 import com.example.demo.entity.Product;
+import com.example.demo.repository.ProductFields;
 import com.example.demo.service.SearchService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -16,24 +21,38 @@ public class SearchController {
     private SearchService searchService;
 
     @GetMapping("/search")
-    public List<Product> searchProducts(@RequestParam("keyword") String keyword) {
-        return searchService.searchProducts(keyword);
+    public List<?> searchProducts(@RequestParam("keyword") String keyword,
+                                  @RequestParam(required = false) String fields) {
+        List<Product> results = searchService.searchProducts(keyword);
+        List<String> selected = ProductFields.parse(fields);
+        if (selected == null) return results;
+        return results.stream().map(product -> ProductFields.project(product, selected)).toList();
     }
 
-        // Add a new endpoint that combines search with filters
+    // Suggestions for the search box, tolerant of small typos
+    @GetMapping("/search/autocomplete")
+    public List<AutocompleteSuggestion> autocomplete(
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "10") int limit) {
+        return searchService.autocomplete(query, limit);
+    }
+
+        // Keyword search combined with filters, paged with page/size from the body and ?sort=field,dir
         @PostMapping("/search/filter")
-        public List<Product> searchAndFilterProducts(
+        public ResponseEntity<?> searchAndFilterProducts(
                 @RequestParam("keyword") String keyword,
-                @RequestBody ProductFilterRequest filterRequest) {
-            
-            return searchService.searchProductsWithFilters(
-                    keyword,
-                    filterRequest.getMinPrice(),
-                    filterRequest.getMaxPrice(),
-                    filterRequest.getCategoryId(),
-                    filterRequest.getAuthor(),
-                    filterRequest.getPublisher(),
-                    filterRequest.getInStock()
-            );
+                @RequestBody ProductFilterRequest filterRequest,
+                @RequestParam(required = false) String fields,
+                Sort sort) {
+
+            Page<Product> results;
+            try {
+                results = searchService.searchProductsWithFilters(keyword, filterRequest, sort);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
+            }
+            List<String> selected = ProductFields.parse(fields);
+            if (selected == null) return ResponseEntity.ok(results);
+            return ResponseEntity.ok(results.map(product -> ProductFields.project(product, selected)));
         }
 }
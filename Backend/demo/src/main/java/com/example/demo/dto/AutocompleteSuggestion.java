@@ -0,0 +1,31 @@
+package com.example.demo.dto;
+
+public class AutocompleteSuggestion {
+    private String text;
+    private String type;        // TITLE, AUTHOR or BARCODE
+    private Long productId;     // Null for author suggestions
+    private int distance;       // Edits needed to match the query, 0 for an exact prefix
+
+    public AutocompleteSuggestion(String text, String type, Long productId, int distance) {
+        this.text = text;
+        this.type = type;
+        this.productId = productId;
+        this.distance = distance;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public int getDistance() {
+        return distance;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+// One booklist line with the catalog products it may refer to, best first
+public class BookItemMatchDTO {
+    private String title;
+    private int quantity;
+    private List<ProductMatchDTO> candidates;
+
+    public BookItemMatchDTO(String title, int quantity, List<ProductMatchDTO> candidates) {
+        this.title = title;
+        this.quantity = quantity;
+        this.candidates = candidates;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public List<ProductMatchDTO> getCandidates() {
+        return candidates;
+    }
+}
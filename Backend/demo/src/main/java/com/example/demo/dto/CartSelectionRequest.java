@@ -0,0 +1,23 @@
+package com.example.demo.dto;
+
+// A product picked for a booklist line and how many copies go into the cart
+public class CartSelectionRequest {
+    private Long productId;
+    private int quantity;
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+}
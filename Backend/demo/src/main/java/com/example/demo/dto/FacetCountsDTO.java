@@ -0,0 +1,110 @@
+package com.example.demo.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class FacetCountsDTO {
+    private int total;
+    private List<FacetValue> categories = new ArrayList<>();
+    private List<FacetValue> authors = new ArrayList<>();
+    private List<FacetValue> publishers = new ArrayList<>();
+    private List<FacetValue> priceRanges = new ArrayList<>();
+    private int inStock;
+    private int outOfStock;
+
+    public static class FacetValue {
+        private String value;
+        private String label;
+        private int count;
+        private Double minPrice;    // Only set for price ranges
+        private Double maxPrice;
+
+        public FacetValue(String value, String label, int count) {
+            this.value = value;
+            this.label = label;
+            this.count = count;
+        }
+
+        public FacetValue(String label, Double minPrice, Double maxPrice, int count) {
+            this(label, label, count);
+            this.minPrice = minPrice;
+            this.maxPrice = maxPrice;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public Double getMinPrice() {
+            return minPrice;
+        }
+
+        public Double getMaxPrice() {
+            return maxPrice;
+        }
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public List<FacetValue> getCategories() {
+        return categories;
+    }
+
+    public void setCategories(List<FacetValue> categories) {
+        this.categories = categories;
+    }
+
+    public List<FacetValue> getAuthors() {
+        return authors;
+    }
+
+    public void setAuthors(List<FacetValue> authors) {
+        this.authors = authors;
+    }
+
+    public List<FacetValue> getPublishers() {
+        return publishers;
+    }
+
+    public void setPublishers(List<FacetValue> publishers) {
+        this.publishers = publishers;
+    }
+
+    public List<FacetValue> getPriceRanges() {
+        return priceRanges;
+    }
+
+    public void setPriceRanges(List<FacetValue> priceRanges) {
+        this.priceRanges = priceRanges;
+    }
+
+    public int getInStock() {
+        return inStock;
+    }
+
+    public void setInStock(int inStock) {
+        this.inStock = inStock;
+    }
+
+    public int getOutOfStock() {
+        return outOfStock;
+    }
+
+    public void setOutOfStock(int outOfStock) {
+        this.outOfStock = outOfStock;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+public class KeysetPage<T> {
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    private String nextCursor;  // Pass as "after" to get the next page, null on the last page
+    private Long total;         // Only set when the total was requested
+
+    public KeysetPage(List<T> content, int size, String nextCursor, Long total) {
+        this.content = content;
+        this.size = size;
+        this.hasNext = nextCursor != null;
+        this.nextCursor = nextCursor;
+        this.total = total;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public Long getTotal() {
+        return total;
+    }
+}
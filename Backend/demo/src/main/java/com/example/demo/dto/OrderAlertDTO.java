@@ -10,6 +10,8 @@ public class OrderAlertDTO {
     private String customerName;
     private LocalDateTime createdAt;
     private List<OrderProduct> items;
+    // Paid, but short of stock: staff need to restock or contact the customer
+    private boolean stockShort;
 
     public OrderAlertDTO(String orderId, String customerName, LocalDateTime createdAt, List<OrderProduct> items) {
         this.orderId = orderId;
@@ -18,6 +20,12 @@ public class OrderAlertDTO {
         this.items = items;
     }
 
+    public OrderAlertDTO(String orderId, String customerName, LocalDateTime createdAt, List<OrderProduct> items,
+                         boolean stockShort) {
+        this(orderId, customerName, createdAt, items);
+        this.stockShort = stockShort;
+    }
+
     // Getters and setters
 
 
@@ -52,4 +60,12 @@ public class OrderAlertDTO {
     public void setItems(List<OrderProduct> items) {
         this.items = items;
     }
+
+    public boolean isStockShort() {
+        return stockShort;
+    }
+
+    public void setStockShort(boolean stockShort) {
+        this.stockShort = stockShort;
+    }
 }
\ No newline at end of file
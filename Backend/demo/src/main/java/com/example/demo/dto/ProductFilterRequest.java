@@ -1,10 +1,14 @@
 package com.example.demo.dto;
 
+import java.util.List;
+
 public class ProductFilterRequest {
     private Double minPrice;
     private Double maxPrice;
     private Long categoryId;
+    private List<Long> categoryIds;     // Matches any of the categories
     private String author;
+    private List<String> authors;       // Matches any of the exact author names
     private String publisher;
     private Boolean inStock;
     private Integer page;
@@ -38,6 +42,14 @@ public class ProductFilterRequest {
         this.categoryId = categoryId;
     }
     
+    public List<Long> getCategoryIds() {
+        return categoryIds;
+    }
+    
+    public void setCategoryIds(List<Long> categoryIds) {
+        this.categoryIds = categoryIds;
+    }
+    
     public String getAuthor() {
         return author;
     }
@@ -46,6 +58,14 @@ public class ProductFilterRequest {
         this.author = author;
     }
     
+    public List<String> getAuthors() {
+        return authors;
+    }
+    
+    public void setAuthors(List<String> authors) {
+        this.authors = authors;
+    }
+    
     public String getPublisher() {
         return publisher;
     }
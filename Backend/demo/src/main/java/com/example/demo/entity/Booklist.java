@@ -28,7 +28,11 @@ public class Booklist {
 
     @Enumerated(EnumType.STRING)
     private BooklistStatus status;
-    // Example values: PENDING, SUBMITTED, IN_REVIEW, COMPLETED
+    // Example values: PROCESSING, PENDING, SUBMITTED, IN_REVIEW, COMPLETED, FAILED
+
+    // Why reading the photo failed, set with the FAILED status
+    @Column(length = 500)
+    private String ocrError;
 
     private String customerEmail;
 
@@ -36,10 +40,12 @@ public class Booklist {
 
 
     public enum BooklistStatus {
+        PROCESSING, // The photo is still being uploaded and read
         PENDING,
         SUBMITTED,
         IN_REVIEW,
-        COMPLETED
+        COMPLETED,
+        FAILED      // The photo could not be read
     }
 
 
@@ -112,6 +118,14 @@ public class Booklist {
         this.imageUrl = imageUrl;
     }
 
+    public String getOcrError() {
+        return ocrError;
+    }
+
+    public void setOcrError(String ocrError) {
+        this.ocrError = ocrError;
+    }
+
     public User getUser() {
         return user;
     }
@@ -28,6 +28,10 @@ public class Order {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Paid after its stock reservation expired, when some of the books had been sold to someone else
+    @Column(name = "stock_short", nullable = false, columnDefinition = "boolean default false")
+    private boolean stockShort;
+
     @ManyToOne
     @JoinColumn(name = "user_id" , nullable = false)
     @JsonBackReference
@@ -87,6 +91,14 @@ public class Order {
         this.updatedAt = updatedAt;
     }
 
+    public boolean isStockShort() {
+        return stockShort;
+    }
+
+    public void setStockShort(boolean stockShort) {
+        this.stockShort = stockShort;
+    }
+
     public User getUser() {
         return user;
     }
@@ -7,6 +7,11 @@ import java.time.LocalDate;
 
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_product_price", columnList = "price"),
+        @Index(name = "idx_product_author", columnList = "author"),
+        @Index(name = "idx_product_publisher", columnList = "publisher")
+})
 public class Product {
 
     @Id
@@ -16,6 +21,9 @@ public class Product {
     private String name;
     private String description;
     private String imageUrl;
+    private String mediumImageUrl;    // Smaller copies made by the image store, null for images it has not stored
+    private String thumbnailUrl;
+    private String imageSourceUrl; // Where an imported image was fetched from before it was copied to the image store
     private double price;
     private int stock;
     private String author;      // Added field for author
@@ -30,6 +38,12 @@ public class Product {
 
     private Integer stockThreshold;
 
+    // Moved by every write, takeStock and returnStock included, so saving a product that was
+    // read before a sale fails instead of putting the sold copies back
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+
 
     @ManyToOne
     @JoinColumn(name = "category_id")
@@ -118,6 +132,30 @@ public class Product {
     }
 
 
+    public String getMediumImageUrl() {
+        return mediumImageUrl;
+    }
+
+    public void setMediumImageUrl(String mediumImageUrl) {
+        this.mediumImageUrl = mediumImageUrl;
+    }
+
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+
+    public void setThumbnailUrl(String thumbnailUrl) {
+        this.thumbnailUrl = thumbnailUrl;
+    }
+
+    public String getImageSourceUrl() {
+        return imageSourceUrl;
+    }
+
+    public void setImageSourceUrl(String imageSourceUrl) {
+        this.imageSourceUrl = imageSourceUrl;
+    }
+
     public String getBarcode() {
         return barcode;
     }
@@ -167,6 +205,14 @@ public class Product {
     }
 
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public Integer getStockThreshold() {
         return stockThreshold;
     }
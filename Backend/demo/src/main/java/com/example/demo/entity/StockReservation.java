@@ -0,0 +1,85 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Stock taken for an online order while the customer pays. The stock is already
+// subtracted from the product; releasing the reservation gives it back.
+@Entity
+@Table(name = "stock_reservations", indexes = {
+        @Index(name = "idx_reservation_order", columnList = "orderId"),
+        @Index(name = "idx_reservation_status_expiry", columnList = "status, expiresAt")
+})
+public class StockReservation {
+
+    public enum Status {
+        HELD,       // Waiting for the payment
+        COMMITTED,  // Paid, the stock is sold
+        RELEASED    // Payment failed or timed out, the stock was given back
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String orderId;
+
+    @ManyToOne
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+
+    private int quantity;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20, nullable = false)
+    private Status status;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime expiresAt;
+
+    public StockReservation() {
+    }
+
+    public StockReservation(String orderId, Product product, int quantity, LocalDateTime createdAt, LocalDateTime expiresAt) {
+        this.orderId = orderId;
+        this.product = product;
+        this.quantity = quantity;
+        this.status = Status.HELD;
+        this.createdAt = createdAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+}
@@ -1,9 +1,21 @@
 package com.example.demo.repository;
 
 import  com.example.demo.entity.Booklist;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
 import java.util.List;
+import java.util.Optional;
 
 public interface BooklistRepository extends JpaRepository<Booklist, Long> {
     List<Booklist> findByCustomerEmail(String email);
-}
\ No newline at end of file
+    List<Booklist> findByStatus(Booklist.BooklistStatus status);
+
+    // Keeps a customer's edit from landing between reading the booklist's status and saving the OCR outcome
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Booklist b WHERE b.id = :id")
+    Optional<Booklist> lockById(@Param("id") Long id);
+}
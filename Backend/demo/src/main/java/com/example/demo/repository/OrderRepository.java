@@ -20,4 +20,6 @@ public interface OrderRepository extends JpaRepository<Order, String> {
 
     List<Order> findByCreatedAtAfter(LocalDateTime timestamp);
 
+    List<Order> findByStockShortTrueAndStatus(String status);
+
 }
@@ -0,0 +1,94 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.Product;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Product columns that list endpoints can return through the fields= selector, e.g.
+ * fields=id,name,price or fields=summary for what the product grid shows. Only the
+ * selected columns are read from the database and serialized. fields=detail selects
+ * every column the product page shows, still without loading the entity.
+ */
+public final class ProductFields {
+
+    // The grid shows the thumbnail; imageUrl stays for products whose image has no variants yet
+    public static final List<String> SUMMARY = List.of("id", "name", "price", "thumbnailUrl", "imageUrl", "author", "stock");
+
+    public static final List<String> DETAIL = List.of("id", "name", "description", "price", "mediumImageUrl", "imageUrl",
+            "author", "publisher", "releaseDate", "stock", "preOrderAvailable", "barcode", "categoryId", "categoryName");
+
+    // Field name -> entity attribute path, and how to read it from an already loaded product
+    private static final Map<String, String> PATHS = new LinkedHashMap<>();
+    private static final Map<String, Function<Product, Object>> GETTERS = new HashMap<>();
+
+    static {
+        field("id", "id", Product::getId);
+        field("name", "name", Product::getName);
+        field("description", "description", Product::getDescription);
+        field("imageUrl", "imageUrl", Product::getImageUrl);
+        field("mediumImageUrl", "mediumImageUrl", Product::getMediumImageUrl);
+        field("thumbnailUrl", "thumbnailUrl", Product::getThumbnailUrl);
+        field("price", "price", Product::getPrice);
+        field("stock", "stock", Product::getStock);
+        field("author", "author", Product::getAuthor);
+        field("publisher", "publisher", Product::getPublisher);
+        field("releaseDate", "releaseDate", Product::getReleaseDate);
+        field("preOrderAvailable", "preOrderAvailable", Product::isPreOrderAvailable);
+        field("barcode", "barcode", Product::getBarcode);
+        field("categoryId", "category.id", p -> p.getCategory() != null ? p.getCategory().getId() : null);
+        field("categoryName", "category.name", p -> p.getCategory() != null ? p.getCategory().getName() : null);
+    }
+
+    private ProductFields() {
+    }
+
+    private static void field(String name, String path, Function<Product, Object> getter) {
+        PATHS.put(name, path);
+        GETTERS.put(name, getter);
+    }
+
+    /**
+     * Parses a comma separated selector. Returns null when no selector was given so the
+     * caller keeps returning full products. Unknown names are ignored, and a selector
+     * without any known name falls back to the summary fields.
+     */
+    public static List<String> parse(String selector) {
+        if (selector == null || selector.isBlank()) return null;
+        Set<String> fields = new LinkedHashSet<>();
+        for (String name : selector.split(",")) {
+            String field = name.trim();
+            if (field.equals("summary")) {
+                fields.addAll(SUMMARY);
+            } else if (field.equals("detail")) {
+                fields.addAll(DETAIL);
+            } else if (PATHS.containsKey(field)) {
+                fields.add(field);
+            }
+        }
+        return fields.isEmpty() ? SUMMARY : new ArrayList<>(fields);
+    }
+
+    // Same fields plus the ones a caller needs itself, e.g. the id and sort key of a keyset page
+    public static List<String> including(List<String> fields, String... required) {
+        Set<String> result = new LinkedHashSet<>(fields);
+        for (String field : required) {
+            if (PATHS.containsKey(field)) result.add(field);
+        }
+        return new ArrayList<>(result);
+    }
+
+    public static String path(String field) {
+        return PATHS.get(field);
+    }
+
+    // For results that are already in memory, such as the search index
+    public static Map<String, Object> project(Product product, List<String> fields) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (String field : fields) {
+            row.put(field, GETTERS.get(field).apply(product));
+        }
+        return row;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.Product;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Map;
+
+// Queries that select only some product columns, see ProductFields
+public interface ProductProjectionRepository {
+
+    Page<Map<String, Object>> findProjected(Specification<Product> spec, List<String> fields, Pageable pageable);
+
+    // Ordering is left to the specification, used by keyset pages
+    List<Map<String, Object>> findProjected(Specification<Product> spec, List<String> fields, int limit);
+}
@@ -6,14 +6,17 @@ import com.example.demo.entity.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product>, ProductProjectionRepository {
     Page<Product> findAll(Pageable pageable);
 
     List<Product> findAllByCategoryId(Long categoryId);
@@ -58,23 +61,6 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
     Page<Product> findAllByCategoryId(Long categoryId, Pageable pageable);
     
-    // Combined filters with dynamic query
-    @Query("SELECT p FROM Product p WHERE " +
-           "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
-           "(:maxPrice IS NULL OR p.price <= :maxPrice) AND " +
-           "(:categoryId IS NULL OR p.category.id = :categoryId) AND " +
-           "(:author IS NULL OR LOWER(p.author) LIKE LOWER(CONCAT('%', :author, '%'))) AND " +
-           "(:publisher IS NULL OR LOWER(p.publisher) LIKE LOWER(CONCAT('%', :publisher, '%'))) AND " +
-           "(:inStock IS NULL OR (p.stock > 0 AND :inStock = true) OR (p.stock = 0 AND :inStock = false))")
-    Page<Product> findProductsWithFilters(
-            @Param("minPrice") Double minPrice,
-            @Param("maxPrice") Double maxPrice,
-            @Param("categoryId") Long categoryId,
-            @Param("author") String author,
-            @Param("publisher") String publisher,
-            @Param("inStock") Boolean inStock,
-            Pageable pageable);
-    
     // Get distinct authors for filter dropdown
     @Query("SELECT DISTINCT p.author FROM Product p WHERE p.author IS NOT NULL ORDER BY p.author")
     List<String> findDistinctAuthors();
@@ -91,6 +77,32 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Query("SELECT p FROM Product p WHERE p.releaseDate <= :today AND p.preOrderAvailable = true")
     List<Product> findReleasedPreOrderProducts(@Param("today") LocalDate today);
 
+    // Takes stock only while enough is left, in one statement, so concurrent sales cannot
+    // oversell: 1 when the stock was taken, 0 when there was not enough. The version moves
+    // too, so a product loaded before the sale can no longer be saved over it
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.stock = p.stock - :quantity, p.version = p.version + 1 " +
+            "WHERE p.id = :id AND p.stock >= :quantity")
+    int takeStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.stock = p.stock + :quantity, p.version = p.version + 1 WHERE p.id = :id")
+    int returnStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    // Pre-orders and thresholds change one column in place, so they never wait for or undo a sale
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.preOrderedQuantity = CASE WHEN p.preOrderedQuantity + :change < 0 THEN 0 " +
+            "ELSE p.preOrderedQuantity + :change END, p.version = p.version + 1 WHERE p.id = :id")
+    int changePreOrderedQuantity(@Param("id") Long id, @Param("change") int change);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.stockThreshold = :threshold, p.version = p.version + 1 WHERE p.id = :id")
+    int setStockThreshold(@Param("id") Long id, @Param("threshold") Integer threshold);
+
     // Fetch products with stock below their individual threshold
     @Query("SELECT p FROM Product p WHERE p.stockThreshold IS NOT NULL AND p.stock <= p.stockThreshold")
     List<Product> findByStockLessThanThreshold();
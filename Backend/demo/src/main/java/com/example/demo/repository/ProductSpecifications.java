@@ -0,0 +1,155 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.ProductFilterRequest;
+import com.example.demo.entity.Product;
+import com.example.demo.util.PageCursor;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Builds the product filter query from only the filters present in the request, so
+ * MySQL gets a plain WHERE clause it can serve from the category, price and author
+ * indexes instead of one generic plan full of "(:x IS NULL OR ...)" branches.
+ * Text filters are prefix matches; the default case-insensitive collation makes
+ * them match regardless of case while still using the index.
+ */
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {
+    }
+
+    public static Specification<Product> fromFilter(ProductFilterRequest filter) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            if (filter.getMinPrice() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("price"), filter.getMinPrice()));
+            }
+            if (filter.getMaxPrice() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("price"), filter.getMaxPrice()));
+            }
+
+            Set<Long> categoryIds = categoryIds(filter);
+            if (categoryIds.size() == 1) {
+                predicates.add(cb.equal(root.get("category").get("id"), categoryIds.iterator().next()));
+            } else if (!categoryIds.isEmpty()) {
+                predicates.add(root.get("category").get("id").in(categoryIds));
+            }
+
+            List<String> authors = nonBlank(filter.getAuthors());
+            if (!authors.isEmpty()) {
+                predicates.add(root.get("author").in(authors));
+            }
+            if (hasText(filter.getAuthor())) {
+                predicates.add(cb.like(root.get("author"), prefixPattern(filter.getAuthor()), '\\'));
+            }
+            if (hasText(filter.getPublisher())) {
+                predicates.add(cb.like(root.get("publisher"), prefixPattern(filter.getPublisher()), '\\'));
+            }
+
+            if (filter.getInStock() != null) {
+                predicates.add(filter.getInStock()
+                        ? cb.greaterThan(root.get("stock"), 0)
+                        : cb.lessThanOrEqualTo(root.get("stock"), 0));
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    // Sort keys supported by keyset pagination, ties are broken by id
+    public static final List<String> SEEK_PROPERTIES = List.of("id", "price", "name");
+
+    /**
+     * Orders by (sort key, id) and, when a cursor is given, keeps only the rows after it,
+     * so every page is a range read instead of an OFFSET scan over the skipped rows.
+     */
+    public static Specification<Product> seek(String property, Sort.Direction direction, PageCursor after) {
+        boolean ascending = direction.isAscending();
+        return (root, query, cb) -> {
+            Path<Long> id = root.get("id");
+            switch (property) {
+                case "price": {
+                    Expression<Double> price = root.get("price");
+                    query.orderBy(ascending ? List.of(cb.asc(price), cb.asc(id)) : List.of(cb.desc(price), cb.desc(id)));
+                    return after == null ? null
+                            : after(cb, price, Double.valueOf(after.getValue()), id, after.getId(), ascending);
+                }
+                case "name": {
+                    // Products without a name sort as the empty string so the cursor value is never null
+                    Expression<String> name = cb.coalesce(root.get("name"), "");
+                    query.orderBy(ascending ? List.of(cb.asc(name), cb.asc(id)) : List.of(cb.desc(name), cb.desc(id)));
+                    return after == null ? null : after(cb, name, after.getValue(), id, after.getId(), ascending);
+                }
+                default: {
+                    query.orderBy(ascending ? cb.asc(id) : cb.desc(id));
+                    if (after == null) return null;
+                    return ascending ? cb.greaterThan(id, after.getId()) : cb.lessThan(id, after.getId());
+                }
+            }
+        };
+    }
+
+    // The cursor value of a product for the given sort key, matching what seek() orders by
+    public static String seekValue(Product product, String property) {
+        switch (property) {
+            case "price":
+                return Double.toString(product.getPrice());
+            case "name":
+                return product.getName() == null ? "" : product.getName();
+            default:
+                return String.valueOf(product.getId());
+        }
+    }
+
+    private static <Y extends Comparable<? super Y>> Predicate after(CriteriaBuilder cb, Expression<Y> key, Y value,
+                                                                    Path<Long> id, long lastId, boolean ascending) {
+        if (ascending) {
+            return cb.or(cb.greaterThan(key, value), cb.and(cb.equal(key, value), cb.greaterThan(id, lastId)));
+        }
+        return cb.or(cb.lessThan(key, value), cb.and(cb.equal(key, value), cb.lessThan(id, lastId)));
+    }
+
+    // The single categoryId and the categoryIds list are combined into one IN filter
+    public static Set<Long> categoryIds(ProductFilterRequest filter) {
+        Set<Long> ids = new LinkedHashSet<>();
+        if (filter.getCategoryId() != null) ids.add(filter.getCategoryId());
+        if (filter.getCategoryIds() != null) {
+            for (Long id : filter.getCategoryIds()) {
+                if (id != null) ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    public static List<String> nonBlank(List<String> values) {
+        List<String> result = new ArrayList<>();
+        if (values == null) return result;
+        for (String value : values) {
+            if (hasText(value)) result.add(value.trim());
+        }
+        return result;
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+
+    // Escapes LIKE wildcards typed by the user so they match literally
+    private static String prefixPattern(String value) {
+        String escaped = value.trim()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return escaped + "%";
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.StockReservation;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    List<StockReservation> findByOrderIdAndStatus(String orderId, StockReservation.Status status);
+
+    List<StockReservation> findByStatusAndExpiresAtBefore(StockReservation.Status status, LocalDateTime time);
+
+    // SELECT ... FOR UPDATE reads the latest status and keeps the sweep off the rows until the caller commits
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM StockReservation r WHERE r.orderId = :orderId ORDER BY r.product.id")
+    List<StockReservation> lockByOrderId(@Param("orderId") String orderId);
+
+    // 1 for the one caller that moved the reservation on, 0 for anyone it raced with
+    @Transactional
+    @Modifying
+    @Query("UPDATE StockReservation r SET r.status = :to WHERE r.id = :id AND r.status = :from")
+    int changeStatus(@Param("id") Long id, @Param("from") StockReservation.Status from,
+                     @Param("to") StockReservation.Status to);
+}
@@ -0,0 +1,654 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.FileValidationResult;
+import com.example.demo.dto.RowError;
+import com.example.demo.entity.Category;
+import com.example.demo.entity.Product;
+import com.example.demo.repository.CategoryRepository;
+import com.example.demo.util.CsvRowReader;
+import com.example.demo.util.SpreadsheetRowHandler;
+import com.example.demo.util.XlsxRowReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Bulk book import for /api/upload/books. The file is read once, streaming: each row
+ * is validated as it is read and valid rows are inserted with JDBC batches of
+ * import.batch-size rows. Everything runs in one transaction, so a file with any
+ * invalid row imports nothing and the errors of all rows are returned together.
+ * Uploads reach it through ImportJobService, which runs it off the request thread.
+ * Rows are validated in chunks of import.validation.chunk-size on the import validation
+ * fork-join pool, while reading and the database writes stay on the importing thread.
+ *
+ * In MERGE mode rows are matched to existing books by barcode, or by name and author
+ * when the row has no barcode, so a weekly supplier sheet can be re-uploaded: each
+ * batch looks its books up with two queries and only new or changed rows are written.
+ * Updates only apply to the version of the book that was read, so a sale made in
+ * between fails the row instead of being overwritten by the sheet's stock.
+ */
+@Service
+public class BookImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookImportService.class);
+
+    private static final List<String> REQUIRED_COLUMNS = List.of(
+            "name", "description", "imageurl", "price", "stock", "author", "publisher", "category");
+
+    private static final String INSERT_SQL = "INSERT INTO product " +
+            "(name, description, image_url, price, stock, author, publisher, category_id, barcode, pre_order_available, pre_ordered_quantity, version) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, false, 0, 0)";
+
+    private static final String UPDATE_SQL = "UPDATE product SET name = ?, description = ?, image_url = ?, " +
+            "medium_image_url = ?, thumbnail_url = ?, image_source_url = ?, price = ?, stock = ?, author = ?, " +
+            "publisher = ?, category_id = ?, barcode = ?, version = version + 1 WHERE id = ? AND version = ?";
+
+    private static final String SELECT_EXISTING_SQL = "SELECT id, name, description, image_url, price, stock, author, " +
+            "publisher, release_date, pre_order_available, pre_ordered_quantity, barcode, stock_threshold, category_id, " +
+            "image_source_url, medium_image_url, thumbnail_url, version " +
+            "FROM product WHERE ";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CategoryRepository categoryRepository;
+    private final CatalogChangeNotifier catalogChangeNotifier;
+    private final ImageIngestionService imageIngestionService;
+    private final ForkJoinPool validationPool;
+    private final int batchSize;
+    private final int chunkSize;
+
+    public BookImportService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                             CategoryRepository categoryRepository, CatalogChangeNotifier catalogChangeNotifier,
+                             ImageIngestionService imageIngestionService,
+                             @Qualifier("importValidationPool") ForkJoinPool validationPool,
+                             @Value("${import.batch-size:1000}") int batchSize,
+                             @Value("${import.validation.chunk-size:1000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = transactionTemplate;
+        this.categoryRepository = categoryRepository;
+        this.catalogChangeNotifier = catalogChangeNotifier;
+        this.imageIngestionService = imageIngestionService;
+        this.validationPool = validationPool;
+        this.batchSize = Math.max(batchSize, 1);
+        this.chunkSize = Math.max(chunkSize, 1);
+    }
+
+    public enum ImportMode {
+        // Every row becomes a new book
+        INSERT,
+        // Rows matching an existing book update it when something changed
+        MERGE;
+
+        public static ImportMode parse(String value) {
+            if (value == null || value.isBlank()) return INSERT;
+            for (ImportMode mode : values()) {
+                if (mode.name().equalsIgnoreCase(value.trim())) return mode;
+            }
+            throw new IllegalArgumentException("Unknown import mode: " + value);
+        }
+    }
+
+    /**
+     * Progress callbacks from the thread running the import, e.g. for the job status endpoint.
+     */
+    public interface ImportProgress {
+        void rowProcessed();
+
+        void rowFailed(RowError error);
+
+        default void rowsInserted(int count) {
+        }
+
+        default void rowsUpdated(int count) {
+        }
+
+        default void rowsUnchanged(int count) {
+        }
+    }
+
+    public FileValidationResult importBooks(Path file, String filename, ImportMode mode,
+                                            ImportProgress progress) throws IOException {
+        FileValidationResult result = new FileValidationResult();
+        if (filename == null) {
+            result.addError(0, "Filename is null.");
+            return result;
+        }
+        boolean csv = filename.endsWith(".csv");
+        if (!csv && !filename.endsWith(".xlsx")) {
+            result.addError(0, "Unsupported file format: must be .csv or .xlsx");
+            return result;
+        }
+
+        long start = System.currentTimeMillis();
+        ImportRun run = new ImportRun(result, loadCategories(), mode, progress);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try {
+                    if (csv) {
+                        try (InputStream in = Files.newInputStream(file)) {
+                            CsvRowReader.read(in, run);
+                        }
+                    } else {
+                        // The SAX reader needs random access to the zip, which the file gives it
+                        XlsxRowReader.read(file.toFile(), run);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } catch (HeaderRejected e) {
+                    // The header error is already in the result
+                }
+                run.finish();
+                if (!result.isValid()) status.setRollbackOnly();
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        if (result.isValid()) {
+            catalogChangeNotifier.productsSaved(run.saved);
+            // The supplier's image URLs are copied to the image store in the background
+            imageIngestionService.ingest(run.saved);
+            logger.info("Imported {} from {} in {} ms: {} inserted, {} updated, {} unchanged", mode, filename,
+                    System.currentTimeMillis() - start, run.insertedCount, run.updatedCount, run.unchangedCount);
+        }
+        return result;
+    }
+
+    // Category names are matched case-insensitively like findByName on the MySQL collation
+    private Map<String, Category> loadCategories() {
+        Map<String, Category> categories = new HashMap<>();
+        for (Category category : categoryRepository.findAll()) {
+            if (category.getName() != null) {
+                categories.put(category.getName().trim().toLowerCase(Locale.ROOT), category);
+            }
+        }
+        return categories;
+    }
+
+    // Thrown from the row handler to stop reading a file whose header is unusable
+    private static final class HeaderRejected extends RuntimeException {
+        HeaderRejected() {
+            super(null, null, false, false);
+        }
+    }
+
+    // Consecutive data rows validated together as one task on the validation pool
+    private static final class RowChunk {
+        final List<Integer> rowNumbers = new ArrayList<>();
+        final List<String[]> cells = new ArrayList<>();
+        // Filled in by the validation task: the product of each valid row, and the errors in row order
+        final List<Product> products = new ArrayList<>();
+        final List<RowError> errors = new ArrayList<>();
+
+        int size() {
+            return rowNumbers.size();
+        }
+    }
+
+    private final class ImportRun implements SpreadsheetRowHandler {
+        private final FileValidationResult result;
+        private final Map<String, Category> categories;
+        private final Map<String, Integer> columns = new HashMap<>();
+        private final Map<Long, Category> categoriesById = new HashMap<>();
+        private final ImportMode mode;
+        private final ImportProgress progress;
+        private final List<Product> pending = new ArrayList<>();
+        private final List<Integer> pendingRows = new ArrayList<>();
+        private final List<Product> saved = new ArrayList<>();
+        // Chunks being validated, oldest first; bounded so a huge file is not read ahead of the inserts
+        private final Deque<CompletableFuture<RowChunk>> validating = new ArrayDeque<>();
+        private final int maxValidating = validationPool.getParallelism() * 2;
+        private RowChunk chunk = new RowChunk();
+        // MERGE: the row that claimed each book key, and the ids of books already written
+        private final Map<String, Integer> rowKeys = new HashMap<>();
+        private final Set<Long> matchedIds = new HashSet<>();
+        private int insertedCount;
+        private int updatedCount;
+        private int unchangedCount;
+
+        ImportRun(FileValidationResult result, Map<String, Category> categories, ImportMode mode,
+                  ImportProgress progress) {
+            this.result = result;
+            this.categories = categories;
+            this.mode = mode;
+            this.progress = progress;
+            for (Category category : categories.values()) {
+                categoriesById.put(category.getId(), category);
+            }
+        }
+
+        @Override
+        public void row(int rowNumber, List<String> cells) {
+            if (columns.isEmpty()) {
+                readHeader(rowNumber, cells);
+                return;
+            }
+            if (cells.stream().allMatch(String::isBlank)) return; // Skip empty lines
+
+            // The reader reuses its cell list, so the chunk keeps a copy
+            chunk.rowNumbers.add(rowNumber);
+            chunk.cells.add(cells.toArray(new String[0]));
+            if (chunk.size() >= chunkSize) submitChunk();
+        }
+
+        private void submitChunk() {
+            if (chunk.size() == 0) return;
+            RowChunk rows = chunk;
+            chunk = new RowChunk();
+            validating.add(CompletableFuture.supplyAsync(() -> validate(rows), validationPool));
+            while (validating.size() > maxValidating) {
+                accept(join(validating.poll()));
+            }
+        }
+
+        // Validates the rest of the file and writes the last batch
+        void finish() {
+            submitChunk();
+            while (!validating.isEmpty()) {
+                accept(join(validating.poll()));
+            }
+            flush();
+        }
+
+        // Runs on the validation pool; only reads the header and categories, which no longer change
+        private RowChunk validate(RowChunk rows) {
+            for (int i = 0; i < rows.size(); i++) {
+                rows.products.add(parseRow(rows.rowNumbers.get(i), rows.cells.get(i), rows.errors));
+            }
+            rows.cells.clear();
+            return rows;
+        }
+
+        // Back on the importing thread: takes over a validated chunk in row order
+        private void accept(RowChunk rows) {
+            int nextError = 0;
+            for (int i = 0; i < rows.size(); i++) {
+                int rowNumber = rows.rowNumbers.get(i);
+                while (nextError < rows.errors.size() && rows.errors.get(nextError).getRowNumber() == rowNumber) {
+                    recordError(rows.errors.get(nextError++));
+                }
+                progress.rowProcessed();
+
+                Product product = rows.products.get(i);
+                // Once a row has failed nothing will be committed, so only validation continues
+                if (product == null || (mode == ImportMode.MERGE && isDuplicate(rowNumber, product))
+                        || !result.isValid()) continue;
+                pending.add(product);
+                pendingRows.add(rowNumber);
+                if (pending.size() >= batchSize) flush();
+            }
+        }
+
+        private void readHeader(int rowNumber, List<String> cells) {
+            for (int i = 0; i < cells.size(); i++) {
+                String header = cells.get(i).replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT);
+                columns.putIfAbsent(header, i);
+            }
+            if (!columns.keySet().containsAll(REQUIRED_COLUMNS)) {
+                error(rowNumber, "Missing one or more required columns in the header.");
+                throw new HeaderRejected();
+            }
+        }
+
+        private void error(int rowNumber, String message) {
+            recordError(new RowError(rowNumber, message));
+        }
+
+        private void recordError(RowError error) {
+            result.addError(error);
+            progress.rowFailed(error);
+        }
+
+        // Optional columns such as barcode read as empty when the file does not have them
+        private String value(String[] cells, String column) {
+            Integer index = columns.get(column);
+            return index != null && index < cells.length ? cells[index].trim() : "";
+        }
+
+        // A sheet that lists the same book twice would update it twice, so it is rejected
+        private boolean isDuplicate(int rowNumber, Product product) {
+            String key = product.getBarcode() != null ? "barcode:" + product.getBarcode() : "book:" + nameAuthorKey(product);
+            Integer firstRow = rowKeys.putIfAbsent(key, rowNumber);
+            if (firstRow == null) return false;
+            error(rowNumber, "Duplicate of row " + firstRow + ".");
+            return true;
+        }
+
+        // Returns the product for a valid row, or null after adding its errors to the list
+        private Product parseRow(int rowNumber, String[] cells, List<RowError> errors) {
+            String name = value(cells, "name");
+            String description = value(cells, "description");
+            String imageUrl = value(cells, "imageurl");
+            String priceText = value(cells, "price");
+            String stockText = value(cells, "stock");
+            String author = value(cells, "author");
+            String publisher = value(cells, "publisher");
+            String categoryName = value(cells, "category");
+            String barcode = value(cells, "barcode");
+
+            if (name.isEmpty() || description.isEmpty() || imageUrl.isEmpty() ||
+                    priceText.isEmpty() || stockText.isEmpty() || author.isEmpty() ||
+                    publisher.isEmpty() || categoryName.isEmpty()) {
+                errors.add(new RowError(rowNumber, "Required fields missing."));
+                return null;
+            }
+
+            boolean valid = true;
+            double price = 0;
+            try {
+                price = Double.parseDouble(priceText);
+                if (price <= 0) {
+                    errors.add(new RowError(rowNumber, "Price should be a positive number."));
+                    valid = false;
+                }
+            } catch (NumberFormatException e) {
+                errors.add(new RowError(rowNumber, "Invalid price format."));
+                valid = false;
+            }
+
+            int stock = 0;
+            try {
+                stock = Integer.parseInt(stockText);
+                if (stock < 0) {
+                    errors.add(new RowError(rowNumber, "Stock should be a non-negative integer."));
+                    valid = false;
+                }
+            } catch (NumberFormatException e) {
+                errors.add(new RowError(rowNumber, "Invalid stock format."));
+                valid = false;
+            }
+
+            Category category = categories.get(categoryName.toLowerCase(Locale.ROOT));
+            if (category == null) {
+                errors.add(new RowError(rowNumber, "Invalid category."));
+                valid = false;
+            }
+            if (!valid) return null;
+
+            Product product = new Product();
+            product.setName(name);
+            product.setDescription(description);
+            product.setImageUrl(imageUrl);
+            product.setPrice(price);
+            product.setStock(stock);
+            product.setAuthor(author);
+            product.setPublisher(publisher);
+            product.setCategory(category);
+            product.setBarcode(barcode.isEmpty() ? null : barcode);
+            return product;
+        }
+
+        void flush() {
+            if (pending.isEmpty()) return;
+            if (result.isValid()) {
+                if (mode == ImportMode.MERGE) {
+                    merge();
+                } else {
+                    insert(pending);
+                }
+            }
+            pending.clear();
+            pendingRows.clear();
+        }
+
+        private void insert(List<Product> products) {
+            if (products.isEmpty()) return;
+            insertBatch(products);
+            saved.addAll(products);
+            insertedCount += products.size();
+            progress.rowsInserted(products.size());
+        }
+
+        // Looks the batch up, then writes only the rows that are new or differ from the database
+        private void merge() {
+            Map<String, Product> byBarcode = new HashMap<>();
+            Map<String, Product> byNameAuthor = new HashMap<>();
+            findExisting(pending, categoriesById, byBarcode, byNameAuthor);
+
+            List<Product> inserts = new ArrayList<>();
+            List<Product> updates = new ArrayList<>();
+            List<Integer> updateRows = new ArrayList<>();
+            int unchanged = 0;
+            for (int i = 0; i < pending.size(); i++) {
+                Product row = pending.get(i);
+                Product existing = row.getBarcode() != null ? byBarcode.get(row.getBarcode()) : null;
+                if (existing == null) {
+                    // A book that already has a different barcode is another edition, not this row
+                    Product candidate = byNameAuthor.get(nameAuthorKey(row));
+                    if (candidate != null && (row.getBarcode() == null || candidate.getBarcode() == null)) {
+                        existing = candidate;
+                    }
+                }
+                if (existing == null) {
+                    inserts.add(row);
+                } else if (!matchedIds.add(existing.getId())) {
+                    error(pendingRows.get(i), "Matches the same book as an earlier row.");
+                } else if (applyChanges(existing, row)) {
+                    updates.add(existing);
+                    updateRows.add(pendingRows.get(i));
+                } else {
+                    unchanged++;
+                }
+            }
+            if (!result.isValid()) return;
+
+            insert(inserts);
+            for (Product product : inserts) {
+                matchedIds.add(product.getId());
+            }
+            if (!updates.isEmpty()) {
+                // The stock in the file is absolute, so a book sold or reserved since it was read is not
+                // overwritten: its row fails and nothing is imported, and the file can be uploaded again
+                int[] counts = updateBatch(updates);
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] == 0) {
+                        error(updateRows.get(i), "The book was changed, e.g. sold, while the file was imported. " +
+                                "Please upload the file again.");
+                    }
+                }
+                if (!result.isValid()) return;
+                saved.addAll(updates);
+                updatedCount += updates.size();
+                progress.rowsUpdated(updates.size());
+            }
+            unchangedCount += unchanged;
+            progress.rowsUnchanged(unchanged);
+        }
+    }
+
+    // Names and authors are matched case-insensitively like the MySQL collation
+    private static String nameAuthorKey(Product product) {
+        return product.getName().toLowerCase(Locale.ROOT) + "\u0000" + product.getAuthor().toLowerCase(Locale.ROOT);
+    }
+
+    // Copies the row onto the stored book and reports whether any column changed
+    private static boolean applyChanges(Product existing, Product row) {
+        // A supplier URL that was already copied to the image store counts as unchanged
+        boolean sameImage = Objects.equals(existing.getImageUrl(), row.getImageUrl())
+                || Objects.equals(existing.getImageSourceUrl(), row.getImageUrl());
+        boolean changed = !Objects.equals(existing.getName(), row.getName())
+                || !Objects.equals(existing.getDescription(), row.getDescription())
+                || !sameImage
+                || Double.compare(existing.getPrice(), row.getPrice()) != 0
+                || existing.getStock() != row.getStock()
+                || !Objects.equals(existing.getAuthor(), row.getAuthor())
+                || !Objects.equals(existing.getPublisher(), row.getPublisher())
+                || existing.getCategory() == null
+                || !Objects.equals(existing.getCategory().getId(), row.getCategory().getId())
+                || (row.getBarcode() != null && !row.getBarcode().equals(existing.getBarcode()));
+        if (!changed) return false;
+
+        existing.setName(row.getName());
+        existing.setDescription(row.getDescription());
+        if (!sameImage) {
+            existing.setImageUrl(row.getImageUrl());
+            // The variants belong to the old image; ingestion makes new ones
+            existing.setMediumImageUrl(null);
+            existing.setThumbnailUrl(null);
+            existing.setImageSourceUrl(null);
+        }
+        existing.setPrice(row.getPrice());
+        existing.setStock(row.getStock());
+        existing.setAuthor(row.getAuthor());
+        existing.setPublisher(row.getPublisher());
+        existing.setCategory(row.getCategory());
+        // Rows without a barcode keep the one already stored
+        if (row.getBarcode() != null) existing.setBarcode(row.getBarcode());
+        return true;
+    }
+
+    // One query by barcode and one by author and name for the whole batch
+    private void findExisting(List<Product> rows, Map<Long, Category> categoriesById,
+                              Map<String, Product> byBarcode, Map<String, Product> byNameAuthor) {
+        Set<String> barcodes = new HashSet<>();
+        Set<String> names = new HashSet<>();
+        Set<String> authors = new HashSet<>();
+        for (Product row : rows) {
+            if (row.getBarcode() != null) barcodes.add(row.getBarcode());
+            names.add(row.getName());
+            authors.add(row.getAuthor());
+        }
+
+        if (!barcodes.isEmpty()) {
+            namedJdbcTemplate.query(SELECT_EXISTING_SQL + "barcode IN (:barcodes)",
+                    new MapSqlParameterSource("barcodes", barcodes),
+                    (ResultSet rs) -> {
+                        Product product = mapExisting(rs, categoriesById);
+                        byBarcode.putIfAbsent(product.getBarcode(), product);
+                    });
+        }
+        namedJdbcTemplate.query(SELECT_EXISTING_SQL + "author IN (:authors) AND name IN (:names) ORDER BY id",
+                new MapSqlParameterSource("authors", authors).addValue("names", names),
+                (ResultSet rs) -> {
+                    Product product = mapExisting(rs, categoriesById);
+                    // The same row may come back from both queries, use one instance for it
+                    if (product.getBarcode() != null && byBarcode.containsKey(product.getBarcode())
+                            && byBarcode.get(product.getBarcode()).getId().equals(product.getId())) {
+                        product = byBarcode.get(product.getBarcode());
+                    }
+                    byNameAuthor.putIfAbsent(nameAuthorKey(product), product);
+                });
+    }
+
+    private static Product mapExisting(ResultSet rs, Map<Long, Category> categoriesById) throws SQLException {
+        Product product = new Product();
+        product.setId(rs.getLong("id"));
+        product.setName(rs.getString("name"));
+        product.setDescription(rs.getString("description"));
+        product.setImageUrl(rs.getString("image_url"));
+        product.setImageSourceUrl(rs.getString("image_source_url"));
+        product.setMediumImageUrl(rs.getString("medium_image_url"));
+        product.setThumbnailUrl(rs.getString("thumbnail_url"));
+        product.setPrice(rs.getDouble("price"));
+        product.setStock(rs.getInt("stock"));
+        product.setAuthor(rs.getString("author"));
+        product.setPublisher(rs.getString("publisher"));
+        Date releaseDate = rs.getDate("release_date");
+        product.setReleaseDate(releaseDate != null ? releaseDate.toLocalDate() : null);
+        product.setPreOrderAvailable(rs.getBoolean("pre_order_available"));
+        product.setPreOrderedQuantity(rs.getInt("pre_ordered_quantity"));
+        product.setBarcode(rs.getString("barcode"));
+        int threshold = rs.getInt("stock_threshold");
+        product.setStockThreshold(rs.wasNull() ? null : threshold);
+        long categoryId = rs.getLong("category_id");
+        product.setCategory(rs.wasNull() ? null : categoriesById.get(categoryId));
+        product.setVersion(rs.getLong("version"));
+        return product;
+    }
+
+    private static RowChunk join(CompletableFuture<RowChunk> validation) {
+        try {
+            return validation.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    // The update count of each product, 0 when its version moved since it was read
+    private int[] updateBatch(List<Product> products) {
+        return jdbcTemplate.batchUpdate(UPDATE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Product product = products.get(i);
+                ps.setString(1, product.getName());
+                ps.setString(2, product.getDescription());
+                ps.setString(3, product.getImageUrl());
+                ps.setString(4, product.getMediumImageUrl());
+                ps.setString(5, product.getThumbnailUrl());
+                ps.setString(6, product.getImageSourceUrl());
+                ps.setDouble(7, product.getPrice());
+                ps.setInt(8, product.getStock());
+                ps.setString(9, product.getAuthor());
+                ps.setString(10, product.getPublisher());
+                ps.setLong(11, product.getCategory().getId());
+                ps.setString(12, product.getBarcode());
+                ps.setLong(13, product.getId());
+                ps.setLong(14, product.getVersion());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return products.size();
+            }
+        });
+    }
+
+    private void insertBatch(List<Product> products) {
+        GeneratedKeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Product product = products.get(i);
+                        ps.setString(1, product.getName());
+                        ps.setString(2, product.getDescription());
+                        ps.setString(3, product.getImageUrl());
+                        ps.setDouble(4, product.getPrice());
+                        ps.setInt(5, product.getStock());
+                        ps.setString(6, product.getAuthor());
+                        ps.setString(7, product.getPublisher());
+                        ps.setLong(8, product.getCategory().getId());
+                        ps.setString(9, product.getBarcode());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return products.size();
+                    }
+                },
+                keys);
+
+        List<Map<String, Object>> generated = keys.getKeyList();
+        for (int i = 0; i < products.size() && i < generated.size(); i++) {
+            Number id = (Number) generated.get(i).values().iterator().next();
+            products.get(i).setId(id.longValue());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BookItemMatchDTO;
+import com.example.demo.dto.CartSelectionRequest;
+import com.example.demo.dto.ProductMatchDTO;
+import com.example.demo.entity.BookItem;
+import com.example.demo.entity.Booklist;
+import com.example.demo.entity.CartItem;
+import com.example.demo.entity.Product;
+import com.example.demo.repository.BooklistRepository;
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves the lines of a booklist to catalog products through ProductTitleIndex, all
+ * in memory, and turns the chosen products into cart items for the booklist's owner.
+ */
+@Service
+public class BooklistMatchService {
+
+    private final ProductTitleIndex productTitleIndex;
+    private final BooklistRepository booklistRepository;
+    private final CartService cartService;
+    private final int maxCandidates;
+    private final double minSimilarity;
+    private final double autoSelectSimilarity;
+
+    public BooklistMatchService(ProductTitleIndex productTitleIndex, BooklistRepository booklistRepository,
+                                CartService cartService,
+                                @Value("${booklist.match.candidates:3}") int maxCandidates,
+                                @Value("${booklist.match.min-similarity:0.3}") double minSimilarity,
+                                @Value("${booklist.match.auto-select-similarity:0.6}") double autoSelectSimilarity) {
+        this.productTitleIndex = productTitleIndex;
+        this.booklistRepository = booklistRepository;
+        this.cartService = cartService;
+        this.maxCandidates = maxCandidates;
+        this.minSimilarity = minSimilarity;
+        this.autoSelectSimilarity = autoSelectSimilarity;
+    }
+
+    @Transactional
+    public List<BookItemMatchDTO> match(Long booklistId) {
+        return match(findBooklist(booklistId).getBooks());
+    }
+
+    public List<BookItemMatchDTO> match(List<BookItem> items) {
+        if (!productTitleIndex.isReady()) {
+            throw new IllegalStateException("The catalog is still loading, please try again shortly.");
+        }
+        List<BookItemMatchDTO> result = new ArrayList<>(items.size());
+        for (BookItem item : items) {
+            List<ProductMatchDTO> candidates = new ArrayList<>();
+            for (ProductTitleIndex.Match match : productTitleIndex.match(item.getTitle(), maxCandidates, minSimilarity)) {
+                candidates.add(toDTO(match));
+            }
+            result.add(new BookItemMatchDTO(item.getTitle(), item.getQuantity(), candidates));
+        }
+        return result;
+    }
+
+    /**
+     * Adds the selected products to the cart of the booklist's owner. Without selections
+     * every line whose best candidate is at least booklist.match.auto-select-similarity
+     * alike is added with the quantity on the line; the other lines are left for the
+     * customer to pick.
+     */
+    @Transactional
+    public List<CartItem> addToCart(Long booklistId, List<CartSelectionRequest> selections) {
+        Booklist booklist = findBooklist(booklistId);
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        if (selections == null || selections.isEmpty()) {
+            for (BookItemMatchDTO line : match(booklist.getBooks())) {
+                if (line.getCandidates().isEmpty()) continue;
+                ProductMatchDTO best = line.getCandidates().get(0);
+                if (best.getSimilarity() >= autoSelectSimilarity) {
+                    quantities.merge(best.getProductId(), Math.max(line.getQuantity(), 1), Integer::sum);
+                }
+            }
+        } else {
+            for (CartSelectionRequest selection : selections) {
+                if (selection.getProductId() == null || selection.getQuantity() <= 0) {
+                    throw new IllegalArgumentException("Every selection needs a product and a positive quantity");
+                }
+                quantities.merge(selection.getProductId(), selection.getQuantity(), Integer::sum);
+            }
+        }
+        return cartService.addItems(booklist.getCustomerEmail(), quantities);
+    }
+
+    private Booklist findBooklist(Long booklistId) {
+        return booklistRepository.findById(booklistId)
+                .orElseThrow(() -> new IllegalArgumentException("Booklist not found"));
+    }
+
+    private static ProductMatchDTO toDTO(ProductTitleIndex.Match match) {
+        Product product = match.getProduct();
+        ProductMatchDTO dto = new ProductMatchDTO();
+        dto.setProductId(product.getId());
+        dto.setName(product.getName());
+        dto.setAuthor(product.getAuthor());
+        dto.setPrice(product.getPrice());
+        dto.setStock(product.getStock());
+        dto.setThumbnailUrl(product.getThumbnailUrl() != null ? product.getThumbnailUrl() : product.getImageUrl());
+        dto.setSimilarity(Math.round(match.getSimilarity() * 1000) / 1000.0);
+        return dto;
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.BookItem;
+import com.example.demo.entity.Booklist;
+import com.example.demo.entity.User;
+import com.example.demo.repository.BooklistRepository;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.util.DocumentPages;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Creates booklists from photos, or multi-page PDF and TIFF scans, in the background.
+ * The booklist is saved as PROCESSING straight away; the file is then uploaded to the
+ * image store and read by OCR at the same time, and the booklist becomes PENDING with
+ * the parsed books, or FAILED with the reason in ocrError. Clients poll the booklist
+ * for the outcome. A booklist the customer edited or submitted in the meantime keeps
+ * their changes; only the photo is attached to it.
+ */
+@Service
+public class BooklistOcrService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BooklistOcrService.class);
+
+    private final BooklistRepository booklistRepository;
+    private final UserRepository userRepository;
+    private final ImageUploadService imageUploadService;
+    private final OCRService ocrService;
+    private final EmailService emailService;
+    private final TaskExecutor executor;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxDimension;
+
+    public BooklistOcrService(BooklistRepository booklistRepository, UserRepository userRepository,
+                              ImageUploadService imageUploadService, OCRService ocrService, EmailService emailService,
+                              @Qualifier("booklistOcrExecutor") TaskExecutor executor,
+                              TransactionTemplate transactionTemplate,
+                              // Booklist photos are read by staff, so they keep more detail than product images
+                              @Value("${image.upload.booklist-max-dimension:2400}") int maxDimension) {
+        this.booklistRepository = booklistRepository;
+        this.userRepository = userRepository;
+        this.imageUploadService = imageUploadService;
+        this.ocrService = ocrService;
+        this.emailService = emailService;
+        this.executor = executor;
+        this.transactionTemplate = transactionTemplate;
+        this.maxDimension = maxDimension;
+    }
+
+    /**
+     * Saves the booklist as PROCESSING and queues the photo. The upload is copied to a
+     * temp file first because the multipart data is deleted when the request ends.
+     */
+    public Booklist submit(MultipartFile file, String customerEmail, String name) throws IOException {
+        User user = userRepository.findByEmail(customerEmail)
+                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+
+        Path temp = Files.createTempFile("booklist-ocr-", ".tmp");
+        Booklist saved;
+        try {
+            file.transferTo(temp);
+            Booklist booklist = new Booklist();
+            booklist.setName(name);
+            booklist.setCustomerEmail(customerEmail);
+            booklist.setBooks(new ArrayList<>());
+            booklist.setStatus(Booklist.BooklistStatus.PROCESSING);
+            booklist.setSubmittedDate(LocalDateTime.now());
+            booklist.setUser(user);
+            saved = booklistRepository.save(booklist);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        String contentType = file.getContentType();
+        CompletableFuture<String> upload;
+        try {
+            upload = CompletableFuture.supplyAsync(() -> upload(temp, contentType), executor);
+        } catch (TaskRejectedException e) {
+            booklistRepository.deleteById(saved.getId());
+            Files.deleteIfExists(temp);
+            throw new IllegalStateException("Too many booklist photos are being processed, please try again later.");
+        }
+        CompletableFuture<List<BookItem>> books;
+        try {
+            books = CompletableFuture.supplyAsync(() -> read(temp), executor);
+        } catch (TaskRejectedException e) {
+            books = CompletableFuture.failedFuture(
+                    new IllegalStateException("Too many booklist photos are being processed, please try again later."));
+        }
+
+        Long id = saved.getId();
+        CompletableFuture<String> uploaded = upload;
+        CompletableFuture<List<BookItem>> parsed = books;
+        // Waits for both, even when one fails, before the temp file goes
+        CompletableFuture.allOf(uploaded, parsed).whenComplete((done, error) -> {
+            try {
+                finish(id, uploaded, parsed);
+            } catch (RuntimeException e) {
+                logger.error("Could not save the outcome of booklist {}", id, e);
+            } finally {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    logger.warn("Could not delete {}", temp, e);
+                }
+            }
+        });
+        return saved;
+    }
+
+    // Booklists whose photo was still being processed when the server stopped will never finish
+    @EventListener(ApplicationReadyEvent.class)
+    public void failInterrupted() {
+        List<Booklist> interrupted = booklistRepository.findByStatus(Booklist.BooklistStatus.PROCESSING);
+        for (Booklist booklist : interrupted) {
+            booklist.setStatus(Booklist.BooklistStatus.FAILED);
+            booklist.setOcrError("Processing was interrupted, please upload the photo again.");
+        }
+        if (!interrupted.isEmpty()) {
+            booklistRepository.saveAll(interrupted);
+            logger.info("Marked {} interrupted booklists as failed", interrupted.size());
+        }
+    }
+
+    private String upload(Path file, String contentType) {
+        try {
+            // A PDF or TIFF is stored whole; shrinking it would keep only the first page
+            int limit = DocumentPages.isDocument(file) ? Integer.MAX_VALUE : maxDimension;
+            return imageUploadService.uploadImage(() -> Files.newInputStream(file), contentType, limit).getUrl();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // A photo is read as one image; the pages of a PDF or TIFF are read in parallel and merged in order
+    private List<BookItem> read(Path file) {
+        List<String> texts = new ArrayList<>();
+        try (DocumentPages pages = DocumentPages.open(file)) {
+            if (pages == null) {
+                texts.add(ocrService.recognize(() -> Files.newInputStream(file)));
+            } else {
+                for (OCRService.PageText page : ocrService.recognizePages(pages)) {
+                    texts.add(page.getText());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted");
+        }
+        if (texts.stream().allMatch(text -> text == null || text.trim().isEmpty())) {
+            throw new IllegalArgumentException("No text could be extracted from the image");
+        }
+        List<BookItem> books = new ArrayList<>();
+        for (String text : texts) {
+            if (text != null) books.addAll(ocrService.parseBookItems(text));
+        }
+        if (books.isEmpty()) {
+            throw new IllegalArgumentException("No book items could be parsed from the extracted text");
+        }
+        return books;
+    }
+
+    private void finish(Long id, CompletableFuture<String> upload, CompletableFuture<List<BookItem>> books) {
+        Throwable error = failure(upload);
+        if (error == null) error = failure(books);
+        Throwable failure = error;
+
+        Booklist saved = transactionTemplate.execute(status -> {
+            Booklist booklist = booklistRepository.lockById(id).orElse(null);
+            if (booklist == null) return null; // Deleted by the customer in the meantime
+
+            // The photo is kept even when it could not be read, so staff can still look at it
+            String imageUrl = upload.isCompletedExceptionally() ? null : upload.join();
+            if (booklist.getStatus() != Booklist.BooklistStatus.PROCESSING) {
+                logger.info("Booklist {} was changed to {} while its photo was read, keeping the customer's books",
+                        id, booklist.getStatus());
+                if (booklist.getImageUrl() == null && imageUrl != null) booklist.setImageUrl(imageUrl);
+                return null;
+            }
+            if (imageUrl != null) booklist.setImageUrl(imageUrl);
+            if (failure == null) {
+                booklist.setBooks(books.join());
+                booklist.setStatus(Booklist.BooklistStatus.PENDING);
+                booklist.setOcrError(null);
+            } else {
+                logger.warn("Could not process the photo of booklist {}: {}", id, failure.getMessage());
+                booklist.setStatus(Booklist.BooklistStatus.FAILED);
+                booklist.setOcrError(message(failure));
+            }
+            return booklistRepository.save(booklist);
+        });
+
+        if (saved != null && saved.getStatus() == Booklist.BooklistStatus.PENDING) {
+            // Send notification to admin with image
+            emailService.sendAdminBooklistNotification(saved);
+        }
+    }
+
+    private static Throwable failure(CompletableFuture<?> future) {
+        if (!future.isCompletedExceptionally()) return null;
+        try {
+            future.join();
+            return null;
+        } catch (CompletionException e) {
+            return e.getCause() != null ? e.getCause() : e;
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    private static String message(Throwable error) {
+        Throwable cause = error instanceof UncheckedIOException && error.getCause() != null ? error.getCause() : error;
+        String message = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+        return message.length() > 500 ? message.substring(0, 500) : message;
+    }
+}
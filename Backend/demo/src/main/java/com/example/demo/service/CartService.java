@@ -1,6 +1,9 @@
 package com.example.demo.service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.example.demo.entity.User;
 import com.example.demo.repository.UserRepository;
@@ -10,7 +13,6 @@ import org.springframework.stereotype.Service;
 import com.example.demo.entity.CartItem;
 import com.example.demo.entity.Product;
 import com.example.demo.repository.CartItemRepository;
-import com.example.demo.repository.ProductRepository;
 
 @Service
 public class CartService {
@@ -18,7 +20,7 @@ public class CartService {
     private CartItemRepository cartItemRepository;
 
     @Autowired
-    private ProductRepository productRepository;
+    private ProductCache productCache;
     @Autowired
     private UserRepository userRepository;
 
@@ -35,13 +37,41 @@ public class CartService {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        Product product = productRepository.findById(productId)
+        Product product = productCache.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
 
         CartItem cartItem = new CartItem(product, quantity, String.valueOf(user.getId()));
         return cartItemRepository.save(cartItem);
     }
 
+    /**
+     * Adds several products at once, e.g. the books matched from a booklist. A product
+     * already in the cart gets the extra quantity instead of a second cart row.
+     */
+    public List<CartItem> addItems(String email, Map<Long, Integer> quantities) {
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        String userId = String.valueOf(user.getId());
+
+        Map<Long, CartItem> inCart = new HashMap<>();
+        for (CartItem item : cartItemRepository.findByUserId(userId)) {
+            inCart.putIfAbsent(item.getProduct().getId(), item);
+        }
+        List<CartItem> changed = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            CartItem item = inCart.get(entry.getKey());
+            if (item != null) {
+                item.setQuantity(item.getQuantity() + entry.getValue());
+            } else {
+                Product product = productCache.findById(entry.getKey())
+                        .orElseThrow(() -> new IllegalArgumentException("Product not found: " + entry.getKey()));
+                item = new CartItem(product, entry.getValue(), userId);
+            }
+            changed.add(item);
+        }
+        return cartItemRepository.saveAll(changed);
+    }
+
     public CartItem updateItem(Long id, int quantity) {
         CartItem item = cartItemRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Cart item not found"));
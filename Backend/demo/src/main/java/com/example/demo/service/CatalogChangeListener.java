@@ -0,0 +1,28 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Product;
+
+import java.util.Collection;
+
+/**
+ * Implemented by in-memory catalog structures (search index etc.) that have to
+ * follow product inserts, updates and deletes. Listeners are driven by
+ * {@link CatalogChangeNotifier}.
+ */
+public interface CatalogChangeListener {
+
+    // Called at startup and after a full reload with every product in the catalog
+    void onCatalogLoaded(Collection<Product> products);
+
+    // Called after a product has been inserted or updated
+    void onProductSaved(Product product);
+
+    // Called after a product has been deleted
+    void onProductDeleted(Long productId);
+
+    default void onProductsSaved(Collection<Product> products) {
+        for (Product product : products) {
+            onProductSaved(product);
+        }
+    }
+}
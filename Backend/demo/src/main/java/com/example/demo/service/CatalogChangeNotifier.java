@@ -0,0 +1,101 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Product;
+import com.example.demo.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Fans product changes out to every {@link CatalogChangeListener} bean.
+ * Services that write products call this after the write so the in-memory
+ * catalog structures never have to scan the product table on a read.
+ *
+ * A write made inside a transaction reaches the listeners only once it commits:
+ * told earlier, a rollback would leave the indexes with stock the database gave
+ * back, and a read racing the commit could cache the old row as current.
+ */
+@Component
+public class CatalogChangeNotifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogChangeNotifier.class);
+
+    private final ProductRepository productRepository;
+    private final List<CatalogChangeListener> listeners;
+
+    public CatalogChangeNotifier(ProductRepository productRepository, List<CatalogChangeListener> listeners) {
+        this.productRepository = productRepository;
+        this.listeners = listeners;
+    }
+
+    // Built once the application is ready so DatabaseInitializer has already patched the schema
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            reload();
+        } catch (Exception e) {
+            logger.error("Could not load the product catalog into memory: {}", e.getMessage(), e);
+        }
+    }
+
+    public void reload() {
+        long start = System.currentTimeMillis();
+        List<Product> products = productRepository.findAll();
+        for (CatalogChangeListener listener : listeners) {
+            listener.onCatalogLoaded(products);
+        }
+        logger.info("Loaded {} products into {} catalog listeners in {} ms",
+                products.size(), listeners.size(), System.currentTimeMillis() - start);
+    }
+
+    public void productSaved(Product product) {
+        afterCommit(() -> {
+            for (CatalogChangeListener listener : listeners) {
+                listener.onProductSaved(product);
+            }
+        });
+    }
+
+    public void productsSaved(Collection<Product> products) {
+        if (products.isEmpty()) return;
+        afterCommit(() -> {
+            for (CatalogChangeListener listener : listeners) {
+                listener.onProductsSaved(products);
+            }
+        });
+    }
+
+    public void productDeleted(Long productId) {
+        afterCommit(() -> {
+            for (CatalogChangeListener listener : listeners) {
+                listener.onProductDeleted(productId);
+            }
+        });
+    }
+
+    // Runs now outside a transaction; a rolled back transaction never runs it
+    static void afterCommit(Runnable notification) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            notification.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                // The write is already committed, so a failing listener must not fail the caller
+                try {
+                    notification.run();
+                } catch (RuntimeException e) {
+                    logger.error("Could not update the catalog listeners after a commit: {}", e.getMessage(), e);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Product;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of the catalog as served by the browse endpoints. Every product change
+ * arrives through CatalogChangeNotifier and category writes call changed(), so the
+ * ETag built from it changes whenever any catalog response could have changed.
+ *
+ * The version moves only once the write has committed. Moved before, a request
+ * could take the new ETag, read the old rows and have them revalidated as current
+ * until the next change.
+ */
+@Component
+public class CatalogVersion implements CatalogChangeListener {
+
+    // Part of the ETag so tags handed out before a restart are never reused
+    private final long startedAt = System.currentTimeMillis();
+    private final AtomicLong version = new AtomicLong();
+    private volatile long lastModified = startedAt;
+
+    public void changed() {
+        CatalogChangeNotifier.afterCommit(this::bump);
+    }
+
+    private void bump() {
+        version.incrementAndGet();
+        lastModified = System.currentTimeMillis();
+    }
+
+    public String getETag() {
+        return "W/\"catalog-" + Long.toString(startedAt, 36) + "-" + version.get() + "\"";
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    // The notifier calls these once the write has committed
+    @Override
+    public void onCatalogLoaded(Collection<Product> products) {
+        bump();
+    }
+
+    @Override
+    public void onProductSaved(Product product) {
+        bump();
+    }
+
+    @Override
+    public void onProductsSaved(Collection<Product> products) {
+        bump();
+    }
+
+    @Override
+    public void onProductDeleted(Long productId) {
+        bump();
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.demo.service;
+
+import com.cloudinary.Cloudinary;
+import com.cloudinary.Transformation;
+import com.cloudinary.utils.ObjectUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+@Component
+@ConditionalOnProperty(name = "image.store", havingValue = "cloudinary", matchIfMissing = true)
+public class CloudinaryImageStore implements ImageStore {
+
+    private final Cloudinary cloudinary;
+    private final int mediumSize;
+    private final int thumbnailSize;
+
+    public CloudinaryImageStore(Cloudinary cloudinary,
+                                @Value("${image.variants.medium-size:600}") int mediumSize,
+                                @Value("${image.variants.thumbnail-size:200}") int thumbnailSize) {
+        this.cloudinary = cloudinary;
+        this.mediumSize = mediumSize;
+        this.thumbnailSize = thumbnailSize;
+    }
+
+    // The hash is the public id, so the same picture is kept once however many books use it.
+    // The variants are made as eager transformations during the upload instead of on the
+    // first request, and their URLs are the derived URLs of those transformations.
+    @Override
+    public StoredImage store(String contentHash, Path file, String contentType) throws IOException {
+        String publicId = "products/" + contentHash;
+        Map uploadResult = cloudinary.uploader().upload(file.toFile(), ObjectUtils.asMap(
+                "public_id", publicId,
+                "overwrite", false,
+                "resource_type", "image",
+                "eager", List.of(variant(mediumSize), variant(thumbnailSize))));
+        String format = String.valueOf(uploadResult.get("format"));
+        return new StoredImage(uploadResult.get("secure_url").toString(),
+                variantUrl(publicId, format, mediumSize),
+                variantUrl(publicId, format, thumbnailSize));
+    }
+
+    @Override
+    public boolean isStoredUrl(String url) {
+        return url.startsWith("https://res.cloudinary.com/" + cloudinary.config.cloudName + "/");
+    }
+
+    // Fits the image in a size x size box without ever enlarging it
+    private static Transformation variant(int size) {
+        return new Transformation().width(size).height(size).crop("limit");
+    }
+
+    private String variantUrl(String publicId, String format, int size) {
+        return cloudinary.url().secure(true).format(format).transformation(variant(size)).generate(publicId);
+    }
+}
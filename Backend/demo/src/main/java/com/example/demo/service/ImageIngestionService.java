@@ -0,0 +1,346 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Product;
+import com.example.demo.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Copies the images of imported books from the supplier's URLs into the ImageStore in
+ * the background. Each distinct URL is fetched once and each distinct picture (by
+ * SHA-256) is stored once; image.ingest.parallelism transfers run at a time and failed
+ * ones are retried with backoff. Downloads are hashed while they are written to a temp
+ * file, so no image is held on the heap. When a batch is done the products still
+ * pointing at the fetched URL are patched to the stored image and its variants.
+ * The URLs come from uploaded files, so only public hosts are fetched, redirects
+ * included, unless image.ingest.allow-private-hosts is set.
+ */
+@Service
+public class ImageIngestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageIngestionService.class);
+
+    // Remembered stored URLs per content hash; cleared when full like ProductCountCache
+    private static final int MAX_KNOWN_HASHES = 10_000;
+    private static final int MAX_REDIRECTS = 5;
+
+    // Only products still showing the URL that was fetched are changed
+    private static final String PATCH_SQL =
+            "UPDATE product SET image_url = ?, medium_image_url = ?, thumbnail_url = ?, image_source_url = ?, " +
+            "version = version + 1 " +
+            "WHERE id = ? AND image_url = ?";
+
+    private final ImageStore imageStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductRepository productRepository;
+    private final CatalogChangeNotifier catalogChangeNotifier;
+    private final TaskExecutor executor;
+    private final int maxAttempts;
+    private final long retryDelayMillis;
+    private final int maxImageBytes;
+    private final boolean allowPrivateHosts;
+    // Redirects are followed by fetch, which checks the host of each one
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .build();
+    private final Map<String, CompletableFuture<ImageStore.StoredImage>> storedByHash = new ConcurrentHashMap<>();
+
+    private final AtomicLong fetched = new AtomicLong();
+    private final AtomicLong stored = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong patched = new AtomicLong();
+
+    public ImageIngestionService(ImageStore imageStore, JdbcTemplate jdbcTemplate, ProductRepository productRepository,
+                                 CatalogChangeNotifier catalogChangeNotifier,
+                                 @Qualifier("imageIngestionExecutor") TaskExecutor executor,
+                                 @Value("${image.ingest.max-attempts:3}") int maxAttempts,
+                                 @Value("${image.ingest.retry-delay-ms:500}") long retryDelayMillis,
+                                 @Value("${image.ingest.max-image-bytes:10485760}") int maxImageBytes,
+                                 @Value("${image.ingest.allow-private-hosts:false}") boolean allowPrivateHosts) {
+        this.imageStore = imageStore;
+        this.jdbcTemplate = jdbcTemplate;
+        this.productRepository = productRepository;
+        this.catalogChangeNotifier = catalogChangeNotifier;
+        this.executor = executor;
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.retryDelayMillis = retryDelayMillis;
+        this.maxImageBytes = maxImageBytes;
+        this.allowPrivateHosts = allowPrivateHosts;
+    }
+
+    /**
+     * Queues the external images of the given products. The future completes with the
+     * new imageUrl of every product that was patched; images that could not be fetched
+     * or stored leave their product unchanged.
+     */
+    public CompletableFuture<Map<Long, String>> ingest(Collection<Product> products) {
+        Map<String, List<Long>> productsBySource = new LinkedHashMap<>();
+        for (Product product : products) {
+            String url = product.getImageUrl();
+            if (product.getId() == null || url == null || url.isBlank()) continue;
+            url = url.trim();
+            if (imageStore.isStoredUrl(url) || !(url.startsWith("http://") || url.startsWith("https://"))) continue;
+            productsBySource.computeIfAbsent(url, key -> new ArrayList<>()).add(product.getId());
+        }
+        if (productsBySource.isEmpty()) return CompletableFuture.completedFuture(Map.of());
+
+        Map<String, ImageStore.StoredImage> storedBySource = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> transfers = new ArrayList<>();
+        int rejected = 0;
+        for (String source : productsBySource.keySet()) {
+            try {
+                transfers.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        storedBySource.put(source, transfer(source));
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                        logger.warn("Could not ingest image {}: {}", source, e.getMessage());
+                    }
+                }, executor));
+            } catch (TaskRejectedException e) {
+                rejected++;
+            }
+        }
+        if (rejected > 0) {
+            failed.addAndGet(rejected);
+            logger.warn("The image ingestion queue is full, {} images keep their supplier URL", rejected);
+        }
+        return CompletableFuture.allOf(transfers.toArray(new CompletableFuture[0]))
+                .thenApply(done -> patchProducts(productsBySource, storedBySource))
+                .whenComplete((result, error) -> {
+                    if (error != null) logger.error("Could not patch ingested product images", error);
+                });
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("fetched", fetched.get());
+        stats.put("stored", stored.get());
+        stats.put("deduplicated", deduplicated.get());
+        stats.put("retries", retries.get());
+        stats.put("failed", failed.get());
+        stats.put("patched", patched.get());
+        return stats;
+    }
+
+    // Fetch, hash and store one source URL; returns the stored image
+    private ImageStore.StoredImage transfer(String source) throws Exception {
+        Image image = withRetries(() -> fetch(source));
+        try {
+            fetched.incrementAndGet();
+            CompletableFuture<ImageStore.StoredImage> mine = new CompletableFuture<>();
+            CompletableFuture<ImageStore.StoredImage> existing = storedByHash.putIfAbsent(image.hash, mine);
+            if (existing != null) {
+                // Another URL had the same picture; wait for (or reuse) its upload
+                deduplicated.incrementAndGet();
+                try {
+                    return existing.join();
+                } catch (CompletionException e) {
+                    throw (Exception) e.getCause();
+                }
+            }
+            try {
+                ImageStore.StoredImage storedImage = withRetries(
+                        () -> imageStore.store(image.hash, image.file, image.contentType));
+                stored.incrementAndGet();
+                mine.complete(storedImage);
+                if (storedByHash.size() > MAX_KNOWN_HASHES) storedByHash.clear();
+                return storedImage;
+            } catch (Exception e) {
+                storedByHash.remove(image.hash, mine);
+                mine.completeExceptionally(e);
+                throw e;
+            }
+        } finally {
+            Files.deleteIfExists(image.file);
+        }
+    }
+
+    private Image fetch(String source) throws IOException, InterruptedException {
+        URI uri = URI.create(source);
+        for (int redirects = 0; ; redirects++) {
+            checkHost(uri);
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .timeout(Duration.ofSeconds(30))
+                    .GET()
+                    .build();
+            HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            Optional<String> location = response.headers().firstValue("Location");
+            if (isRedirect(response.statusCode()) && location.isPresent()) {
+                response.body().close();
+                if (redirects >= MAX_REDIRECTS) throw new PermanentFailure("Too many redirects");
+                uri = uri.resolve(location.get());
+                continue;
+            }
+            return read(response);
+        }
+    }
+
+    private static boolean isRedirect(int status) {
+        return status == 301 || status == 302 || status == 303 || status == 307 || status == 308;
+    }
+
+    // Keeps an imported file from making the server request its own or the shop network's addresses
+    private void checkHost(URI uri) throws IOException {
+        String scheme = uri.getScheme() == null ? "" : uri.getScheme().toLowerCase(Locale.ROOT);
+        if (!scheme.equals("http") && !scheme.equals("https")) {
+            throw new PermanentFailure("Not an http(s) URL: " + uri);
+        }
+        if (uri.getHost() == null) throw new PermanentFailure("No host in " + uri);
+        if (allowPrivateHosts) return;
+        for (InetAddress address : InetAddress.getAllByName(uri.getHost())) {
+            if (!isPublic(address)) throw new PermanentFailure("Not a public address: " + uri.getHost());
+        }
+    }
+
+    static boolean isPublic(InetAddress address) {
+        if (address.isAnyLocalAddress() || address.isLoopbackAddress() || address.isLinkLocalAddress()
+                || address.isSiteLocalAddress() || address.isMulticastAddress()) {
+            return false;
+        }
+        // IPv6 unique local addresses (fc00::/7), the IPv6 counterpart of the private ranges
+        return !(address instanceof Inet6Address) || (address.getAddress()[0] & 0xfe) != 0xfc;
+    }
+
+    private Image read(HttpResponse<InputStream> response) throws IOException {
+        try (InputStream body = response.body()) {
+            int status = response.statusCode();
+            if (status != 200) {
+                // Server errors and rate limits are worth another try, other answers are not
+                throw status >= 500 || status == 429
+                        ? new IOException("HTTP " + status)
+                        : new PermanentFailure("HTTP " + status);
+            }
+            String contentType = response.headers().firstValue("Content-Type").orElse("")
+                    .split(";")[0].trim().toLowerCase(Locale.ROOT);
+            if (!contentType.startsWith("image/")) {
+                throw new PermanentFailure("Not an image: " + contentType);
+            }
+            Path file = Files.createTempFile("image-ingest-", ".tmp");
+            try {
+                return new Image(file, download(body, file), contentType);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+        }
+    }
+
+    // Copies the body to file and returns its SHA-256
+    private String download(InputStream body, Path file) throws IOException {
+        MessageDigest digest = sha256();
+        long size = 0;
+        byte[] buffer = new byte[8192];
+        int read;
+        try (OutputStream out = Files.newOutputStream(file)) {
+            while ((read = body.read(buffer)) != -1) {
+                size += read;
+                if (size > maxImageBytes) {
+                    throw new PermanentFailure("Image larger than " + maxImageBytes + " bytes");
+                }
+                digest.update(buffer, 0, read);
+                out.write(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private interface Attempt<T> {
+        T run() throws Exception;
+    }
+
+    // Retries IO failures with exponential backoff; PermanentFailure is not retried
+    private <T> T withRetries(Attempt<T> attempt) throws Exception {
+        for (int i = 1; ; i++) {
+            try {
+                return attempt.run();
+            } catch (IOException e) {
+                if (e instanceof PermanentFailure || i >= maxAttempts) throw e;
+                retries.incrementAndGet();
+                Thread.sleep(retryDelayMillis << (i - 1));
+            }
+        }
+    }
+
+    private Map<Long, String> patchProducts(Map<String, List<Long>> productsBySource,
+                                            Map<String, ImageStore.StoredImage> storedBySource) {
+        List<Object[]> updates = new ArrayList<>();
+        for (Map.Entry<String, ImageStore.StoredImage> entry : storedBySource.entrySet()) {
+            ImageStore.StoredImage image = entry.getValue();
+            for (Long productId : productsBySource.get(entry.getKey())) {
+                updates.add(new Object[]{image.getUrl(), image.getMediumUrl(), image.getThumbnailUrl(),
+                        entry.getKey(), productId, entry.getKey()});
+            }
+        }
+        if (updates.isEmpty()) return Map.of();
+
+        int[] counts = jdbcTemplate.batchUpdate(PATCH_SQL, updates);
+        Map<Long, String> result = new HashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            // SUCCESS_NO_INFO (-2) means the driver did not report counts for the batch
+            if (counts[i] != 0) result.put((Long) updates.get(i)[4], (String) updates.get(i)[0]);
+        }
+        if (!result.isEmpty()) {
+            patched.addAndGet(result.size());
+            catalogChangeNotifier.productsSaved(productRepository.findAllById(result.keySet()));
+        }
+        logger.info("Ingested images of {} products from {} URLs", result.size(), storedBySource.size());
+        return result;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // A downloaded image in a temp file, deleted once it is stored
+    private static final class Image {
+        final Path file;
+        final String hash;
+        final String contentType;
+
+        Image(Path file, String hash, String contentType) {
+            this.file = file;
+            this.hash = hash;
+            this.contentType = contentType;
+        }
+    }
+
+    private static final class PermanentFailure extends IOException {
+        PermanentFailure(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.demo.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Where product images are kept and served from. Cloudinary in production; the local
+ * directory store (image.store=local) lets the image pipeline run offline and in tests.
+ * Each stored image also gets a medium and a thumbnail variant, made once at upload
+ * time, so product lists do not download the full size picture.
+ */
+public interface ImageStore {
+
+    /**
+     * Stores the image in file under its SHA-256 content hash, together with its
+     * variants. Storing the same hash again returns the same URLs. The file is only
+     * read and stays with the caller.
+     */
+    StoredImage store(String contentHash, Path file, String contentType) throws IOException;
+
+    // Whether the URL already points into this store, so there is nothing to ingest
+    boolean isStoredUrl(String url);
+
+    /**
+     * URLs of a stored image. A variant is the original itself when the image is already
+     * smaller than the variant, or in a format that cannot be resized.
+     */
+    final class StoredImage {
+        private final String url;
+        private final String mediumUrl;
+        private final String thumbnailUrl;
+
+        public StoredImage(String url, String mediumUrl, String thumbnailUrl) {
+            this.url = url;
+            this.mediumUrl = mediumUrl;
+            this.thumbnailUrl = thumbnailUrl;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public String getMediumUrl() {
+            return mediumUrl;
+        }
+
+        public String getThumbnailUrl() {
+            return thumbnailUrl;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.demo.service;
+
+import com.example.demo.util.ImageResizer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+@Service
+public class ImageUploadService {
+    private final ImageStore imageStore;
+    private final int maxDimension;
+    private final float jpegQuality;
+
+    public ImageUploadService(ImageStore imageStore,
+                              @Value("${image.upload.max-dimension:1600}") int maxDimension,
+                              @Value("${image.upload.jpeg-quality:0.85}") float jpegQuality) {
+        this.imageStore = imageStore;
+        this.maxDimension = maxDimension;
+        this.jpegQuality = jpegQuality;
+    }
+
+    public ImageStore.StoredImage uploadImage(MultipartFile file) throws IOException {
+        return uploadImage(file, maxDimension);
+    }
+
+    /**
+     * Stores the upload in the ImageStore from a temp file instead of file.getBytes(), so
+     * the image is streamed from disk rather than held on the heap. Photos larger than
+     * maxDimension are shrunk to a JPEG first; anything else is stored as it is. The
+     * upload stays readable afterwards, e.g. for OCR of a booklist.
+     */
+    public ImageStore.StoredImage uploadImage(MultipartFile file, int maxDimension) throws IOException {
+        return uploadImage(file::getInputStream, file.getContentType(), maxDimension);
+    }
+
+    // The same for an image that is already on disk or elsewhere, e.g. a booklist photo being read by OCR
+    public ImageStore.StoredImage uploadImage(ImageResizer.Source source, String contentType, int maxDimension)
+            throws IOException {
+        Path temp = Files.createTempFile("image-upload-", ".tmp");
+        try {
+            if (ImageResizer.shrink(source, maxDimension, jpegQuality, temp)) {
+                contentType = "image/jpeg";
+            } else {
+                try (InputStream in = source.open()) {
+                    Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            return imageStore.store(sha256(temp), temp, contentType);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static String sha256(Path file) throws IOException {
+        try (DigestInputStream in = new DigestInputStream(Files.newInputStream(file),
+                MessageDigest.getInstance("SHA-256"))) {
+            in.transferTo(OutputStream.nullOutputStream());
+            return HexFormat.of().formatHex(in.getMessageDigest().digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
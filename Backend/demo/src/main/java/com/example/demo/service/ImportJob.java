@@ -0,0 +1,154 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.FileValidationResult;
+import com.example.demo.dto.ImportJobDTO;
+import com.example.demo.dto.RowError;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One book import running on the import executor. The worker thread reports rows and
+ * errors as it reads them, and status requests take a snapshot with toDTO().
+ */
+public class ImportJob implements BookImportService.ImportProgress {
+
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, REJECTED, FAILED
+    }
+
+    // Only the first errors are kept for polling; a bad file can have one per row
+    private static final int MAX_REPORTED_ERRORS = 500;
+
+    private final String id;
+    private final String filename;
+    private final BookImportService.ImportMode mode;
+    private final Instant submittedAt = Instant.now();
+    private final AtomicLong rowsProcessed = new AtomicLong();
+    private final AtomicInteger errorCount = new AtomicInteger();
+    private final List<RowError> errors = new ArrayList<>();
+    private final AtomicInteger inserted = new AtomicInteger();
+    private final AtomicInteger updated = new AtomicInteger();
+    private final AtomicInteger unchanged = new AtomicInteger();
+    private volatile Status status = Status.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String message;
+
+    public ImportJob(String id, String filename, BookImportService.ImportMode mode) {
+        this.id = id;
+        this.filename = filename;
+        this.mode = mode;
+    }
+
+    public BookImportService.ImportMode getMode() {
+        return mode;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public boolean isFinished() {
+        return finishedAt != null;
+    }
+
+    void started() {
+        startedAt = Instant.now();
+        status = Status.RUNNING;
+    }
+
+    void completed(FileValidationResult result) {
+        if (result.isValid()) {
+            message = String.format("Books uploaded successfully: %d inserted, %d updated, %d unchanged.",
+                    inserted.get(), updated.get(), unchanged.get());
+            status = Status.SUCCEEDED;
+        } else {
+            message = "The file has invalid rows, nothing was imported.";
+            // The batches already written were rolled back
+            inserted.set(0);
+            updated.set(0);
+            unchanged.set(0);
+            status = Status.REJECTED;
+        }
+        finishedAt = Instant.now();
+    }
+
+    void failed(String message) {
+        this.message = message;
+        status = Status.FAILED;
+        finishedAt = Instant.now();
+    }
+
+    @Override
+    public void rowProcessed() {
+        rowsProcessed.incrementAndGet();
+    }
+
+    @Override
+    public void rowsInserted(int count) {
+        inserted.addAndGet(count);
+    }
+
+    @Override
+    public void rowsUpdated(int count) {
+        updated.addAndGet(count);
+    }
+
+    @Override
+    public void rowsUnchanged(int count) {
+        unchanged.addAndGet(count);
+    }
+
+    @Override
+    public void rowFailed(RowError error) {
+        errorCount.incrementAndGet();
+        synchronized (errors) {
+            if (errors.size() < MAX_REPORTED_ERRORS) errors.add(error);
+        }
+    }
+
+    public ImportJobDTO toDTO() {
+        ImportJobDTO dto = new ImportJobDTO();
+        dto.setId(id);
+        dto.setFilename(filename);
+        dto.setMode(mode.name());
+        dto.setStatus(status.name());
+        long rows = rowsProcessed.get();
+        dto.setRowsProcessed(rows);
+        dto.setRowsPerSecond(rowsPerSecond(rows));
+        dto.setErrorCount(errorCount.get());
+        synchronized (errors) {
+            dto.setErrors(new ArrayList<>(errors));
+        }
+        dto.setInserted(inserted.get());
+        dto.setUpdated(updated.get());
+        dto.setUnchanged(unchanged.get());
+        dto.setMessage(message);
+        dto.setSubmittedAt(submittedAt);
+        dto.setStartedAt(startedAt);
+        dto.setFinishedAt(finishedAt);
+        return dto;
+    }
+
+    private double rowsPerSecond(long rows) {
+        Instant start = startedAt;
+        if (start == null) return 0;
+        Instant end = finishedAt != null ? finishedAt : Instant.now();
+        long millis = Duration.between(start, end).toMillis();
+        if (millis <= 0) return rows;
+        return Math.round(rows * 10000.0 / millis) / 10.0;
+    }
+}
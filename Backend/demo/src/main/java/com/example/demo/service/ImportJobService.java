@@ -0,0 +1,102 @@
+package com.example.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs uploaded book files on the bounded import executor so the upload request returns
+ * a job id straight away. Jobs are kept in memory for import.jobs.retention-minutes
+ * after they finish so the admin page can read the outcome.
+ */
+@Service
+public class ImportJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportJobService.class);
+
+    private final BookImportService bookImportService;
+    private final TaskExecutor importExecutor;
+    private final Duration retention;
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    public ImportJobService(BookImportService bookImportService,
+                            @Qualifier("importExecutor") TaskExecutor importExecutor,
+                            @Value("${import.jobs.retention-minutes:60}") long retentionMinutes) {
+        this.bookImportService = bookImportService;
+        this.importExecutor = importExecutor;
+        this.retention = Duration.ofMinutes(retentionMinutes);
+    }
+
+    /**
+     * Queues the file for import. The upload is copied to a temp file first because the
+     * multipart data is deleted when the request ends.
+     */
+    public ImportJob submit(MultipartFile file, BookImportService.ImportMode mode) throws IOException {
+        String filename = file.getOriginalFilename();
+        if (filename == null) {
+            throw new IllegalArgumentException("Filename is null.");
+        }
+        if (!filename.endsWith(".csv") && !filename.endsWith(".xlsx")) {
+            throw new IllegalArgumentException("Unsupported file format: must be .csv or .xlsx");
+        }
+
+        Path temp = Files.createTempFile("book-import-", filename.endsWith(".csv") ? ".csv" : ".xlsx");
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), filename, mode);
+        try {
+            file.transferTo(temp);
+            jobs.put(job.getId(), job);
+            importExecutor.execute(() -> run(job, temp, filename));
+        } catch (IOException | TaskRejectedException e) {
+            jobs.remove(job.getId());
+            Files.deleteIfExists(temp);
+            if (e instanceof TaskRejectedException) {
+                throw new IllegalStateException("Too many imports are running, please try again later.");
+            }
+            throw e;
+        }
+        return job;
+    }
+
+    public Optional<ImportJob> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    private void run(ImportJob job, Path file, String filename) {
+        job.started();
+        try {
+            job.completed(bookImportService.importBooks(file, filename, job.getMode(), job));
+        } catch (Exception e) {
+            logger.error("Import job {} for {} failed", job.getId(), filename, e);
+            job.failed("Upload failed: " + e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.warn("Could not delete import temp file {}", file, e);
+            }
+        }
+    }
+
+    // Forget finished jobs once nobody is likely to poll for them any more
+    @Scheduled(fixedDelay = 600000)
+    public void removeExpiredJobs() {
+        Instant cutoff = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(cutoff));
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.demo.service;
+
+import com.example.demo.util.ImageResizer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Keeps images as files named by their content hash in image.store.local.dir, served
+ * under image.store.local.base-url by LocalImageStoreConfig. The variants are JPEGs
+ * next to the original, named hash-medium.jpg and hash-thumb.jpg.
+ */
+@Component
+@ConditionalOnProperty(name = "image.store", havingValue = "local")
+public class LocalImageStore implements ImageStore {
+
+    private static final int DEFAULT_MEDIUM_SIZE = 600;
+    private static final int DEFAULT_THUMBNAIL_SIZE = 200;
+    private static final float DEFAULT_JPEG_QUALITY = 0.85f;
+
+    private final Path directory;
+    private final String baseUrl;
+    private final int mediumSize;
+    private final int thumbnailSize;
+    private final float jpegQuality;
+
+    public LocalImageStore(@Value("${image.store.local.dir:uploads/images}") String directory,
+                           @Value("${image.store.local.base-url:http://localhost:8080/images}") String baseUrl,
+                           @Value("${image.variants.medium-size:600}") int mediumSize,
+                           @Value("${image.variants.thumbnail-size:200}") int thumbnailSize,
+                           @Value("${image.upload.jpeg-quality:0.85}") float jpegQuality) {
+        this(Paths.get(directory), baseUrl, mediumSize, thumbnailSize, jpegQuality);
+    }
+
+    public LocalImageStore(Path directory, String baseUrl) {
+        this(directory, baseUrl, DEFAULT_MEDIUM_SIZE, DEFAULT_THUMBNAIL_SIZE, DEFAULT_JPEG_QUALITY);
+    }
+
+    public LocalImageStore(Path directory, String baseUrl, int mediumSize, int thumbnailSize, float jpegQuality) {
+        this.directory = directory.toAbsolutePath();
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.mediumSize = mediumSize;
+        this.thumbnailSize = thumbnailSize;
+        this.jpegQuality = jpegQuality;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public StoredImage store(String contentHash, Path file, String contentType) throws IOException {
+        Files.createDirectories(directory);
+        String filename = contentHash + extension(contentType);
+        Path target = directory.resolve(filename);
+        if (!Files.exists(target)) {
+            Path temp = Files.createTempFile(directory, contentHash, ".tmp");
+            try {
+                Files.copy(file, temp, StandardCopyOption.REPLACE_EXISTING);
+                publish(temp, target);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+        String url = baseUrl + "/" + filename;
+        return new StoredImage(url,
+                variant(file, contentHash + "-medium.jpg", mediumSize, url),
+                variant(file, contentHash + "-thumb.jpg", thumbnailSize, url));
+    }
+
+    @Override
+    public boolean isStoredUrl(String url) {
+        return url.startsWith(baseUrl + "/");
+    }
+
+    // The original's URL when the image is already small enough or cannot be decoded
+    private String variant(Path file, String filename, int size, String originalUrl) throws IOException {
+        Path target = directory.resolve(filename);
+        if (!Files.exists(target)) {
+            Path temp = Files.createTempFile(directory, filename, ".tmp");
+            try {
+                if (!ImageResizer.shrink(() -> Files.newInputStream(file), size, jpegQuality, temp)) {
+                    return originalUrl;
+                }
+                publish(temp, target);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+        return baseUrl + "/" + filename;
+    }
+
+    // Moved into place under its final name so a half written file is never served
+    private static void publish(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Stored concurrently by another task, the content is the same
+        }
+    }
+
+    private static String extension(String contentType) {
+        if (contentType == null) return ".img";
+        switch (contentType.toLowerCase()) {
+            case "image/jpeg":
+            case "image/jpg":
+                return ".jpg";
+            case "image/png":
+                return ".png";
+            case "image/gif":
+                return ".gif";
+            case "image/webp":
+                return ".webp";
+            case "image/tiff":
+                return ".tif";
+            case "application/pdf":
+                return ".pdf";
+            default:
+                return ".img";
+        }
+    }
+}
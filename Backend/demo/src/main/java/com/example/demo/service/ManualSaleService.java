@@ -7,12 +7,14 @@ import com.example.demo.entity.ManualSaleItem;
 import com.example.demo.entity.Product;
 import com.example.demo.repository.ManualSaleRepository;
 import com.example.demo.repository.ProductRepository;
-import jakarta.persistence.Entity;
+import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 @Service
 public class ManualSaleService {
@@ -23,6 +25,12 @@ public class ManualSaleService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private CatalogChangeNotifier catalogChangeNotifier;
+
+    // Stock is taken with a conditional UPDATE so a counter sale cannot oversell while online
+    // checkouts run; if any item is short the whole sale is rolled back
+    @Transactional
     public ManualSale createManualSale(ManualSalesRequest request) {
         List<ManualSaleItem> saleItems = new ArrayList<>();
 
@@ -30,14 +38,26 @@ public class ManualSaleService {
 
         ManualSale sale = new ManualSale();
 
+        // Taken in product id order, the same order as online reservations, so they never deadlock
+        Map<Long, Integer> quantities = new TreeMap<>();
         for (ManualSaleItemRequest itemRequest : request.getItems()) {
-            Product product = productRepository.findById(itemRequest.getProductId())
-                    .orElseThrow(() -> new RuntimeException("Product not found"+itemRequest.getProductId()));
-            if (product.getStock() < itemRequest.getQuantity()) {
+            quantities.merge(itemRequest.getProductId(), itemRequest.getQuantity(), Integer::sum);
+        }
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            if (entry.getValue() <= 0) {
+                throw new RuntimeException("Invalid quantity for product: " + entry.getKey());
+            }
+            if (productRepository.takeStock(entry.getKey(), entry.getValue()) == 0) {
+                Product product = productRepository.findById(entry.getKey())
+                        .orElseThrow(() -> new RuntimeException("Product not found"+entry.getKey()));
                 throw new RuntimeException("Insufficient stock for product: " + product.getName());
             }
-            product.setStock(product.getStock() - itemRequest.getQuantity());
-            productRepository.save(product);
+        }
+        catalogChangeNotifier.productsSaved(productRepository.findAllById(quantities.keySet()));
+
+        for (ManualSaleItemRequest itemRequest : request.getItems()) {
+            Product product = productRepository.findById(itemRequest.getProductId())
+                    .orElseThrow(() -> new RuntimeException("Product not found"+itemRequest.getProductId()));
             ManualSaleItem saleItem = new ManualSaleItem();
             saleItem.setProduct(product);
             saleItem.setQuantity(itemRequest.getQuantity());
@@ -1,60 +1,205 @@
 package com.example.demo.service;
 
 import com.example.demo.entity.BookItem;
-import net.sourceforge.tess4j.ITesseract;
-import net.sourceforge.tess4j.Tesseract;
-import net.sourceforge.tess4j.TesseractException;
+import com.example.demo.util.DocumentPages;
+import com.example.demo.util.ImageResizer;
+import com.example.demo.util.OcrPreprocessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
-import java.io.FileNotFoundException;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 @Service
 public class OCRService {
 
-    private String extractTessdataToTemp() throws IOException {
-        Path tempDir = Files.createTempDirectory("tessdata");
+    private static final Logger logger = LoggerFactory.getLogger(OCRService.class);
 
-        for (String lang : new String[]{"eng", "sin"}) {
-            String resourceName = "/tessdata/" + lang + ".traineddata";
-            try (InputStream in = getClass().getResourceAsStream(resourceName)) {
-                if (in == null) throw new FileNotFoundException(resourceName);
-                Files.copy(in, tempDir.resolve(lang + ".traineddata"), StandardCopyOption.REPLACE_EXISTING);
-            }
+    // The text of one page of a document and how long it took
+    public static final class PageText {
+        private final int page;
+        private final String text;
+        private final long renderMillis;
+        private final long ocrMillis;
+
+        PageText(int page, String text, long renderMillis, long ocrMillis) {
+            this.page = page;
+            this.text = text;
+            this.renderMillis = renderMillis;
+            this.ocrMillis = ocrMillis;
+        }
+
+        // Numbered from 1
+        public int getPage() {
+            return page;
+        }
+
+        public String getText() {
+            return text;
         }
 
-        return tempDir.toAbsolutePath().toString();
+        public long getRenderMillis() {
+            return renderMillis;
+        }
+
+        public long getOcrMillis() {
+            return ocrMillis;
+        }
     }
 
+    private final OcrEnginePool ocrEnginePool;
+    private final Executor pageExecutor;
+    private final boolean preprocess;
+    private final int maxDimension;
+    private final int maxPages;
 
+    public OCRService(OcrEnginePool ocrEnginePool,
+                      @Qualifier("ocrPageExecutor") Executor pageExecutor,
+                      @Value("${ocr.preprocess.enabled:true}") boolean preprocess,
+                      @Value("${ocr.preprocess.max-dimension:2500}") int maxDimension,
+                      @Value("${ocr.max-pages:30}") int maxPages) {
+        this.ocrEnginePool = ocrEnginePool;
+        this.pageExecutor = pageExecutor;
+        this.preprocess = preprocess;
+        this.maxDimension = maxDimension;
+        this.maxPages = maxPages;
+    }
+
+    // Decodes the upload in memory and reads it on a pooled engine, no temp files involved
     public String extractText(MultipartFile image) {
-        ITesseract tesseract = new Tesseract();
         try {
-//            String tessDataPath = Paths.get(System.getProperty("user.dir"), "/tessdata").normalize().toAbsolutePath().toString();
-            String tessDataPath = extractTessdataToTemp();
-            tesseract.setDatapath(tessDataPath);
-            tesseract.setLanguage("eng+sin");
-            File tempFile = File.createTempFile("ocr-upload-",image.getOriginalFilename());
-            image.transferTo(tempFile);
-            String text = tesseract.doOCR(tempFile);
-            tempFile.delete();
-            return text;
-        }catch (IOException | TesseractException e) {
+            return recognize(image::getInputStream);
+        } catch (IOException | IllegalArgumentException | IllegalStateException e) {
             e.printStackTrace();
             return "Error: " + e.getMessage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "Error: Interrupted";
         }
+    }
+
+    /**
+     * The text of the image. Throws IllegalArgumentException when it is not an image
+     * ImageIO can decode and IllegalStateException when no OCR engine is available.
+     */
+    public String recognize(ImageResizer.Source source) throws IOException, InterruptedException {
+        return ocrEnginePool.recognize(prepare(source));
+    }
+
+    /**
+     * Decodes the photo upright with its longest side at most ocr.preprocess.max-dimension,
+     * about 300 DPI for a full A4 page, then straightens and binarizes it. Phone photos
+     * are often 12 MP; Tesseract reads them faster and no worse at this size.
+     */
+    public BufferedImage prepare(ImageResizer.Source source) throws IOException {
+        BufferedImage decoded = ImageResizer.read(source, preprocess ? maxDimension : Integer.MAX_VALUE);
+        if (decoded == null) {
+            throw new IllegalArgumentException("Unsupported image format");
+        }
+        return preprocess ? OcrPreprocessor.prepare(decoded) : decoded;
+    }
 
+    /**
+     * Reads every page of a PDF or TIFF, in parallel on ocrPageExecutor, and returns the
+     * texts in page order. Each task renders its page only when it starts, so no more
+     * pages are in memory than there are workers. The time of each page and the wall
+     * clock time of the whole document are logged.
+     */
+    public List<PageText> recognizePages(DocumentPages pages) throws InterruptedException {
+        int count = pages.count();
+        if (count == 0) {
+            throw new IllegalArgumentException("The document has no pages");
+        }
+        if (count > maxPages) {
+            throw new IllegalArgumentException("The document has " + count + " pages, at most " + maxPages + " are read");
+        }
+
+        long start = System.nanoTime();
+        // Set by the first page that fails, so pages that have not started yet are skipped
+        AtomicBoolean failed = new AtomicBoolean();
+        List<CompletableFuture<PageText>> tasks = new ArrayList<>(count);
+        for (int page = 0; page < count; page++) {
+            int index = page;
+            tasks.add(CompletableFuture.supplyAsync(() -> {
+                if (failed.get()) throw new CancellationException();
+                try {
+                    return recognizePage(pages, index);
+                } catch (RuntimeException e) {
+                    failed.set(true);
+                    throw e;
+                }
+            }, pageExecutor));
+        }
+
+        List<PageText> result = new ArrayList<>(count);
+        try {
+            for (CompletableFuture<PageText> task : tasks) {
+                result.add(task.join());
+            }
+        } catch (CompletionException e) {
+            failed.set(true);
+            // The caller closes the document once this throws, so the pages still rendering must finish first
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).handle((ignored, error) -> null).join();
+            Throwable cause = firstFailure(tasks, e);
+            if (cause instanceof InterruptedException) throw (InterruptedException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw e;
+        }
+
+        long wallMillis = (System.nanoTime() - start) / 1_000_000;
+        long workMillis = 0;
+        StringBuilder timings = new StringBuilder();
+        for (PageText page : result) {
+            workMillis += page.getRenderMillis() + page.getOcrMillis();
+            timings.append(String.format(" [page %d: render %d ms, ocr %d ms]",
+                    page.getPage(), page.getRenderMillis(), page.getOcrMillis()));
+        }
+        logger.info("Read {} pages in {} ms wall clock, {} ms of page work:{}", count, wallMillis, workMillis, timings);
+        return result;
+    }
+
+    // The error of the page that failed, rather than of a page skipped because of it
+    private static Throwable firstFailure(List<CompletableFuture<PageText>> tasks, CompletionException joined) {
+        for (CompletableFuture<PageText> task : tasks) {
+            try {
+                task.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                if (!(cause instanceof CancellationException)) return cause;
+            }
+        }
+        return joined.getCause() != null ? joined.getCause() : joined;
+    }
+
+    private PageText recognizePage(DocumentPages pages, int page) {
+        try {
+            long start = System.nanoTime();
+            BufferedImage image = pages.render(page, preprocess ? maxDimension : Integer.MAX_VALUE);
+            if (preprocess) image = OcrPreprocessor.prepare(image);
+            long rendered = System.nanoTime();
+            String text = ocrEnginePool.recognize(image);
+            long read = System.nanoTime();
+            return new PageText(page + 1, text, (rendered - start) / 1_000_000, (read - rendered) / 1_000_000);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
     }
 
     public List<BookItem> parseBookItems(String rawText) {
@@ -0,0 +1,215 @@
+package com.example.demo.service;
+
+import com.sun.jna.Pointer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import net.sourceforge.tess4j.ITessAPI;
+import net.sourceforge.tess4j.TessAPI1;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * A bounded pool of initialized Tesseract engines. Loading the traineddata is the slow
+ * part of OCR, so each engine is initialized once and then reused for one image at a
+ * time, instead of a new Tesseract per upload. The bundled traineddata is extracted
+ * to a temp directory once at startup and removed on shutdown. Engines are created on
+ * first use, so the application still starts where the native library is missing.
+ */
+@Component
+public class OcrEnginePool {
+
+    private static final Logger logger = LoggerFactory.getLogger(OcrEnginePool.class);
+
+    private final String configuredDataPath;
+    private final List<String> configuredLanguages;
+    private final long acquireTimeoutMillis;
+    private final BlockingQueue<Engine> idle;
+    // Engines that may still be created; taken before and given back after an engine's life
+    private final Semaphore creatable;
+
+    private Path extractedDataPath;
+    private String dataPath;
+    private String languages;
+    private volatile boolean closed;
+
+    public OcrEnginePool(@Value("${ocr.tessdata-path:}") String configuredDataPath,
+                         @Value("${ocr.languages:eng+sin}") String languages,
+                         @Value("${ocr.pool-size:0}") int poolSize,
+                         @Value("${ocr.acquire-timeout-seconds:30}") long acquireTimeoutSeconds) {
+        this.configuredDataPath = configuredDataPath;
+        this.configuredLanguages = List.of(languages.split("\\+"));
+        this.acquireTimeoutMillis = TimeUnit.SECONDS.toMillis(acquireTimeoutSeconds);
+        // 0 = one engine per core
+        int size = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        this.idle = new ArrayBlockingQueue<>(size);
+        this.creatable = new Semaphore(size);
+    }
+
+    // Uses ocr.tessdata-path when set, otherwise the traineddata bundled under /tessdata
+    @PostConstruct
+    public void extractTessdata() throws IOException {
+        if (configuredDataPath != null && !configuredDataPath.isBlank()) {
+            dataPath = Paths.get(configuredDataPath).toAbsolutePath().toString();
+            languages = String.join("+", configuredLanguages);
+            return;
+        }
+        extractedDataPath = Files.createTempDirectory("tessdata");
+        List<String> available = new ArrayList<>();
+        for (String language : configuredLanguages) {
+            String resourceName = "/tessdata/" + language + ".traineddata";
+            try (InputStream in = getClass().getResourceAsStream(resourceName)) {
+                if (in == null) {
+                    logger.warn("No bundled traineddata for OCR language {}, it is not used", language);
+                    continue;
+                }
+                Files.copy(in, extractedDataPath.resolve(language + ".traineddata"));
+                available.add(language);
+            }
+        }
+        dataPath = extractedDataPath.toString();
+        languages = String.join("+", available);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        closed = true;
+        Engine engine;
+        while ((engine = idle.poll()) != null) {
+            engine.end();
+        }
+        if (extractedDataPath != null) {
+            try (Stream<Path> files = Files.walk(extractedDataPath)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Recognizes the text of an image on the next free engine, waiting up to
+     * ocr.acquire-timeout-seconds for one. Throws IllegalStateException when none became
+     * free or Tesseract cannot be initialized.
+     */
+    public String recognize(BufferedImage image) throws InterruptedException {
+        Engine engine = acquire();
+        boolean healthy = false;
+        try {
+            String text = engine.recognize(image);
+            healthy = true;
+            return text;
+        } finally {
+            if (healthy && !closed) {
+                idle.offer(engine);
+                // close() may have drained the queue between the check and the offer
+                if (closed && idle.remove(engine)) engine.end();
+            } else {
+                // An engine that failed halfway is not trusted with the next image
+                engine.end();
+                creatable.release();
+            }
+        }
+    }
+
+    private Engine acquire() throws InterruptedException {
+        Engine engine = idle.poll();
+        if (engine != null) return engine;
+        if (creatable.tryAcquire()) {
+            try {
+                return createEngine();
+            } catch (RuntimeException | LinkageError e) {
+                creatable.release();
+                throw new IllegalStateException("Could not initialize Tesseract: " + e.getMessage(), e);
+            }
+        }
+        engine = idle.poll(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        if (engine == null) throw new IllegalStateException("All OCR engines are busy, please try again later");
+        return engine;
+    }
+
+    // Replaced in tests, which run the pool without the native library
+    Engine createEngine() {
+        return new TesseractEngine(dataPath, languages);
+    }
+
+    // Only ever used by one thread at a time
+    interface Engine {
+        String recognize(BufferedImage image);
+
+        void end();
+    }
+
+    // One native TessBaseAPI handle
+    private static final class TesseractEngine implements Engine {
+        private final ITessAPI.TessBaseAPI handle;
+
+        TesseractEngine(String dataPath, String languages) {
+            if (languages.isEmpty()) throw new IllegalStateException("No traineddata for any OCR language");
+            handle = TessAPI1.TessBaseAPICreate();
+            if (TessAPI1.TessBaseAPIInit3(handle, dataPath, languages) != 0) {
+                TessAPI1.TessBaseAPIDelete(handle);
+                throw new IllegalStateException("Tesseract could not load " + languages + " from " + dataPath);
+            }
+        }
+
+        // The image is handed to Tesseract as 8 bit grayscale straight from memory
+        @Override
+        public String recognize(BufferedImage image) {
+            BufferedImage gray = grayscale(image);
+            byte[] pixels = ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(pixels.length);
+            buffer.put(pixels).flip();
+            TessAPI1.TessBaseAPISetImage(handle, buffer, gray.getWidth(), gray.getHeight(), 1, gray.getWidth());
+            Pointer text = TessAPI1.TessBaseAPIGetUTF8Text(handle);
+            try {
+                return text != null ? text.getString(0, StandardCharsets.UTF_8.name()) : "";
+            } finally {
+                if (text != null) TessAPI1.TessDeleteText(text);
+                TessAPI1.TessBaseAPIClear(handle);
+            }
+        }
+
+        @Override
+        public void end() {
+            TessAPI1.TessBaseAPIEnd(handle);
+            TessAPI1.TessBaseAPIDelete(handle);
+        }
+
+        private static BufferedImage grayscale(BufferedImage image) {
+            if (image.getType() == BufferedImage.TYPE_BYTE_GRAY && image.getRaster().getParent() == null) return image;
+            BufferedImage gray = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+            Graphics2D g = gray.createGraphics();
+            try {
+                // Transparent areas become white paper instead of black
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, gray.getWidth(), gray.getHeight());
+                g.drawImage(image, 0, 0, null);
+            } finally {
+                g.dispose();
+            }
+            return gray;
+        }
+    }
+}
@@ -1,21 +1,132 @@
 package com.example.demo.service;
 
 import com.example.demo.entity.Order;
+import com.example.demo.entity.OrderProduct;
+import com.example.demo.entity.Product;
+import com.example.demo.entity.User;
 import com.example.demo.repository.OrderRepository;
+import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class OrderService {
 
+    // A checkout retried with the same order id replaces its pending order; paid orders are never touched
+    private static final String DELETE_PENDING_LINES_SQL =
+            "DELETE FROM order_products WHERE order_id = ? AND order_id IN " +
+            "(SELECT order_id FROM orders WHERE order_id = ? AND status = 'Pending')";
+    private static final String DELETE_PENDING_ORDER_SQL =
+            "DELETE FROM orders WHERE order_id = ? AND status = 'Pending'";
+    private static final String INSERT_ORDER_SQL =
+            "INSERT INTO orders (order_id, amount, status, created_at, user_id) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_LINE_SQL =
+            "INSERT INTO order_products (order_id, product_id, quantity, price) VALUES (?, ?, ?, ?)";
+
+    // One line of a checkout: a product and how many of it
+    public static final class OrderLine {
+        private final Long productId;
+        private final int quantity;
+
+        public OrderLine(Long productId, int quantity) {
+            this.productId = productId;
+            this.quantity = quantity;
+        }
+
+        public Long getProductId() {
+            return productId;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+    }
+
     @Autowired
     private OrderRepository orderRepository;
 
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Prices the lines in memory, from one batched product lookup, reserves their stock
+     * and stores the order as Pending. The order row and all its lines are written with
+     * one JDBC batch instead of a Hibernate insert per line, so a 30 book booklist takes
+     * as many round trips as a single book. The reservation and the order are one
+     * transaction: if either fails, neither is kept.
+     */
+    @Transactional
+    public Order createPendingOrder(String orderId, User user, List<OrderLine> lines,
+                                    double discountPercentage, double shippingCost) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (OrderLine line : lines) {
+            if (line.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Invalid quantity for product: " + line.getProductId());
+            }
+            quantities.merge(line.getProductId(), line.getQuantity(), Integer::sum);
+        }
+        Map<Long, Product> products = productCache.findAllById(quantities.keySet());
+
+        Order order = new Order(orderId, 0, "Pending", user);
+        double totalAmount = 0;
+        for (OrderLine line : lines) {
+            Product product = products.get(line.getProductId());
+            if (product == null) {
+                throw new IllegalArgumentException("Product not found: " + line.getProductId());
+            }
+            order.addProduct(product, line.getQuantity(), product.getPrice());
+            totalAmount += product.getPrice() * line.getQuantity();
+        }
+        double discount = totalAmount * (discountPercentage / 100.0);
+        order.setAmount(totalAmount + shippingCost - discount);
+
+        stockReservationService.reserve(orderId, quantities);
+        insert(order);
+        return order;
+    }
+
+    private void insert(Order order) {
+        jdbcTemplate.update(DELETE_PENDING_LINES_SQL, order.getOrderId(), order.getOrderId());
+        jdbcTemplate.update(DELETE_PENDING_ORDER_SQL, order.getOrderId());
+        jdbcTemplate.update(INSERT_ORDER_SQL, order.getOrderId(), order.getAmount(), order.getStatus(),
+                Timestamp.valueOf(order.getCreatedAt()), order.getUser().getId());
+
+        List<OrderProduct> lines = order.getOrderProducts();
+        jdbcTemplate.batchUpdate(INSERT_LINE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                OrderProduct line = lines.get(i);
+                ps.setString(1, order.getOrderId());
+                ps.setLong(2, line.getProduct().getId());
+                ps.setInt(3, line.getQuantity());
+                ps.setDouble(4, line.getPrice());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return lines.size();
+            }
+        });
+    }
+
     // Get all orders (for admin dashboard)
     public List<Order> getAllOrders() {
         return orderRepository.findAll();
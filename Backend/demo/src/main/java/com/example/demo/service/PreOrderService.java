@@ -37,6 +37,12 @@ public class PreOrderService {
     
     @Autowired
     private EmailService emailService;
+
+    @Autowired
+    private CatalogChangeNotifier catalogChangeNotifier;
+
+    @Autowired
+    private ProductCache productCache;
     
     /**
      * Create a new pre-order
@@ -67,9 +73,8 @@ public class PreOrderService {
             preOrder.setQuantity(quantity);
             
             // Update product's pre-ordered quantity
-            product.decrementPreOrderedQuantity(oldQuantity);
-            product.incrementPreOrderedQuantity(quantity);
-            productRepository.save(product);
+            productRepository.changePreOrderedQuantity(productId, quantity - oldQuantity);
+            catalogChangeNotifier.productSaved(productRepository.findById(productId).orElseThrow());
             
             // Save pre-order
             preOrderRepository.save(preOrder);
@@ -84,8 +89,8 @@ public class PreOrderService {
         PreOrder preOrder = new PreOrder(user, product, quantity);
         
         // Update product's pre-ordered quantity
-        product.incrementPreOrderedQuantity(quantity);
-        productRepository.save(product);
+        productRepository.changePreOrderedQuantity(productId, quantity);
+        catalogChangeNotifier.productSaved(productRepository.findById(productId).orElseThrow());
         
         // Save pre-order
         preOrderRepository.save(preOrder);
@@ -117,7 +122,7 @@ public boolean hasUserPreOrderedProduct(String email, Long productId) {
     User user = userRepository.findByEmail(email)
             .orElseThrow(() -> new RuntimeException("User not found"));
     
-    Product product = productRepository.findById(productId)
+    Product product = productCache.findById(productId)
             .orElseThrow(() -> new RuntimeException("Product not found"));
     
     Optional<PreOrder> preOrder = preOrderRepository.findByUserAndProductAndStatus(
@@ -150,9 +155,9 @@ public void cancelPreOrder(Long preOrderId, String email) {
     }
     
     // Update product's pre-ordered quantity
-    Product product = preOrder.getProduct();
-    product.decrementPreOrderedQuantity(preOrder.getQuantity());
-    productRepository.save(product);
+    Long productId = preOrder.getProduct().getId();
+    productRepository.changePreOrderedQuantity(productId, -preOrder.getQuantity());
+    catalogChangeNotifier.productSaved(productRepository.findById(productId).orElseThrow());
     
     // Update pre-order status
     preOrder.setStatus(PreOrder.PreOrderStatus.CANCELLED);
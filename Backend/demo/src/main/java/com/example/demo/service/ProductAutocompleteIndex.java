@@ -0,0 +1,385 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.AutocompleteSuggestion;
+import com.example.demo.entity.Product;
+import com.example.demo.util.TextTokenizer;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Prefix trie over product titles, authors and barcodes for the search box.
+ * Titles and authors are also reachable from every word they contain, so "potter"
+ * suggests "Harry Potter". Each node caches the best suggestions of its subtree,
+ * which keeps a lookup proportional to the length of the query rather than the
+ * size of the catalog. Typos are tolerated by walking the trie with a bounded
+ * Levenshtein distance when the exact prefix does not give enough suggestions;
+ * the first character has to match exactly.
+ */
+@Component
+public class ProductAutocompleteIndex implements CatalogChangeListener {
+
+    public enum SuggestionType {
+        TITLE(3), AUTHOR(2), BARCODE(1);
+
+        private final int weight;
+
+        SuggestionType(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    public static final int MAX_SUGGESTIONS = 20;
+    private static final int MAX_KEY_LENGTH = 48;
+    // Upper bound on trie nodes a single typo-tolerant lookup may visit
+    private static final int MAX_FUZZY_NODES = 4000;
+
+    private static final Comparator<Entry> BY_SCORE = Comparator.comparingInt(Entry::score).reversed()
+            .thenComparing(entry -> entry.text, String.CASE_INSENSITIVE_ORDER);
+
+    private static final class Entry {
+        final SuggestionType type;
+        final String text;
+        final String normalized;
+        final List<String> paths;
+        final TreeSet<Long> productIds = new TreeSet<>();
+
+        Entry(SuggestionType type, String text, String normalized, List<String> paths) {
+            this.type = type;
+            this.text = text;
+            this.normalized = normalized;
+            this.paths = paths;
+        }
+
+        // Titles beat authors beat barcodes, then the number of products sharing the text
+        int score() {
+            return type.weight * 1000 + Math.min(productIds.size(), 999);
+        }
+    }
+
+    private static final class Node {
+        char[] labels = new char[0];
+        Node[] children = new Node[0];
+        List<Entry> entries;
+        // Best entries of this subtree, null when a change below has made it stale
+        volatile Entry[] top;
+
+        Node child(char c) {
+            int index = Arrays.binarySearch(labels, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node addChild(char c) {
+            int index = Arrays.binarySearch(labels, c);
+            if (index >= 0) return children[index];
+            int insertAt = -index - 1;
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            newLabels[insertAt] = c;
+            newChildren[insertAt] = new Node();
+            System.arraycopy(labels, insertAt, newLabels, insertAt + 1, labels.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            labels = newLabels;
+            children = newChildren;
+            return newChildren[insertAt];
+        }
+
+        void removeChild(char c) {
+            int index = Arrays.binarySearch(labels, c);
+            if (index < 0) return;
+            char[] newLabels = new char[labels.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(labels, 0, newLabels, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(labels, index + 1, newLabels, index, labels.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            labels = newLabels;
+            children = newChildren;
+        }
+
+        boolean isEmpty() {
+            return labels.length == 0 && (entries == null || entries.isEmpty());
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Node root = new Node();
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<Long, List<Entry>> productEntries = new HashMap<>();
+    private volatile boolean ready = false;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public List<AutocompleteSuggestion> suggest(String query, int limit) {
+        String normalized = truncate(TextTokenizer.normalize(query));
+        if (normalized.isEmpty() || limit <= 0) return new ArrayList<>();
+        int maxEdits = maxEdits(normalized);
+
+        lock.readLock().lock();
+        try {
+            // Entry -> smallest edit distance it was reached with
+            Map<Entry, Integer> matches = new HashMap<>();
+            Node exact = find(normalized);
+            if (exact != null) {
+                for (Entry entry : top(exact)) {
+                    matches.put(entry, 0);
+                }
+            }
+            // Typos in the first character are rare, and requiring it to match
+            // keeps the walk out of most of the trie
+            Node start = root.child(normalized.charAt(0));
+            if (matches.size() < limit && maxEdits > 0 && start != null) {
+                String rest = normalized.substring(1);
+                int[] firstRow = new int[rest.length() + 1];
+                for (int i = 0; i < firstRow.length; i++) firstRow[i] = i;
+                fuzzyWalk(start, rest, firstRow, maxEdits, matches, new int[]{MAX_FUZZY_NODES});
+            }
+
+            List<Map.Entry<Entry, Integer>> ranked = new ArrayList<>(matches.entrySet());
+            ranked.sort(Comparator.<Map.Entry<Entry, Integer>>comparingInt(Map.Entry::getValue)
+                    .thenComparing((a, b) -> Boolean.compare(startsWith(b.getKey(), normalized), startsWith(a.getKey(), normalized)))
+                    .thenComparing(Map.Entry::getKey, BY_SCORE));
+
+            List<AutocompleteSuggestion> suggestions = new ArrayList<>();
+            for (Map.Entry<Entry, Integer> match : ranked) {
+                if (suggestions.size() == limit) break;
+                Entry entry = match.getKey();
+                Long productId = entry.type == SuggestionType.AUTHOR ? null : entry.productIds.first();
+                suggestions.add(new AutocompleteSuggestion(entry.text, entry.type.name(), productId, match.getValue()));
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean startsWith(Entry entry, String query) {
+        return entry.normalized.startsWith(query);
+    }
+
+    private static int maxEdits(String query) {
+        if (query.length() <= 3) return 0;
+        if (query.length() <= 8) return 1;
+        return 2;
+    }
+
+    private static String truncate(String key) {
+        return key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key;
+    }
+
+    private Node find(String key) {
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        return node;
+    }
+
+    /*
+     * row[j] is the edit distance between the first j characters of the query and the
+     * path to this node. Once row[n] is within the budget the whole subtree matches the
+     * query as a prefix; we only keep descending while a deeper node could still do better.
+     */
+    private void fuzzyWalk(Node node, String query, int[] row, int maxEdits, Map<Entry, Integer> matches, int[] budget) {
+        if (--budget[0] < 0) return;
+        int n = query.length();
+        int distance = row[n];
+        if (distance <= maxEdits) {
+            for (Entry entry : top(node)) {
+                matches.merge(entry, distance, Math::min);
+            }
+        }
+
+        int rowMin = Integer.MAX_VALUE;
+        int expected = 0;
+        for (int j = 0; j <= n; j++) {
+            if (row[j] < rowMin) {
+                rowMin = row[j];
+                expected = j;
+            }
+        }
+        if (rowMin >= Math.min(distance, maxEdits + 1)) return;
+
+        // Follow the branch that continues the query without an edit first, so the
+        // node budget is spent on the most promising part of the trie
+        int preferred = expected < n ? Arrays.binarySearch(node.labels, query.charAt(expected)) : -1;
+        for (int k = -1; k < node.labels.length; k++) {
+            int i = k < 0 ? preferred : k;
+            if (i < 0 || (k >= 0 && i == preferred)) continue;
+            char c = node.labels[i];
+            int[] next = new int[n + 1];
+            next[0] = row[0] + 1;
+            for (int j = 1; j <= n; j++) {
+                int substitution = row[j - 1] + (query.charAt(j - 1) == c ? 0 : 1);
+                next[j] = Math.min(Math.min(next[j - 1] + 1, row[j] + 1), substitution);
+            }
+            fuzzyWalk(node.children[i], query, next, maxEdits, matches, budget);
+        }
+    }
+
+    // Safe under the read lock: concurrent readers compute the same value
+    private Entry[] top(Node node) {
+        Entry[] cached = node.top;
+        if (cached != null) return cached;
+
+        Set<Entry> candidates = new HashSet<>();
+        if (node.entries != null) candidates.addAll(node.entries);
+        for (Node child : node.children) {
+            candidates.addAll(Arrays.asList(top(child)));
+        }
+        List<Entry> sorted = new ArrayList<>(candidates);
+        sorted.sort(BY_SCORE);
+        Entry[] best = sorted.subList(0, Math.min(MAX_SUGGESTIONS, sorted.size())).toArray(new Entry[0]);
+        node.top = best;
+        return best;
+    }
+
+    @Override
+    public void onCatalogLoaded(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            root = new Node();
+            entries.clear();
+            productEntries.clear();
+            for (Product product : products) {
+                addProduct(product);
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onProductSaved(Product product) {
+        onProductsSaved(List.of(product));
+    }
+
+    @Override
+    public void onProductsSaved(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            for (Product product : products) {
+                if (product == null || product.getId() == null) continue;
+                removeProduct(product.getId());
+                addProduct(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onProductDeleted(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeProduct(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addProduct(Product product) {
+        List<Entry> added = new ArrayList<>();
+        addText(product.getId(), SuggestionType.TITLE, product.getName(), true, added);
+        addText(product.getId(), SuggestionType.AUTHOR, product.getAuthor(), true, added);
+        addText(product.getId(), SuggestionType.BARCODE, product.getBarcode(), false, added);
+        if (!added.isEmpty()) {
+            productEntries.put(product.getId(), added);
+        }
+    }
+
+    private void addText(Long productId, SuggestionType type, String text, boolean everyWord, List<Entry> added) {
+        if (text == null || text.isBlank()) return;
+        String normalized = TextTokenizer.normalize(text);
+        Entry entry = entries.computeIfAbsent(type + ":" + normalized, key -> {
+            Entry created = new Entry(type, text.trim(), normalized, paths(normalized, everyWord));
+            for (String path : created.paths) {
+                insert(path, created);
+            }
+            return created;
+        });
+        entry.productIds.add(productId);
+        added.add(entry);
+        invalidate(entry);
+    }
+
+    private void removeProduct(Long productId) {
+        List<Entry> removed = productEntries.remove(productId);
+        if (removed == null) return;
+        for (Entry entry : removed) {
+            entry.productIds.remove(productId);
+            if (entry.productIds.isEmpty()) {
+                entries.remove(entry.type + ":" + entry.normalized);
+                for (String path : entry.paths) {
+                    delete(path, entry);
+                }
+            } else {
+                invalidate(entry);
+            }
+        }
+    }
+
+    // The full text plus, for titles and authors, the text starting at each later word
+    private static List<String> paths(String normalized, boolean everyWord) {
+        List<String> paths = new ArrayList<>();
+        paths.add(truncate(normalized));
+        if (everyWord) {
+            for (int i = 1; i < normalized.length(); i++) {
+                if (TextTokenizer.isTokenChar(normalized.charAt(i)) && !TextTokenizer.isTokenChar(normalized.charAt(i - 1))) {
+                    String path = truncate(normalized.substring(i));
+                    if (!paths.contains(path)) paths.add(path);
+                }
+            }
+        }
+        return paths;
+    }
+
+    private void insert(String path, Entry entry) {
+        Node node = root;
+        node.top = null;
+        for (int i = 0; i < path.length(); i++) {
+            node = node.addChild(path.charAt(i));
+            node.top = null;
+        }
+        if (node.entries == null) node.entries = new ArrayList<>(1);
+        node.entries.add(entry);
+    }
+
+    private void delete(String path, Entry entry) {
+        Node[] trail = new Node[path.length() + 1];
+        trail[0] = root;
+        for (int i = 0; i < path.length(); i++) {
+            Node next = trail[i].child(path.charAt(i));
+            if (next == null) return;
+            trail[i + 1] = next;
+        }
+        Node last = trail[path.length()];
+        if (last.entries != null) last.entries.remove(entry);
+
+        for (int i = path.length(); i >= 0; i--) {
+            trail[i].top = null;
+            if (i > 0 && trail[i].isEmpty()) {
+                trail[i - 1].removeChild(path.charAt(i - 1));
+            }
+        }
+    }
+
+    // Scores changed, so every node above the entry has a stale top list
+    private void invalidate(Entry entry) {
+        for (String path : entry.paths) {
+            Node node = root;
+            node.top = null;
+            for (int i = 0; i < path.length() && node != null; i++) {
+                node = node.child(path.charAt(i));
+                if (node != null) node.top = null;
+            }
+        }
+    }
+}
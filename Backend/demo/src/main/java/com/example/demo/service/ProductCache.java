@@ -0,0 +1,183 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Product;
+import com.example.demo.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache in front of productRepository.findById for the hot product
+ * lookups (product page, cart, wishlist, pre-order and payment). Entries are evicted
+ * least recently used once max-size is reached and expire after ttl-seconds. Every
+ * product write goes through CatalogChangeNotifier, which drops the cached copy once
+ * the write has committed; dropped any earlier, a lookup in between would read the
+ * old row again and keep it until it expires.
+ *
+ * Cached products are shared between requests, so callers must not modify them;
+ * code that changes a product should load it from the repository instead.
+ */
+@Component
+public class ProductCache implements CatalogChangeListener {
+
+    private static final class CachedProduct {
+        final Product product;
+        final long expiresAt;
+
+        CachedProduct(Product product, long expiresAt) {
+            this.product = product;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final ProductRepository productRepository;
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LinkedHashMap<Long, CachedProduct> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    // Bumped on every invalidation, after the write commits, so a lookup that read the row before the commit does not cache it
+    private final AtomicLong generation = new AtomicLong();
+
+    public ProductCache(ProductRepository productRepository,
+                        @Value("${product.cache.max-size:1000}") int maxSize,
+                        @Value("${product.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.productRepository = productRepository;
+        this.maxSize = Math.max(maxSize, 1);
+        this.ttlMillis = ttlSeconds * 1000;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedProduct> eldest) {
+                if (size() > ProductCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public Optional<Product> findById(Long id) {
+        if (id == null) return Optional.empty();
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            CachedProduct cached = entries.get(id);
+            if (cached != null) {
+                if (cached.expiresAt > now) {
+                    hits.incrementAndGet();
+                    return Optional.of(cached.product);
+                }
+                entries.remove(id);
+                evictions.incrementAndGet();
+            }
+        }
+
+        misses.incrementAndGet();
+        long loadedAt = generation.get();
+        Optional<Product> product = productRepository.findById(id);
+        product.ifPresent(p -> put(p, loadedAt));
+        return product;
+    }
+
+    /**
+     * The cached products among ids, with all the others loaded in one
+     * productRepository.findAllById, e.g. for every line of an order. Ids of products that
+     * do not exist are missing from the result.
+     */
+    public Map<Long, Product> findAllById(Collection<Long> ids) {
+        Map<Long, Product> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            for (Long id : new LinkedHashSet<>(ids)) {
+                if (id == null) continue;
+                CachedProduct cached = entries.get(id);
+                if (cached != null && cached.expiresAt > now) {
+                    hits.incrementAndGet();
+                    found.put(id, cached.product);
+                    continue;
+                }
+                if (cached != null) {
+                    entries.remove(id);
+                    evictions.incrementAndGet();
+                }
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) return found;
+
+        misses.addAndGet(missing.size());
+        long loadedAt = generation.get();
+        for (Product product : productRepository.findAllById(missing)) {
+            put(product, loadedAt);
+            found.put(product.getId(), product);
+        }
+        return found;
+    }
+
+    private void put(Product product, long loadedAt) {
+        synchronized (entries) {
+            if (generation.get() != loadedAt) return;
+            entries.put(product.getId(), new CachedProduct(product, System.currentTimeMillis() + ttlMillis));
+        }
+    }
+
+    public void invalidate(Long id) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.remove(id);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (entries) {
+            stats.put("size", entries.size());
+        }
+        stats.put("maxSize", maxSize);
+        stats.put("ttlSeconds", ttlMillis / 1000);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("evictions", evictions.get());
+        stats.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        return stats;
+    }
+
+    @Override
+    public void onCatalogLoaded(Collection<Product> products) {
+        invalidateAll();
+    }
+
+    @Override
+    public void onProductSaved(Product product) {
+        if (product != null) invalidate(product.getId());
+    }
+
+    @Override
+    public void onProductsSaved(Collection<Product> products) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            for (Product product : products) {
+                if (product != null) entries.remove(product.getId());
+            }
+        }
+    }
+
+    @Override
+    public void onProductDeleted(Long productId) {
+        invalidate(productId);
+    }
+}
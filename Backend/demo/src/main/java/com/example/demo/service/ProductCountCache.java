@@ -0,0 +1,75 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ProductFilterRequest;
+import com.example.demo.entity.Product;
+import com.example.demo.repository.ProductSpecifications;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the COUNT(*) of each product filter so keyset pages that ask for a total
+ * do not recount the table on every request. Any catalog change clears it.
+ */
+@Component
+public class ProductCountCache implements CatalogChangeListener {
+
+    private static final int MAX_ENTRIES = 500;
+
+    private final Map<String, Long> counts = new ConcurrentHashMap<>();
+    // Bumped on every change, like ProductCache's, so a count taken before a write committed is not kept
+    private final AtomicLong generation = new AtomicLong();
+
+    public long count(ProductFilterRequest filter, Supplier<Long> counter) {
+        String key = key(filter);
+        Long cached = counts.get(key);
+        if (cached != null) return cached;
+
+        long countedAt = generation.get();
+        long count = counter.get();
+        synchronized (counts) {
+            if (generation.get() != countedAt) return count;
+            if (counts.size() >= MAX_ENTRIES) counts.clear();
+            counts.put(key, count);
+        }
+        return count;
+    }
+
+    public void invalidate() {
+        synchronized (counts) {
+            generation.incrementAndGet();
+            counts.clear();
+        }
+    }
+
+    private static String key(ProductFilterRequest filter) {
+        return filter.getMinPrice() + "|" + filter.getMaxPrice()
+                + "|" + ProductSpecifications.categoryIds(filter)
+                + "|" + ProductSpecifications.nonBlank(filter.getAuthors())
+                + "|" + filter.getAuthor() + "|" + filter.getPublisher() + "|" + filter.getInStock();
+    }
+
+    @Override
+    public void onCatalogLoaded(Collection<Product> products) {
+        invalidate();
+    }
+
+    @Override
+    public void onProductSaved(Product product) {
+        invalidate();
+    }
+
+    @Override
+    public void onProductsSaved(Collection<Product> products) {
+        invalidate();
+    }
+
+    @Override
+    public void onProductDeleted(Long productId) {
+        invalidate();
+    }
+}
@@ -0,0 +1,344 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.FacetCountsDTO;
+import com.example.demo.dto.FacetCountsDTO.FacetValue;
+import com.example.demo.dto.ProductFilterRequest;
+import com.example.demo.entity.Product;
+import com.example.demo.repository.ProductSpecifications;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Facet counts for the filter sidebar. Every product gets a dense document number
+ * and each facet value (category, author, publisher, price range, in stock) keeps a
+ * BitSet of the documents having it. A filter request is answered by AND-ing the
+ * bitsets of the active filters; each facet is counted with every filter except its
+ * own applied, so the sidebar shows how many results picking another value would give.
+ * A price filter is the union of the price range bitsets it covers; only a range cut
+ * by a bound that is not a range boundary has its documents' prices checked.
+ */
+@Component
+public class ProductFacetIndex implements CatalogChangeListener {
+
+    // Lower bounds of the price ranges in LKR, the last range is open ended
+    private static final double[] PRICE_BOUNDS = {0, 500, 1000, 2000, 5000};
+    // Prices are in whole cents; a range holds [bound, next bound) but advertises an inclusive
+    // maxPrice, like the filter, so it ends a cent below the next bound
+    private static final BigDecimal CENT = new BigDecimal("0.01");
+    // Inclusive upper price of each range, null for the open ended one
+    private static final Double[] PRICE_MAXES = priceMaxes();
+
+    private static final class FacetTerm {
+        final int ordinal;
+        final String value;
+        String label;
+        final BitSet docs = new BitSet();
+
+        FacetTerm(int ordinal, String value, String label) {
+            this.ordinal = ordinal;
+            this.value = value;
+            this.label = label;
+        }
+    }
+
+    // One facet dimension: its values and which value each document has
+    private static final class Dimension {
+        final Map<String, FacetTerm> terms = new HashMap<>();
+        final List<FacetTerm> byOrdinal = new ArrayList<>();
+        int[] docTerm = new int[0];
+
+        void set(int doc, String value, String label) {
+            if (doc >= docTerm.length) {
+                int oldLength = docTerm.length;
+                docTerm = Arrays.copyOf(docTerm, Math.max(doc + 1, oldLength * 2));
+                Arrays.fill(docTerm, oldLength, docTerm.length, -1);
+            }
+            if (value == null) {
+                docTerm[doc] = -1;
+                return;
+            }
+            FacetTerm term = terms.computeIfAbsent(value, key -> {
+                FacetTerm created = new FacetTerm(byOrdinal.size(), key, label);
+                byOrdinal.add(created);
+                return created;
+            });
+            term.label = label;
+            term.docs.set(doc);
+            docTerm[doc] = term.ordinal;
+        }
+
+        void clear(int doc) {
+            if (doc >= docTerm.length || docTerm[doc] < 0) return;
+            byOrdinal.get(docTerm[doc]).docs.clear(doc);
+            docTerm[doc] = -1;
+        }
+
+        // Union of the values starting with the text, matching the LIKE 'text%' filter semantics
+        BitSet docsStartingWith(String text) {
+            String prefix = text.trim().toLowerCase(Locale.ROOT);
+            BitSet result = new BitSet();
+            for (FacetTerm term : byOrdinal) {
+                if (term.value.startsWith(prefix)) result.or(term.docs);
+            }
+            return result;
+        }
+
+        BitSet docsForAny(Collection<String> values) {
+            BitSet result = new BitSet();
+            for (String value : values) {
+                FacetTerm term = terms.get(value);
+                if (term != null) result.or(term.docs);
+            }
+            return result;
+        }
+
+        List<FacetValue> count(BitSet base, int limit) {
+            int[] counts = new int[byOrdinal.size()];
+            for (int doc = base.nextSetBit(0); doc >= 0; doc = base.nextSetBit(doc + 1)) {
+                int term = doc < docTerm.length ? docTerm[doc] : -1;
+                if (term >= 0) counts[term]++;
+            }
+            List<FacetTerm> present = new ArrayList<>();
+            for (FacetTerm term : byOrdinal) {
+                if (counts[term.ordinal] > 0) present.add(term);
+            }
+            present.sort(Comparator.<FacetTerm>comparingInt(term -> counts[term.ordinal]).reversed()
+                    .thenComparing(term -> term.label, String.CASE_INSENSITIVE_ORDER));
+
+            List<FacetValue> values = new ArrayList<>();
+            for (FacetTerm term : present.subList(0, Math.min(limit, present.size()))) {
+                values.add(new FacetValue(term.value, term.label, counts[term.ordinal]));
+            }
+            return values;
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> docsByProductId = new HashMap<>();
+    private final Deque<Integer> freeDocs = new ArrayDeque<>();
+    private int nextDoc = 0;
+
+    private Dimension categories = new Dimension();
+    private Dimension authors = new Dimension();
+    private Dimension publishers = new Dimension();
+    private BitSet live = new BitSet();
+    private BitSet inStock = new BitSet();
+    private BitSet[] priceRanges = newPriceRanges();
+    private double[] prices = new double[0];
+
+    public FacetCountsDTO count(ProductFilterRequest filter, int limit) {
+        lock.readLock().lock();
+        try {
+            BitSet priceFilter = priceFilter(filter.getMinPrice(), filter.getMaxPrice());
+            Set<Long> categoryIds = ProductSpecifications.categoryIds(filter);
+            BitSet categoryFilter = categoryIds.isEmpty() ? null
+                    : categories.docsForAny(categoryIds.stream().map(String::valueOf).collect(Collectors.toList()));
+            BitSet authorFilter = authorFilter(filter);
+            BitSet publisherFilter = isBlank(filter.getPublisher()) ? null : publishers.docsStartingWith(filter.getPublisher());
+            BitSet stockFilter = null;
+            if (filter.getInStock() != null) {
+                stockFilter = filter.getInStock() ? inStock : andNot(live, inStock);
+            }
+
+            FacetCountsDTO result = new FacetCountsDTO();
+            result.setTotal(and(live, priceFilter, categoryFilter, authorFilter, publisherFilter, stockFilter).cardinality());
+            result.setCategories(categories.count(and(live, priceFilter, authorFilter, publisherFilter, stockFilter), limit));
+            result.setAuthors(authors.count(and(live, priceFilter, categoryFilter, publisherFilter, stockFilter), limit));
+            result.setPublishers(publishers.count(and(live, priceFilter, categoryFilter, authorFilter, stockFilter), limit));
+
+            BitSet withoutPrice = and(live, categoryFilter, authorFilter, publisherFilter, stockFilter);
+            List<FacetValue> ranges = new ArrayList<>();
+            for (int i = 0; i < PRICE_BOUNDS.length; i++) {
+                Double next = i + 1 < PRICE_BOUNDS.length ? PRICE_BOUNDS[i + 1] : null;
+                String label = next == null ? "Rs. " + (int) PRICE_BOUNDS[i] + "+" : "Rs. " + (int) PRICE_BOUNDS[i] + " - " + next.intValue();
+                ranges.add(new FacetValue(label, PRICE_BOUNDS[i], PRICE_MAXES[i], and(withoutPrice, priceRanges[i]).cardinality()));
+            }
+            result.setPriceRanges(ranges);
+
+            BitSet withoutStock = and(live, priceFilter, categoryFilter, authorFilter, publisherFilter);
+            int available = and(withoutStock, inStock).cardinality();
+            result.setInStock(available);
+            result.setOutOfStock(withoutStock.cardinality() - available);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet authorFilter(ProductFilterRequest filter) {
+        List<String> names = ProductSpecifications.nonBlank(filter.getAuthors());
+        BitSet result = null;
+        if (!names.isEmpty()) {
+            result = authors.docsForAny(names.stream().map(name -> name.toLowerCase(Locale.ROOT)).collect(Collectors.toList()));
+        }
+        if (!isBlank(filter.getAuthor())) {
+            BitSet prefixMatches = authors.docsStartingWith(filter.getAuthor());
+            if (result == null) {
+                result = prefixMatches;
+            } else {
+                result.and(prefixMatches);
+            }
+        }
+        return result;
+    }
+
+    private BitSet priceFilter(Double minPrice, Double maxPrice) {
+        if (minPrice == null && maxPrice == null) return null;
+        BitSet result = new BitSet();
+        for (int i = 0; i < PRICE_BOUNDS.length; i++) {
+            boolean startsInside = minPrice == null || minPrice <= PRICE_BOUNDS[i];
+            boolean endsInside = maxPrice == null || (PRICE_MAXES[i] != null && maxPrice >= PRICE_MAXES[i]);
+            if (startsInside && endsInside) {
+                result.or(priceRanges[i]);
+                continue;
+            }
+            boolean overlaps = (maxPrice == null || maxPrice >= PRICE_BOUNDS[i])
+                    && (minPrice == null || PRICE_MAXES[i] == null || minPrice <= PRICE_MAXES[i]);
+            if (!overlaps) continue;
+            BitSet range = priceRanges[i];
+            for (int doc = range.nextSetBit(0); doc >= 0; doc = range.nextSetBit(doc + 1)) {
+                double price = prices[doc];
+                if ((minPrice == null || price >= minPrice) && (maxPrice == null || price <= maxPrice)) {
+                    result.set(doc);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static BitSet and(BitSet first, BitSet... others) {
+        BitSet result = (BitSet) first.clone();
+        for (BitSet other : others) {
+            if (other != null) result.and(other);
+        }
+        return result;
+    }
+
+    private static BitSet andNot(BitSet first, BitSet second) {
+        BitSet result = (BitSet) first.clone();
+        result.andNot(second);
+        return result;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static BitSet[] newPriceRanges() {
+        BitSet[] ranges = new BitSet[PRICE_BOUNDS.length];
+        for (int i = 0; i < ranges.length; i++) ranges[i] = new BitSet();
+        return ranges;
+    }
+
+    private static Double[] priceMaxes() {
+        Double[] maxes = new Double[PRICE_BOUNDS.length];
+        for (int i = 0; i + 1 < PRICE_BOUNDS.length; i++) {
+            maxes[i] = BigDecimal.valueOf(PRICE_BOUNDS[i + 1]).subtract(CENT).doubleValue();
+        }
+        return maxes;
+    }
+
+    private static int priceRange(double price) {
+        for (int i = PRICE_BOUNDS.length - 1; i > 0; i--) {
+            if (price >= PRICE_BOUNDS[i]) return i;
+        }
+        return 0;
+    }
+
+    @Override
+    public void onCatalogLoaded(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            docsByProductId.clear();
+            freeDocs.clear();
+            nextDoc = 0;
+            categories = new Dimension();
+            authors = new Dimension();
+            publishers = new Dimension();
+            live = new BitSet();
+            inStock = new BitSet();
+            priceRanges = newPriceRanges();
+            prices = new double[Math.max(16, products.size())];
+            for (Product product : products) {
+                addProduct(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onProductSaved(Product product) {
+        onProductsSaved(List.of(product));
+    }
+
+    @Override
+    public void onProductsSaved(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            for (Product product : products) {
+                if (product == null || product.getId() == null) continue;
+                removeProduct(product.getId());
+                addProduct(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onProductDeleted(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeProduct(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addProduct(Product product) {
+        int doc = freeDocs.isEmpty() ? nextDoc++ : freeDocs.pop();
+        docsByProductId.put(product.getId(), doc);
+        if (doc >= prices.length) {
+            prices = Arrays.copyOf(prices, Math.max(doc + 1, prices.length * 2));
+        }
+
+        live.set(doc);
+        prices[doc] = product.getPrice();
+        priceRanges[priceRange(product.getPrice())].set(doc);
+        if (product.getStock() > 0) inStock.set(doc);
+
+        if (product.getCategory() != null) {
+            categories.set(doc, String.valueOf(product.getCategory().getId()), product.getCategory().getName());
+        } else {
+            categories.set(doc, null, null);
+        }
+        setText(authors, doc, product.getAuthor());
+        setText(publishers, doc, product.getPublisher());
+    }
+
+    private static void setText(Dimension dimension, int doc, String text) {
+        if (isBlank(text)) {
+            dimension.set(doc, null, null);
+        } else {
+            dimension.set(doc, text.trim().toLowerCase(Locale.ROOT), text.trim());
+        }
+    }
+
+    private void removeProduct(Long productId) {
+        Integer doc = docsByProductId.remove(productId);
+        if (doc == null) return;
+        live.clear(doc);
+        inStock.clear(doc);
+        for (BitSet range : priceRanges) range.clear(doc);
+        categories.clear(doc);
+        authors.clear(doc);
+        publishers.clear(doc);
+        freeDocs.push(doc);
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Product;
+import com.example.demo.util.TextTokenizer;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * In-memory inverted index over product name, author, publisher and description.
+ * Every query term must match, either exactly or as a prefix so the index can be
+ * queried while the customer is still typing, and results are ranked by
+ * field-weighted term frequency times inverse document frequency.
+ */
+@Component
+public class ProductSearchIndex implements CatalogChangeListener {
+
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float AUTHOR_WEIGHT = 2.0f;
+    private static final float PUBLISHER_WEIGHT = 1.5f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+    // A long description repeating a word should not outrank a title match
+    private static final float MAX_DESCRIPTION_WEIGHT = 3.0f;
+    private static final float PREFIX_MATCH_FACTOR = 0.6f;
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    private final Map<Long, Product> documents = new HashMap<>();
+    private final Map<Long, Set<String>> documentTerms = new HashMap<>();
+    private volatile boolean ready = false;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Returns every product matching all terms of the keyword, best match first
+    public List<Product> search(String keyword) {
+        return search(keyword, product -> true);
+    }
+
+    // Same as search(keyword) but drops products rejected by the filter before ranking
+    public List<Product> search(String keyword, Predicate<Product> filter) {
+        List<String> queryTerms = TextTokenizer.tokenize(keyword);
+        if (queryTerms.isEmpty()) return new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            Map<Long, Float> scores = score(queryTerms);
+            List<Map.Entry<Long, Float>> ranked = new ArrayList<>(scores.size());
+            for (Map.Entry<Long, Float> entry : scores.entrySet()) {
+                if (filter.test(documents.get(entry.getKey()))) {
+                    ranked.add(entry);
+                }
+            }
+            ranked.sort(Map.Entry.<Long, Float>comparingByValue().reversed()
+                    .thenComparing(Map.Entry.comparingByKey()));
+
+            List<Product> results = new ArrayList<>(ranked.size());
+            for (Map.Entry<Long, Float> entry : ranked) {
+                results.add(documents.get(entry.getKey()));
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Must be called with the read lock held
+    private Map<Long, Float> score(List<String> queryTerms) {
+        Map<Long, Float> scores = null;
+        int documentCount = Math.max(documents.size(), 1);
+
+        for (String queryTerm : queryTerms) {
+            Map<Long, Float> termScores = new HashMap<>();
+            for (Map.Entry<String, Map<Long, Float>> posting : matchingTerms(queryTerm).entrySet()) {
+                Map<Long, Float> docs = posting.getValue();
+                float idf = (float) Math.log(1.0 + (double) documentCount / docs.size());
+                float factor = posting.getKey().equals(queryTerm) ? 1.0f : PREFIX_MATCH_FACTOR;
+                for (Map.Entry<Long, Float> doc : docs.entrySet()) {
+                    if (scores != null && !scores.containsKey(doc.getKey())) continue;
+                    float score = doc.getValue() * idf * factor;
+                    termScores.merge(doc.getKey(), score, Math::max);
+                }
+            }
+
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                Map<Long, Float> combined = new HashMap<>();
+                for (Map.Entry<Long, Float> entry : termScores.entrySet()) {
+                    combined.put(entry.getKey(), scores.get(entry.getKey()) + entry.getValue());
+                }
+                scores = combined;
+            }
+            if (scores.isEmpty()) break;
+        }
+        return scores;
+    }
+
+    private SortedMap<String, Map<Long, Float>> matchingTerms(String queryTerm) {
+        if (queryTerm.length() < MIN_PREFIX_LENGTH) {
+            Map<Long, Float> exact = postings.get(queryTerm);
+            return exact == null ? Collections.emptySortedMap() : new TreeMap<>(Map.of(queryTerm, exact));
+        }
+        return postings.subMap(queryTerm, true, queryTerm + Character.MAX_VALUE, false);
+    }
+
+    @Override
+    public void onCatalogLoaded(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            documentTerms.clear();
+            for (Product product : products) {
+                addDocument(product);
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onProductSaved(Product product) {
+        if (product == null || product.getId() == null) return;
+        lock.writeLock().lock();
+        try {
+            removeDocument(product.getId());
+            addDocument(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onProductsSaved(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            for (Product product : products) {
+                if (product == null || product.getId() == null) continue;
+                removeDocument(product.getId());
+                addDocument(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onProductDeleted(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addDocument(Product product) {
+        Map<String, Float> weights = new HashMap<>();
+        addField(weights, product.getName(), NAME_WEIGHT, Float.MAX_VALUE);
+        addField(weights, product.getAuthor(), AUTHOR_WEIGHT, Float.MAX_VALUE);
+        addField(weights, product.getPublisher(), PUBLISHER_WEIGHT, Float.MAX_VALUE);
+        addField(weights, product.getDescription(), DESCRIPTION_WEIGHT, MAX_DESCRIPTION_WEIGHT);
+
+        for (Map.Entry<String, Float> entry : weights.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), k -> new HashMap<>()).put(product.getId(), entry.getValue());
+        }
+        documents.put(product.getId(), product);
+        documentTerms.put(product.getId(), weights.keySet());
+    }
+
+    private void addField(Map<String, Float> weights, String text, float weight, float maxFieldWeight) {
+        Map<String, Float> fieldWeights = new HashMap<>();
+        for (String token : TextTokenizer.tokenize(text)) {
+            fieldWeights.merge(token, weight, (a, b) -> Math.min(a + b, maxFieldWeight));
+        }
+        fieldWeights.forEach((term, w) -> weights.merge(term, w, Float::sum));
+    }
+
+    private void removeDocument(Long productId) {
+        Set<String> terms = documentTerms.remove(productId);
+        documents.remove(productId);
+        if (terms == null) return;
+        for (String term : terms) {
+            Map<Long, Float> docs = postings.get(term);
+            if (docs == null) continue;
+            docs.remove(productId);
+            if (docs.isEmpty()) postings.remove(term);
+        }
+    }
+}
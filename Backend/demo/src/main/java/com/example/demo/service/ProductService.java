@@ -1,91 +1,88 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.KeysetPage;
 import com.example.demo.dto.ProductFilterRequest;
 import com.example.demo.entity.Category;
 import com.example.demo.entity.Product;
 import com.example.demo.entity.Wishlist;
 import com.example.demo.repository.CategoryRepository;
+import com.example.demo.repository.ProductFields;
 import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.ProductSpecifications;
 import com.example.demo.repository.WishlistRepository;
-import com.example.demo.dto.FileValidationResult;
-import com.example.demo.dto.RowError;
 import com.example.demo.entity.User;
+import com.example.demo.util.PageCursor;
 
 import com.fasterxml.jackson.annotation.OptBoolean;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import com.example.demo.dto.ProductUpdateDTO;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.web.multipart.MultipartFile;
 
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
-
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.*;
 
 @Service
 public class ProductService {
 
+    private static final int MAX_SCROLL_SIZE = 100;
+
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
-    private final CloudinaryService cloudinaryService;
+    private final ImageUploadService imageUploadService;
     private final WishlistRepository wishlistRepository;
     private final EmailService emailService;
-
-
-    private Category getCategoryByNameOrThrow(String categoryName) {
-        return categoryRepository.findByName(categoryName)
-                .orElseThrow(() -> new IllegalArgumentException("Category not found: " + categoryName));
-    }
-
-    private Product createProduct(String name, String description, String imageUrl, double price, int stock, String author, String publisher, String categoryName) {
-        Category category = getCategoryByNameOrThrow(categoryName); // Fetch the category by name
-        Product product = new Product();
-        product.setName(name);
-        product.setDescription(description);
-        product.setImageUrl(imageUrl);
-        product.setPrice(price);
-        product.setStock(stock);
-        product.setAuthor(author);
-        product.setPublisher(publisher);
-        product.setCategory(category);
-
-        return product;
-    }
+    private final CatalogChangeNotifier catalogChangeNotifier;
+    private final ProductCache productCache;
+    private final ProductCountCache productCountCache;
+    private final ProductValueDictionary productValueDictionary;
 
 
     @Autowired
-    public ProductService(ProductRepository productRepository, CategoryRepository categoryRepository, CloudinaryService cloudinaryService , WishlistRepository wishlistRepository , EmailService emailService) {
+    public ProductService(ProductRepository productRepository, CategoryRepository categoryRepository, ImageUploadService imageUploadService, WishlistRepository wishlistRepository , EmailService emailService, CatalogChangeNotifier catalogChangeNotifier, ProductCache productCache, ProductCountCache productCountCache, ProductValueDictionary productValueDictionary) {
         this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
-        this.cloudinaryService = cloudinaryService;
+        this.imageUploadService = imageUploadService;
         this.wishlistRepository = wishlistRepository;
         this.emailService = emailService;
+        this.catalogChangeNotifier = catalogChangeNotifier;
+        this.productCache = productCache;
+        this.productCountCache = productCountCache;
+        this.productValueDictionary = productValueDictionary;
     }
 
     public Page<Product> getAllProducts(Pageable pageable) {
         return productRepository.findAll(pageable);
     }
 
+    // Only the selected columns, see ProductFields
+    public Page<Map<String, Object>> getAllProducts(Pageable pageable, List<String> fields) {
+        return productRepository.findProjected((root, query, cb) -> null, fields, pageable);
+    }
+
     public List<Product> getProductsByCategory(Long categoryID) {
         return productRepository.findAllByCategoryId(categoryID);
     }
 
     public Product getProductById(Long id) {
-        return productRepository.findById(id).orElse(null);
+        return productCache.findById(id).orElse(null);
     }
 
+    public Map<String, Object> getProductCacheStats() {
+        return productCache.getStats();
+    }
 
 
+
+    // The till matches any part of the name, so this stays a LIKE query rather than a word-prefix trie lookup
     public List<Product> searchProductsByBarcodePrefix(String prefix) {
         return productRepository.searchByBarcodePrefixOrName(prefix);
     }
@@ -114,313 +111,111 @@ public class ProductService {
         int size = filterRequest.getSize() != null ? filterRequest.getSize() : 10;
         Pageable pageable = PageRequest.of(page, size);
 
-        return productRepository.findProductsWithFilters(
-                filterRequest.getMinPrice(),
-                filterRequest.getMaxPrice(),
-                filterRequest.getCategoryId(),
-                filterRequest.getAuthor(),
-                filterRequest.getPublisher(),
-                filterRequest.getInStock(),
-                pageable
-        );
+        return productRepository.findAll(ProductSpecifications.fromFilter(filterRequest), pageable);
     }
 
-    // Methods to get filter options for dropdowns
-
-    public List<String> getAllAuthors() {
-        return productRepository.findDistinctAuthors();
-    }
+    public Page<Map<String, Object>> getFilteredProducts(ProductFilterRequest filterRequest, List<String> fields) {
+        int page = filterRequest.getPage() != null ? filterRequest.getPage() : 0;
+        int size = filterRequest.getSize() != null ? filterRequest.getSize() : 10;
+        Pageable pageable = PageRequest.of(page, size);
 
-    public List<String> getAllPublishers() {
-        return productRepository.findDistinctPublishers();
+        return productRepository.findProjected(ProductSpecifications.fromFilter(filterRequest), fields, pageable);
     }
 
-
-    private void parseCSV(InputStream is) throws IOException {
-        BufferedReader reader = new BufferedReader(new InputStreamReader(is));
-        String line;
-        boolean isFirstLine = true;
-
-        while ((line = reader.readLine()) != null) {
-            if (isFirstLine) { // Skip header
-                isFirstLine = false;
-                continue;
-            }
-
-            String[] fields = line.split(",", -1); // Preserve empty fields
-
-            if (fields.length < 8) continue; // Skip incomplete rows
-
-            String name = fields[0].trim();
-            String description = fields[1].trim();
-            String imageUrl = fields[2].trim();
-            double price = Double.parseDouble(fields[3].trim());
-            int stock = Integer.parseInt(fields[4].trim());
-            String author = fields[5].trim();
-            String publisher = fields[6].trim();
-            String categoryName = fields[7].trim();
-
-            Product product = createProduct(name, description, imageUrl, price, stock, author, publisher, categoryName);
-            productRepository.save(product);
+    /**
+     * Keyset version of getFilteredProducts: returns the rows after the "after" cursor
+     * ordered by (sort key, id), so deep pages cost the same as the first one. The total
+     * is only counted when asked for, and then served from ProductCountCache. With a
+     * fields selection the rows are maps of those columns plus the id and sort key.
+     */
+    public KeysetPage<?> scrollProducts(ProductFilterRequest filterRequest, String after, String sort,
+                                        boolean withTotal, List<String> fields) {
+        int size = filterRequest.getSize() != null ? filterRequest.getSize() : 10;
+        if (size < 1 || size > MAX_SCROLL_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_SCROLL_SIZE);
         }
-    }
-
-
-    private void parseExcel(InputStream is) throws IOException {
-        Workbook workbook = new XSSFWorkbook(is);
-        Sheet sheet = workbook.getSheetAt(0);
-
-        for (Row row : sheet) {
-            if (row.getRowNum() == 0) continue; // Skip header
-
-            String name = row.getCell(0).getStringCellValue().trim();
-            String description = row.getCell(1).getStringCellValue().trim();
-            String imageUrl = row.getCell(2).getStringCellValue().trim();
-            double price = row.getCell(3).getNumericCellValue();
-            int stock = (int) row.getCell(4).getNumericCellValue();
-            String author = row.getCell(5).getStringCellValue().trim();
-            String publisher = row.getCell(6).getStringCellValue().trim();
-            String categoryName = row.getCell(7).getStringCellValue().trim();
 
-            Product product = createProduct(name, description, imageUrl, price, stock, author, publisher, categoryName);
-            productRepository.save(product);
+        String[] sortParts = (sort == null || sort.isBlank() ? "id" : sort).split(",");
+        String property = sortParts[0].trim();
+        if (!ProductSpecifications.SEEK_PROPERTIES.contains(property)) {
+            throw new IllegalArgumentException("Cannot sort by " + property);
         }
-
-        workbook.close();
-    }
-
-    private void validateCSV(InputStream is, FileValidationResult result) throws IOException {
-        BufferedReader reader = new BufferedReader(new InputStreamReader(is));
-        String line;
-        int rowNumber = 0;
-        boolean isFirstLine = true;
-        Map<String, Integer> headerIndexMap = new HashMap<>();
-
-        List<String> validCategories = Arrays.asList("Fiction", "Non-fiction", "Science", "History", "Technology");
-
-        while ((line = reader.readLine()) != null) {
-            rowNumber++;
-            String[] fields = line.split(",", -1); // Preserve empty fields
-
-            if (isFirstLine) {
-                for (int i = 0; i < fields.length; i++) {
-                    headerIndexMap.put(fields[i].trim().toLowerCase(), i); // Normalize headers to lowercase
-                }
-                isFirstLine = false;
-
-                // Validate required headers
-                if (!headerIndexMap.containsKey("name") ||
-                        !headerIndexMap.containsKey("description") ||
-                        !headerIndexMap.containsKey("imageurl") ||
-                        !headerIndexMap.containsKey("price") ||
-                        !headerIndexMap.containsKey("stock") ||
-                        !headerIndexMap.containsKey("author") ||
-                        !headerIndexMap.containsKey("publisher") ||
-                        !headerIndexMap.containsKey("category")) {
-                    result.addError(rowNumber, "Missing one or more required columns in the header.");
-                    return;
-                }
-
-                continue;
+        Sort.Direction direction = sortParts.length > 1
+                ? Sort.Direction.fromString(sortParts[1].trim())
+                : Sort.Direction.ASC;
+
+        PageCursor cursor = null;
+        if (after != null && !after.isBlank()) {
+            cursor = PageCursor.decode(after);
+            if (!cursor.getSortProperty().equals(property) || cursor.getDirection() != direction) {
+                throw new IllegalArgumentException("Cursor was issued for a different sort");
             }
-
-            // Access fields by normalized header name
-            String name = getCSVValue(fields, headerIndexMap, "name");
-            String description = getCSVValue(fields, headerIndexMap, "description");
-            String imageUrl = getCSVValue(fields, headerIndexMap, "imageurl");
-            String priceStr = getCSVValue(fields, headerIndexMap, "price");
-            String stockStr = getCSVValue(fields, headerIndexMap, "stock");
-            String author = getCSVValue(fields, headerIndexMap, "author");
-            String publisher = getCSVValue(fields, headerIndexMap, "publisher");
-            String category = getCSVValue(fields, headerIndexMap, "category");
-
-            // Check for empty required fields
-            if (name.isEmpty() || description.isEmpty() || imageUrl.isEmpty() ||
-                    priceStr.isEmpty() || stockStr.isEmpty() || author.isEmpty() ||
-                    publisher.isEmpty() || category.isEmpty()) {
-                result.addError(rowNumber, "Required fields missing.");
-                continue;
-            }
-
-            try {
-                double price = Double.parseDouble(priceStr);
-                if (price <= 0) {
-                    result.addError(rowNumber, "Price should be a positive number.");
-                }
-            } catch (NumberFormatException e) {
-                result.addError(rowNumber, "Invalid price format.");
-            }
-
-            try {
-                int stock = Integer.parseInt(stockStr);
-                if (stock < 0) {
-                    result.addError(rowNumber, "Stock should be a non-negative integer.");
-                }
-            } catch (NumberFormatException e) {
-                result.addError(rowNumber, "Invalid stock format.");
-            }
-
-            if (!validCategories.contains(category)) {
-                result.addError(rowNumber, "Invalid category.");
-            }
-        }
-    }
-
-    // Helper method to safely fetch a CSV column value by header key
-    private String getCSVValue(String[] fields, Map<String, Integer> headerIndexMap, String key) {
-        Integer index = headerIndexMap.get(key);
-        return (index != null && index < fields.length) ? fields[index].trim() : "";
-    }
-
-
-
-    // Helper method to check if the category is valid
-    private boolean isValidCategory(String category) {
-        // Assuming a list or enum of valid categories exists
-        List<String> validCategories = Arrays.asList("Fiction", "Non-fiction", "Science", "History", "Technology");
-        return validCategories.contains(category);
-    }
-
-
-    private void validateExcel(InputStream is, FileValidationResult result) throws IOException {
-        Workbook workbook = new XSSFWorkbook(is);
-        Sheet sheet = workbook.getSheetAt(0);
-
-        // Read the header row (assumed to be the first row)
-        Row headerRow = sheet.getRow(0);
-        Map<String, Integer> headerIndexMap = getHeaderIndexMap(headerRow);
-
-        // Normalize headers to lowercase for case-insensitive comparison
-        Map<String, Integer> normalizedHeaderIndexMap = new HashMap<>();
-        for (Map.Entry<String, Integer> entry : headerIndexMap.entrySet()) {
-            normalizedHeaderIndexMap.put(entry.getKey().toLowerCase(), entry.getValue());
         }
 
-        // Validate headers presence (case-insensitive comparison)
-        if (!normalizedHeaderIndexMap.containsKey("name") ||
-                !normalizedHeaderIndexMap.containsKey("description") ||
-                !normalizedHeaderIndexMap.containsKey("imageurl") ||
-                !normalizedHeaderIndexMap.containsKey("price") ||
-                !normalizedHeaderIndexMap.containsKey("stock") ||
-                !normalizedHeaderIndexMap.containsKey("author") ||
-                !normalizedHeaderIndexMap.containsKey("publisher") ||
-                !normalizedHeaderIndexMap.containsKey("category")) {
-            result.addError(new RowError(1, "Missing one or more required columns in the header."));
-            workbook.close();
-            return;
-        }
-
-        // Iterate over the remaining rows and validate their content
-        for (Row row : sheet) {
-            int rowNum = row.getRowNum() + 1;
-            if (row.getRowNum() == 0) continue; // Skip header row
-
-            try {
-                // Dynamically access the columns based on the normalized header index map (case-insensitive)
-                String name = getCellValue(row, normalizedHeaderIndexMap, "name");
-                String description = getCellValue(row, normalizedHeaderIndexMap, "description");
-                String imageUrl = getCellValue(row, normalizedHeaderIndexMap, "imageurl");
-                double price = getNumericCellValue(row, normalizedHeaderIndexMap, "price");
-                int stock = (int) getNumericCellValue(row, normalizedHeaderIndexMap, "stock");
-                String author = getCellValue(row, normalizedHeaderIndexMap, "author");
-                String publisher = getCellValue(row, normalizedHeaderIndexMap, "publisher");
-                String category = getCellValue(row, normalizedHeaderIndexMap, "category");
-
-                // Check for missing or invalid values
-                if (name.isEmpty() || description.isEmpty() || imageUrl.isEmpty() ||
-                        price <= 0 || stock < 0 || author.isEmpty() || publisher.isEmpty() || category.isEmpty()) {
-                    result.addError(new RowError(rowNum, "One or more required fields are missing or invalid."));
-                }
-
-                // Validate price and stock
-                if (price <= 0) {
-                    result.addError(new RowError(rowNum, "Invalid price value (should be a positive number)."));
-                }
-                if (stock < 0) {
-                    result.addError(new RowError(rowNum, "Invalid stock value (should be a positive integer)."));
-                }
-
-                // Validate category
-                if (!isValidCategory(category)) {
-                    result.addError(new RowError(rowNum, "Invalid category."));
-                }
-
-            } catch (Exception e) {
-                result.addError(new RowError(rowNum, "Invalid or missing fields."));
+        Specification<Product> filter = ProductSpecifications.fromFilter(filterRequest);
+        Specification<Product> seek = filter.and(ProductSpecifications.seek(property, direction, cursor));
+        Long total = withTotal ? productCountCache.count(filterRequest, () -> productRepository.count(filter)) : null;
+
+        // One extra row tells whether there is a next page without counting
+        if (fields != null) {
+            List<String> selected = ProductFields.including(fields, "id", property);
+            List<Map<String, Object>> rows = productRepository.findProjected(seek, selected, size + 1);
+            String nextCursor = null;
+            if (rows.size() > size) {
+                rows = new ArrayList<>(rows.subList(0, size));
+                Map<String, Object> last = rows.get(size - 1);
+                Object value = last.get(property);
+                nextCursor = new PageCursor(property, direction, (Long) last.get("id"),
+                        value == null ? "" : value.toString()).encode();
             }
+            return new KeysetPage<>(rows, size, nextCursor, total);
         }
 
-        workbook.close();
+        List<Product> rows = productRepository.findBy(seek, query -> query.limit(size + 1).all());
+        String nextCursor = null;
+        if (rows.size() > size) {
+            rows = new ArrayList<>(rows.subList(0, size));
+            Product last = rows.get(size - 1);
+            nextCursor = new PageCursor(property, direction, last.getId(),
+                    ProductSpecifications.seekValue(last, property)).encode();
+        }
+        return new KeysetPage<>(rows, size, nextCursor, total);
     }
 
+    // Methods to get filter options for dropdowns
 
-    // Helper method to map header column names to their indexes
-    private Map<String, Integer> getHeaderIndexMap(Row headerRow) {
-        Map<String, Integer> headerIndexMap = new HashMap<>();
-        for (Cell cell : headerRow) {
-            String header = cell.getStringCellValue().trim();
-            headerIndexMap.put(header, cell.getColumnIndex());
-        }
-        return headerIndexMap;
+    public List<String> getAllAuthors() {
+        return getAuthors(null, Integer.MAX_VALUE);
     }
 
-    // Helper method to get a cell value (String) from the row based on the column header
-    private String getCellValue(Row row, Map<String, Integer> headerIndexMap, String columnName) {
-        Integer columnIndex = headerIndexMap.get(columnName);
-        if (columnIndex != null) {
-            Cell cell = row.getCell(columnIndex);
-            if (cell != null) {
-                return cell.getStringCellValue().trim();
-            }
-        }
-        return "";
+    public List<String> getAllPublishers() {
+        return getPublishers(null, Integer.MAX_VALUE);
     }
 
-    // Helper method to get a numeric cell value from the row based on the column header
-    private double getNumericCellValue(Row row, Map<String, Integer> headerIndexMap, String columnName) {
-        Integer columnIndex = headerIndexMap.get(columnName);
-        if (columnIndex != null) {
-            Cell cell = row.getCell(columnIndex);
-            if (cell != null && cell.getCellType() == CellType.NUMERIC) {
-                return cell.getNumericCellValue();
-            }
+    // Served from the in-memory dictionary, the DISTINCT queries are only used until it is loaded
+    public List<String> getAuthors(String prefix, int limit) {
+        if (!productValueDictionary.isReady()) {
+            return filterByPrefix(productRepository.findDistinctAuthors(), prefix, limit);
         }
-        return 0;
+        return productValueDictionary.getAuthors(prefix, limit);
     }
 
-    public void importBooksFromFile(MultipartFile file) throws IOException {
-        String filename = file.getOriginalFilename();
-
-        assert filename != null;
-        if (filename.endsWith(".csv")) {
-            parseCSV(file.getInputStream());
-        } else if (filename.endsWith(".xlsx")) {
-            parseExcel(file.getInputStream());
-        } else {
-            throw new IllegalArgumentException("Unsupported file format");
+    public List<String> getPublishers(String prefix, int limit) {
+        if (!productValueDictionary.isReady()) {
+            return filterByPrefix(productRepository.findDistinctPublishers(), prefix, limit);
         }
+        return productValueDictionary.getPublishers(prefix, limit);
     }
 
-    public FileValidationResult validateBooksFile(MultipartFile file) throws IOException {
-        String filename = file.getOriginalFilename();
-        FileValidationResult result = new FileValidationResult();
-
-        if (filename == null) {
-            result.addError(0, "Filename is null.");
-            return result;
-        }
-
-        if (filename.endsWith(".csv")) {
-            validateCSV(file.getInputStream(), result);
-        } else if (filename.endsWith(".xlsx")) {
-            validateExcel(file.getInputStream(), result);
-        } else {
-            result.addError(0, "Unsupported file format: must be .csv or .xlsx");
-        }
-
-        return result;
+    private static List<String> filterByPrefix(List<String> values, String prefix, int limit) {
+        String lowerPrefix = prefix == null ? "" : prefix.trim().toLowerCase();
+        return values.stream()
+                .filter(value -> value.toLowerCase().startsWith(lowerPrefix))
+                .limit(limit)
+                .toList();
     }
 
+
     //methods for stock management
     @Transactional
     public Product updateProduct(Long id, ProductUpdateDTO dto,MultipartFile imageFile) throws IOException {
@@ -448,20 +243,30 @@ public class ProductService {
         if (dto.getAuthor() != null) existing.setAuthor(dto.getAuthor());
         if (dto.getPublisher() != null) existing.setPublisher(dto.getPublisher());
         if (imageFile != null && !imageFile.isEmpty()) {
-            String imageUrl = cloudinaryService.uploadImage(imageFile);
-            existing.setImageUrl(imageUrl);
+            setImage(existing, imageUploadService.uploadImage(imageFile));
         }
 
 
-        return productRepository.save(existing);
+        Product saved = productRepository.save(existing);
+        catalogChangeNotifier.productSaved(saved);
+        return saved;
     }
 
 
+    // Product lists show the thumbnail; an upload replaces it together with the image
+    private static void setImage(Product product, ImageStore.StoredImage image) {
+        product.setImageUrl(image.getUrl());
+        product.setMediumImageUrl(image.getMediumUrl());
+        product.setThumbnailUrl(image.getThumbnailUrl());
+        product.setImageSourceUrl(null);
+    }
+
     public void deleteProduct(Long id) {
         if (!productRepository.existsById(id)) {
             throw new IllegalArgumentException("Product not found with ID: " + id);
         }
         productRepository.deleteById(id);
+        catalogChangeNotifier.productDeleted(id);
     }
 
 
@@ -479,7 +284,7 @@ public class ProductService {
 
     public Product addProduct(ProductUpdateDTO dto, MultipartFile imageFile ) throws IOException {
 
-        String imageUrl = cloudinaryService.uploadImage(imageFile);
+        ImageStore.StoredImage image = imageUploadService.uploadImage(imageFile);
 
         Product product = new Product();
         product.setName(dto.getName());
@@ -489,14 +294,16 @@ public class ProductService {
         product.setStock(dto.getStock());
         product.setAuthor(dto.getAuthor());
         product.setPublisher(dto.getPublisher());
-        product.setImageUrl(imageUrl);
+        setImage(product, image);
 
         // Assuming you have a CategoryService or repo
         Category category = categoryRepository.findById(dto.getCategoryId())
                 .orElseThrow(() -> new IllegalArgumentException("Invalid category ID"));
         product.setCategory(category);
 
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        catalogChangeNotifier.productSaved(saved);
+        return saved;
     }
 
     @Transactional
@@ -511,7 +318,7 @@ public class ProductService {
             }
         }
 
-        productRepository.saveAll(products);
+        catalogChangeNotifier.productsSaved(productRepository.saveAll(products));
     }
 
     private void notifyWishlistUsersIfSubscribed(Product product) {
@@ -0,0 +1,163 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Product;
+import com.example.demo.util.TextTokenizer;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram index over product names for matching the free text lines of a
+ * booklist to the catalog. Every word is padded like pg_trgm ("  word ") and cut into
+ * trigrams of characters, which works the same for Sinhala and English and tolerates
+ * the dropped, doubled and misread letters OCR produces. The similarity of a line and a
+ * title is the share of trigrams they have in common (shared / union).
+ */
+@Component
+public class ProductTitleIndex implements CatalogChangeListener {
+
+    public static final class Match {
+        private final Product product;
+        private final double similarity;
+
+        Match(Product product, double similarity) {
+            this.product = product;
+            this.similarity = similarity;
+        }
+
+        public Product getProduct() {
+            return product;
+        }
+
+        public double getSimilarity() {
+            return similarity;
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+    private final Map<Long, Product> documents = new HashMap<>();
+    private final Map<Long, Set<String>> documentTrigrams = new HashMap<>();
+    private volatile boolean ready = false;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * The products whose name is at least minSimilarity alike to the line, most similar
+     * first, at most limit of them.
+     */
+    public List<Match> match(String line, int limit, double minSimilarity) {
+        Set<String> query = trigrams(line);
+        if (query.isEmpty()) return new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            Map<Long, Integer> shared = new HashMap<>();
+            for (String trigram : query) {
+                Set<Long> ids = postings.get(trigram);
+                if (ids == null) continue;
+                for (Long id : ids) {
+                    shared.merge(id, 1, Integer::sum);
+                }
+            }
+
+            List<Match> matches = new ArrayList<>();
+            for (Map.Entry<Long, Integer> entry : shared.entrySet()) {
+                int common = entry.getValue();
+                int union = query.size() + documentTrigrams.get(entry.getKey()).size() - common;
+                double similarity = (double) common / union;
+                if (similarity >= minSimilarity) {
+                    matches.add(new Match(documents.get(entry.getKey()), similarity));
+                }
+            }
+            matches.sort(Comparator.comparingDouble(Match::getSimilarity).reversed()
+                    .thenComparing(match -> match.getProduct().getId()));
+            return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static Set<String> trigrams(String text) {
+        Set<String> trigrams = new HashSet<>();
+        for (String word : TextTokenizer.tokenize(text)) {
+            String padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                trigrams.add(padded.substring(i, i + 3));
+            }
+        }
+        return trigrams;
+    }
+
+    @Override
+    public void onCatalogLoaded(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            documentTrigrams.clear();
+            for (Product product : products) {
+                addDocument(product);
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onProductSaved(Product product) {
+        onProductsSaved(List.of(product));
+    }
+
+    @Override
+    public void onProductsSaved(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            for (Product product : products) {
+                if (product == null || product.getId() == null) continue;
+                removeDocument(product.getId());
+                addDocument(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onProductDeleted(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addDocument(Product product) {
+        if (product.getId() == null) return;
+        Set<String> trigrams = trigrams(product.getName());
+        if (trigrams.isEmpty()) return;
+        for (String trigram : trigrams) {
+            postings.computeIfAbsent(trigram, key -> new HashSet<>()).add(product.getId());
+        }
+        documents.put(product.getId(), product);
+        documentTrigrams.put(product.getId(), trigrams);
+    }
+
+    private void removeDocument(Long productId) {
+        Set<String> trigrams = documentTrigrams.remove(productId);
+        documents.remove(productId);
+        if (trigrams == null) return;
+        for (String trigram : trigrams) {
+            Set<Long> ids = postings.get(trigram);
+            if (ids == null) continue;
+            ids.remove(productId);
+            if (ids.isEmpty()) postings.remove(trigram);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Product;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Sorted, deduplicated author and publisher names for the filter dropdowns, kept in
+ * step with the catalog instead of running SELECT DISTINCT on every sidebar render.
+ * Names are compared case-insensitively like the database collation, and each keeps
+ * a count of the products using it so it disappears with its last product.
+ */
+@Component
+public class ProductValueDictionary implements CatalogChangeListener {
+
+    // All spellings seen for one case-insensitive name; the most used one is shown
+    private static final class Term {
+        final Map<String, Integer> spellings = new HashMap<>();
+        int count;
+
+        String display() {
+            String best = null;
+            int bestCount = 0;
+            for (Map.Entry<String, Integer> spelling : spellings.entrySet()) {
+                if (spelling.getValue() > bestCount
+                        || (spelling.getValue() == bestCount && spelling.getKey().compareTo(best) < 0)) {
+                    best = spelling.getKey();
+                    bestCount = spelling.getValue();
+                }
+            }
+            return best;
+        }
+    }
+
+    private static final class Dictionary {
+        final NavigableMap<String, Term> terms = new TreeMap<>();
+
+        void add(String value) {
+            if (value == null || value.isBlank()) return;
+            Term term = terms.computeIfAbsent(value.toLowerCase(Locale.ROOT), key -> new Term());
+            term.spellings.merge(value, 1, Integer::sum);
+            term.count++;
+        }
+
+        void remove(String value) {
+            if (value == null || value.isBlank()) return;
+            String key = value.toLowerCase(Locale.ROOT);
+            Term term = terms.get(key);
+            if (term == null) return;
+            term.spellings.computeIfPresent(value, (spelling, count) -> count > 1 ? count - 1 : null);
+            if (--term.count <= 0) terms.remove(key);
+        }
+
+        List<String> values(String prefix, int limit) {
+            Collection<Term> matches = terms.values();
+            if (prefix != null && !prefix.isBlank()) {
+                String from = prefix.trim().toLowerCase(Locale.ROOT);
+                matches = terms.subMap(from, true, from + Character.MAX_VALUE, false).values();
+            }
+            List<String> result = new ArrayList<>();
+            for (Term term : matches) {
+                if (result.size() >= limit) break;
+                result.add(term.display());
+            }
+            return result;
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Dictionary authors = new Dictionary();
+    private final Dictionary publishers = new Dictionary();
+    // The values each product was counted under, to undo them when it changes
+    private final Map<Long, String[]> productValues = new HashMap<>();
+    private volatile boolean ready = false;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public List<String> getAuthors(String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            return authors.values(prefix, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<String> getPublishers(String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            return publishers.values(prefix, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onCatalogLoaded(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            authors.terms.clear();
+            publishers.terms.clear();
+            productValues.clear();
+            for (Product product : products) {
+                addProduct(product);
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onProductSaved(Product product) {
+        onProductsSaved(List.of(product));
+    }
+
+    @Override
+    public void onProductsSaved(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            for (Product product : products) {
+                if (product == null || product.getId() == null) continue;
+                removeProduct(product.getId());
+                addProduct(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onProductDeleted(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeProduct(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addProduct(Product product) {
+        authors.add(product.getAuthor());
+        publishers.add(product.getPublisher());
+        productValues.put(product.getId(), new String[]{product.getAuthor(), product.getPublisher()});
+    }
+
+    private void removeProduct(Long productId) {
+        String[] values = productValues.remove(productId);
+        if (values == null) return;
+        authors.remove(values[0]);
+        publishers.remove(values[1]);
+    }
+}
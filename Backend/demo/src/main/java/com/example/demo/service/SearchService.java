@@ -1,50 +1,127 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.AutocompleteSuggestion;
+import com.example.demo.dto.ProductFilterRequest;
 import com.example.demo.entity.Product;
 import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.ProductSpecifications;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Service
 public class SearchService {
+    // Same cap as the scroll endpoint, so a request cannot page the whole catalog at once
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final Map<String, Comparator<Product>> SORTABLE_FIELDS = Map.of(
+            "id", Comparator.comparing(Product::getId),
+            "name", Comparator.comparing(Product::getName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)),
+            "price", Comparator.comparingDouble(Product::getPrice),
+            "stock", Comparator.comparingInt(Product::getStock),
+            "author", Comparator.comparing(Product::getAuthor, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)),
+            "publisher", Comparator.comparing(Product::getPublisher, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER))
+    );
+
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductAutocompleteIndex productAutocompleteIndex;
+
     public List<Product> searchProducts(String keyword) {
-        return productRepository.searchProducts(keyword);
+        // Fall back to the database only while the index is still being built
+        if (!productSearchIndex.isReady()) {
+            return productRepository.searchProducts(keyword);
+        }
+        return productSearchIndex.search(keyword);
+    }
+
+    public List<AutocompleteSuggestion> autocomplete(String query, int limit) {
+        return productAutocompleteIndex.suggest(query, Math.min(limit, ProductAutocompleteIndex.MAX_SUGGESTIONS));
+    }
+
+    // Keyword search and filters evaluated in one pass over the index; only the requested page is returned
+    public Page<Product> searchProductsWithFilters(String keyword, ProductFilterRequest filterRequest, Sort sort) {
+        int page = filterRequest.getPage() != null ? filterRequest.getPage() : 0;
+        int size = filterRequest.getSize() != null ? filterRequest.getSize() : 10;
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        Pageable pageable = PageRequest.of(page, size, sort);
+
+        Predicate<Product> filter = toPredicate(filterRequest);
+        List<Product> matches;
+        if (productSearchIndex.isReady()) {
+            matches = productSearchIndex.search(keyword, filter);
+        } else {
+            matches = productRepository.searchProducts(keyword).stream().filter(filter).collect(Collectors.toList());
+        }
+
+        // Without an explicit sort the index order (relevance) is kept
+        Comparator<Product> comparator = toComparator(sort);
+        if (comparator != null) {
+            matches.sort(comparator);
+        }
+
+        int from = (int) Math.min(pageable.getOffset(), matches.size());
+        int to = Math.min(from + pageable.getPageSize(), matches.size());
+        return new PageImpl<>(new ArrayList<>(matches.subList(from, to)), pageable, matches.size());
+    }
+
+    // Same semantics as ProductSpecifications.fromFilter, applied to the index results
+    private Predicate<Product> toPredicate(ProductFilterRequest filterRequest) {
+        Double minPrice = filterRequest.getMinPrice();
+        Double maxPrice = filterRequest.getMaxPrice();
+        Set<Long> categoryIds = ProductSpecifications.categoryIds(filterRequest);
+        Set<String> authors = ProductSpecifications.nonBlank(filterRequest.getAuthors()).stream()
+                .map(String::toLowerCase).collect(Collectors.toSet());
+        String author = lowerTrimmed(filterRequest.getAuthor());
+        String publisher = lowerTrimmed(filterRequest.getPublisher());
+        Boolean inStock = filterRequest.getInStock();
+
+        return product -> (minPrice == null || product.getPrice() >= minPrice)
+                && (maxPrice == null || product.getPrice() <= maxPrice)
+                && (categoryIds.isEmpty() ||
+                        (product.getCategory() != null && categoryIds.contains(product.getCategory().getId())))
+                && (authors.isEmpty() ||
+                        (product.getAuthor() != null && authors.contains(product.getAuthor().toLowerCase())))
+                && (author == null ||
+                        (product.getAuthor() != null && product.getAuthor().toLowerCase().startsWith(author)))
+                && (publisher == null ||
+                        (product.getPublisher() != null && product.getPublisher().toLowerCase().startsWith(publisher)))
+                && (inStock == null ||
+                        (inStock && product.getStock() > 0) ||
+                        (!inStock && product.getStock() <= 0));
+    }
+
+    private static String lowerTrimmed(String value) {
+        return value == null || value.isBlank() ? null : value.trim().toLowerCase();
     }
 
-    // New method to search products with filters
-    public List<Product> searchProductsWithFilters(
-            String keyword,
-            Double minPrice,
-            Double maxPrice,
-            Long categoryId,
-            String author,
-            String publisher,
-            Boolean inStock) {
-        
-        // First get search results
-        List<Product> searchResults = productRepository.searchProducts(keyword);
-        
-        // Then apply filters to search results
-        return searchResults.stream()
-                .filter(product -> minPrice == null || product.getPrice() >= minPrice)
-                .filter(product -> maxPrice == null || product.getPrice() <= maxPrice)
-                .filter(product -> categoryId == null || 
-                        (product.getCategory() != null && product.getCategory().getId() == categoryId))
-                .filter(product -> author == null || 
-                        (product.getAuthor() != null && 
-                         product.getAuthor().toLowerCase().contains(author.toLowerCase())))
-                .filter(product -> publisher == null || 
-                        (product.getPublisher() != null && 
-                         product.getPublisher().toLowerCase().contains(publisher.toLowerCase())))
-                .filter(product -> inStock == null || 
-                        (inStock && product.getStock() > 0) || 
-                        (!inStock && product.getStock() == 0))
-                .collect(Collectors.toList());
+    private Comparator<Product> toComparator(Sort sort) {
+        Comparator<Product> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<Product> next = SORTABLE_FIELDS.get(order.getProperty());
+            if (next == null) continue; // Unknown properties are ignored like an unsorted request
+            if (order.isDescending()) next = next.reversed();
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator;
     }
 }
@@ -20,7 +20,9 @@ import com.example.demo.repository.UserRepository;
 
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -30,13 +32,15 @@ public class StockNotificationService {
     private final JavaMailSender mailSender;
     private final UserRepository userRepository;
     private final OrderRepository orderRepository;
+    private final CatalogChangeNotifier catalogChangeNotifier;
 
-    public StockNotificationService(StockNotificationRepository stockNotificationRepository, ProductRepository productRepository, JavaMailSender mailSender, UserRepository userRepository, OrderRepository orderRepository) {
+    public StockNotificationService(StockNotificationRepository stockNotificationRepository, ProductRepository productRepository, JavaMailSender mailSender, UserRepository userRepository, OrderRepository orderRepository, CatalogChangeNotifier catalogChangeNotifier) {
         this.stockNotificationRepository = stockNotificationRepository;
         this.productRepository = productRepository;
         this.mailSender = mailSender;
         this.userRepository = userRepository;
         this.orderRepository = orderRepository;
+        this.catalogChangeNotifier = catalogChangeNotifier;
     }
 
     public void subscribeForNotification(String email, Long productId) {
@@ -98,10 +102,10 @@ public class StockNotificationService {
 
     // Admin functionality
     public void updateThreshold(Long productId, Integer threshold) {
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
-        product.setStockThreshold(threshold);
-        productRepository.save(product);
+        if (productRepository.setStockThreshold(productId, threshold) == 0) {
+            throw new RuntimeException("Product not found");
+        }
+        catalogChangeNotifier.productSaved(productRepository.findById(productId).orElseThrow());
     }
 
     public List<StockAlertDTO> getLowStockAlerts() {
@@ -111,15 +115,23 @@ public class StockNotificationService {
                 .toList();
     }
 
+    // Paid orders short of stock come first and stay until staff move the order on, however old they are
     public List<OrderAlertDTO> getOrderAlerts() {
         LocalDateTime recent = LocalDateTime.now().minusHours(24); // Last 24 hours
-        List<Order> recentOrders = orderRepository.findByCreatedAtAfter(recent);
-        return recentOrders.stream()
+        Map<String, Order> orders = new LinkedHashMap<>();
+        for (Order order : orderRepository.findByStockShortTrueAndStatus("Paid")) {
+            orders.put(order.getOrderId(), order);
+        }
+        for (Order order : orderRepository.findByCreatedAtAfter(recent)) {
+            orders.putIfAbsent(order.getOrderId(), order);
+        }
+        return orders.values().stream()
                 .map(o -> new OrderAlertDTO(
                         o.getOrderId(),
                         o.getUser().getName(),
                         o.getCreatedAt(),
-                        o.getOrderProducts()))
+                        o.getOrderProducts(),
+                        o.isStockShort() && "Paid".equals(o.getStatus())))
                 .toList();
     }
 
@@ -0,0 +1,172 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Product;
+import com.example.demo.entity.StockReservation;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.StockReservationRepository;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Holds stock for online orders while the customer pays. Stock is taken with a
+ * conditional UPDATE (ProductRepository.takeStock) instead of reading, checking and
+ * saving the product, so parallel checkouts and counter sales can never take more than
+ * there is. A reservation is committed when the payment succeeds, and released, giving
+ * the stock back, when it fails or when stock.reservation.ttl-minutes pass without one.
+ */
+@Service
+public class StockReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationService.class);
+
+    // Rows are always locked in product id order, so two transactions never wait on each other
+    private static final Comparator<StockReservation> BY_PRODUCT =
+            Comparator.comparing(reservation -> reservation.getProduct().getId());
+
+    private final ProductRepository productRepository;
+    private final StockReservationRepository reservationRepository;
+    private final CatalogChangeNotifier catalogChangeNotifier;
+    private final TransactionTemplate transactionTemplate;
+    private final long ttlMinutes;
+
+    public StockReservationService(ProductRepository productRepository,
+                                   StockReservationRepository reservationRepository,
+                                   CatalogChangeNotifier catalogChangeNotifier,
+                                   TransactionTemplate transactionTemplate,
+                                   @Value("${stock.reservation.ttl-minutes:15}") long ttlMinutes) {
+        this.productRepository = productRepository;
+        this.reservationRepository = reservationRepository;
+        this.catalogChangeNotifier = catalogChangeNotifier;
+        this.transactionTemplate = transactionTemplate;
+        this.ttlMinutes = ttlMinutes;
+    }
+
+    /**
+     * Takes the quantities (product id to quantity) from stock for the order, all or
+     * nothing: when a product is short, IllegalArgumentException names it and the stock
+     * already taken is rolled back. A retried checkout of the same order replaces the
+     * reservations it still holds.
+     */
+    @Transactional
+    public List<StockReservation> reserve(String orderId, Map<Long, Integer> quantities) {
+        List<StockReservation> previous = reservationRepository.findByOrderIdAndStatus(orderId,
+                StockReservation.Status.HELD);
+        Set<Long> changed = releaseHeld(previous);
+        // Deleted rather than left RELEASED, so a late payment does not take their stock again
+        reservationRepository.deleteAllInBatch(previous);
+
+        Map<Long, Integer> sorted = new TreeMap<>(quantities);
+        for (Map.Entry<Long, Integer> entry : sorted.entrySet()) {
+            if (entry.getValue() == null || entry.getValue() <= 0) {
+                throw new IllegalArgumentException("Invalid quantity for product: " + entry.getKey());
+            }
+            if (productRepository.takeStock(entry.getKey(), entry.getValue()) == 0) {
+                String name = productRepository.findById(entry.getKey()).map(Product::getName).orElse(null);
+                if (name == null) throw new IllegalArgumentException("Product not found: " + entry.getKey());
+                throw new IllegalArgumentException("Insufficient stock for product: " + name);
+            }
+            changed.add(entry.getKey());
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<StockReservation> reservations = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : sorted.entrySet()) {
+            reservations.add(new StockReservation(orderId, productRepository.getReferenceById(entry.getKey()),
+                    entry.getValue(), now, now.plusMinutes(ttlMinutes)));
+        }
+        List<StockReservation> saved = reservationRepository.saveAll(reservations);
+        catalogChangeNotifier.productsSaved(productRepository.findAllById(changed));
+        return saved;
+    }
+
+    /**
+     * Marks the stock of a paid order as sold. A payment that arrives after the
+     * reservation expired takes the stock again if it is still there; returns false
+     * when some of it was sold to someone else in the meantime. The order's
+     * reservations are locked first, so the sweep cannot release one while it is
+     * being committed, and any that did not move from HELD are taken again.
+     */
+    @Transactional
+    public boolean commit(String orderId) {
+        boolean complete = true;
+        Set<Long> changed = new TreeSet<>();
+        for (StockReservation reservation : reservationRepository.lockByOrderId(orderId)) {
+            StockReservation.Status status = reservation.getStatus();
+            if (status == StockReservation.Status.COMMITTED) continue;
+            if (status == StockReservation.Status.HELD && reservationRepository.changeStatus(reservation.getId(),
+                    StockReservation.Status.HELD, StockReservation.Status.COMMITTED) == 1) {
+                continue;
+            }
+
+            Long productId = reservation.getProduct().getId();
+            if (productRepository.takeStock(productId, reservation.getQuantity()) == 1) {
+                reservationRepository.changeStatus(reservation.getId(), StockReservation.Status.RELEASED,
+                        StockReservation.Status.COMMITTED);
+                changed.add(productId);
+            } else {
+                logger.error("Order {} was paid after its reservation expired and product {} is out of stock",
+                        orderId, productId);
+                complete = false;
+            }
+        }
+        catalogChangeNotifier.productsSaved(productRepository.findAllById(changed));
+        return complete;
+    }
+
+    // Gives back the stock of an order whose payment failed
+    @Transactional
+    public void release(String orderId) {
+        Set<Long> changed = releaseHeld(reservationRepository.findByOrderIdAndStatus(orderId,
+                StockReservation.Status.HELD));
+        catalogChangeNotifier.productsSaved(productRepository.findAllById(changed));
+    }
+
+    /**
+     * Gives back the stock of checkouts that were abandoned before paying. Each
+     * reservation is released in its own short transaction: one transaction for all of
+     * them would keep the product row locked while waiting for reservations a failed
+     * payment is releasing at the same time, and the two would deadlock.
+     */
+    @Scheduled(fixedDelayString = "${stock.reservation.sweep-interval-ms:60000}")
+    public void releaseExpired() {
+        List<StockReservation> expired = reservationRepository.findByStatusAndExpiresAtBefore(
+                StockReservation.Status.HELD, LocalDateTime.now());
+        Set<Long> changed = new TreeSet<>();
+        for (StockReservation reservation : expired) {
+            changed.addAll(transactionTemplate.execute(status -> releaseHeld(List.of(reservation))));
+        }
+        if (!changed.isEmpty()) {
+            catalogChangeNotifier.productsSaved(productRepository.findAllById(changed));
+            logger.info("Released {} expired stock reservations", expired.size());
+        }
+    }
+
+    // The status change decides who releases, so the sweep and a failed payment never both give the stock back
+    private Set<Long> releaseHeld(List<StockReservation> reservations) {
+        Set<Long> changed = new TreeSet<>();
+        List<StockReservation> sorted = new ArrayList<>(reservations);
+        sorted.sort(BY_PRODUCT);
+        for (StockReservation reservation : sorted) {
+            if (reservationRepository.changeStatus(reservation.getId(), StockReservation.Status.HELD,
+                    StockReservation.Status.RELEASED) == 1) {
+                productRepository.returnStock(reservation.getProduct().getId(), reservation.getQuantity());
+                changed.add(reservation.getProduct().getId());
+            }
+        }
+        return changed;
+    }
+}
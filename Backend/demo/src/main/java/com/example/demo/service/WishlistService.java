@@ -3,7 +3,6 @@ package com.example.demo.service;
 import com.example.demo.entity.Product;
 import com.example.demo.entity.User;
 import com.example.demo.entity.Wishlist;
-import com.example.demo.repository.ProductRepository;
 import com.example.demo.repository.UserRepository;
 import com.example.demo.repository.WishlistRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,14 +20,14 @@ public class WishlistService {
     private UserRepository userRepository;
 
     @Autowired
-    private ProductRepository productRepository;
+    private ProductCache productCache;
 
 
     public void addToWishlist(String email , Long productId) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        Product product = productRepository.findById(productId)
+        Product product = productCache.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
 
         if(wishlistRepository.findByUserAndProduct(user, product).isEmpty()){
@@ -41,7 +40,7 @@ public class WishlistService {
     public boolean isInWishlist(String email, Long productId) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
-        Product product = productRepository.findById(productId)
+        Product product = productCache.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
         return wishlistRepository.findByUserAndProduct(user, product).isPresent();
     }
@@ -55,7 +54,7 @@ public class WishlistService {
     public void removeFromWishlist(String email, Long productId) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
-        Product product = productRepository.findById(productId)
+        Product product = productCache.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
         
         Optional<Wishlist> wishlistItem = wishlistRepository.findByUserAndProduct(user, product);
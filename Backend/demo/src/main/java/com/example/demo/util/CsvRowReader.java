@@ -0,0 +1,132 @@
+package com.example.demo.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming RFC 4180 CSV reader for catalog uploads. Fields may be quoted, and quoted
+ * fields may contain commas, doubled quotes ("") and line breaks. The input is read as
+ * UTF-8 with an optional byte order mark, and rows end with CRLF, LF or CR.
+ *
+ * Only the current row is held in memory, and the char buffer, field builder and cell
+ * list are reused for every row. The list passed to the handler is therefore only valid
+ * during the call; copy it to keep it. Row numbers count records, so a description
+ * spanning several lines is still one row. Malformed quoting is read leniently: a quote
+ * inside an unquoted field is kept as text and an unterminated quote runs to the end.
+ */
+public final class CsvRowReader {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final char BOM = '\uFEFF';
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder field = new StringBuilder(128);
+    private final List<String> cells = new ArrayList<>();
+    private int position;
+    private int limit;
+
+    private CsvRowReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    public static void read(InputStream in, SpreadsheetRowHandler handler) throws IOException {
+        read(new InputStreamReader(in, StandardCharsets.UTF_8), handler);
+    }
+
+    public static void read(Reader reader, SpreadsheetRowHandler handler) throws IOException {
+        new CsvRowReader(reader).readAll(handler);
+    }
+
+    private void readAll(SpreadsheetRowHandler handler) throws IOException {
+        if (fill() && buffer[0] == BOM) position = 1;
+
+        int rowNumber = 0;
+        while (readRow()) {
+            rowNumber++;
+            handler.row(rowNumber, cells);
+        }
+    }
+
+    // Reads the next record into cells; false once the input is exhausted
+    private boolean readRow() throws IOException {
+        cells.clear();
+        if (position >= limit && !fill()) return false;
+
+        field.setLength(0);
+        boolean quoted = false;     // Inside a quoted section of the current field
+        while (true) {
+            if (position >= limit && !fill()) {
+                // End of input also ends the last row, which need not end with a line break
+                cells.add(field.toString());
+                return true;
+            }
+
+            int start = position;
+            if (quoted) {
+                while (position < limit && buffer[position] != '"') position++;
+                field.append(buffer, start, position - start);
+                if (position == limit) continue;
+                position++;
+                if (peek() == '"') {
+                    position++;
+                    field.append('"');
+                } else {
+                    quoted = false;
+                }
+                continue;
+            }
+
+            // Scan the run of plain chars up to the next comma, line break or quote
+            char c = 0;
+            while (position < limit) {
+                c = buffer[position];
+                if (c == ',' || c == '\n' || c == '\r' || c == '"') break;
+                position++;
+            }
+            int length = position - start;
+            if (position == limit) {
+                field.append(buffer, start, length);
+                continue;
+            }
+            position++;
+            if (c == '"') {
+                if (length == 0 && field.length() == 0) {
+                    quoted = true;
+                } else {
+                    field.append(buffer, start, length + 1);
+                }
+                continue;
+            }
+
+            // Fields that sit in one buffer are copied straight out of it
+            cells.add(field.length() == 0 ? new String(buffer, start, length)
+                    : field.append(buffer, start, length).toString());
+            field.setLength(0);
+            if (c == ',') continue;
+            if (c == '\r' && peek() == '\n') position++;
+            return true;
+        }
+    }
+
+    // The next char without consuming it, or -1 at the end of input
+    private int peek() throws IOException {
+        if (position >= limit && !fill()) return -1;
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        int read;
+        do {
+            read = reader.read(buffer, 0, buffer.length);
+        } while (read == 0);
+        position = 0;
+        limit = Math.max(read, 0);
+        return read > 0;
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.demo.util;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * The pages of a multi-page booklist, a PDF or a TIFF, rendered one at a time as
+ * images for OCR. Neither PDFBox nor the TIFF reader may be used by two threads at
+ * once, so render is synchronized; it is quick next to reading the page, which the
+ * callers do in parallel.
+ */
+public abstract class DocumentPages implements Closeable {
+
+    // Scanned booklists are read at this resolution unless the page would exceed maxDimension
+    private static final float MAX_DPI = 300;
+
+    private enum Format { PDF, TIFF }
+
+    // True for a PDF or a TIFF, judged by the first bytes of the file
+    public static boolean isDocument(Path file) throws IOException {
+        return format(file) != null;
+    }
+
+    /**
+     * The pages of the file when it is a PDF or a TIFF, otherwise null, e.g. for a
+     * single JPEG photo. Throws IllegalArgumentException for a damaged document.
+     */
+    public static DocumentPages open(Path file) throws IOException {
+        Format format = format(file);
+        if (format == null) return null;
+        return format == Format.PDF ? new Pdf(file) : new Tiff(file);
+    }
+
+    private static Format format(Path file) throws IOException {
+        byte[] header = new byte[4];
+        int read;
+        try (InputStream in = Files.newInputStream(file)) {
+            read = in.readNBytes(header, 0, header.length);
+        }
+        if (read < header.length) return null;
+        if (header[0] == '%' && header[1] == 'P' && header[2] == 'D' && header[3] == 'F') {
+            return Format.PDF;
+        }
+        boolean littleEndian = header[0] == 'I' && header[1] == 'I' && header[2] == 42 && header[3] == 0;
+        boolean bigEndian = header[0] == 'M' && header[1] == 'M' && header[2] == 0 && header[3] == 42;
+        return littleEndian || bigEndian ? Format.TIFF : null;
+    }
+
+    public abstract int count();
+
+    // Page (from 0) with its longest side at most maxDimension
+    public abstract BufferedImage render(int page, int maxDimension) throws IOException;
+
+    private static final class Pdf extends DocumentPages {
+        private final PDDocument document;
+        private final PDFRenderer renderer;
+
+        Pdf(Path file) throws IOException {
+            try {
+                document = PDDocument.load(file.toFile());
+            } catch (IOException e) {
+                throw new IllegalArgumentException("The PDF could not be read: " + e.getMessage(), e);
+            }
+            renderer = new PDFRenderer(document);
+        }
+
+        @Override
+        public int count() {
+            return document.getNumberOfPages();
+        }
+
+        @Override
+        public synchronized BufferedImage render(int page, int maxDimension) throws IOException {
+            PDPage pdfPage = document.getPage(page);
+            PDRectangle box = pdfPage.getCropBox();
+            // Page sizes are in points, 72 to the inch
+            float longest = Math.max(box.getWidth(), box.getHeight());
+            float dpi = longest > 0 ? Math.min(MAX_DPI, maxDimension * 72f / longest) : MAX_DPI;
+            return renderer.renderImageWithDPI(page, dpi, ImageType.GRAY);
+        }
+
+        @Override
+        public void close() throws IOException {
+            document.close();
+        }
+    }
+
+    private static final class Tiff extends DocumentPages {
+        private final ImageInputStream in;
+        private final ImageReader reader;
+        private final int count;
+
+        Tiff(Path file) throws IOException {
+            in = ImageIO.createImageInputStream(file.toFile());
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                in.close();
+                throw new IllegalArgumentException("The TIFF could not be read");
+            }
+            reader = readers.next();
+            reader.setInput(in, false, true);
+            try {
+                count = reader.getNumImages(true);
+            } catch (IOException e) {
+                close();
+                throw new IllegalArgumentException("The TIFF could not be read: " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public int count() {
+            return count;
+        }
+
+        // Like ImageResizer, reads every n-th pixel of large pages instead of all of them
+        @Override
+        public synchronized BufferedImage render(int page, int maxDimension) throws IOException {
+            int longest = Math.max(reader.getWidth(page), reader.getHeight(page));
+            ImageReadParam param = reader.getDefaultReadParam();
+            int step = longest > maxDimension ? (int) Math.ceil((double) longest / maxDimension) : 1;
+            if (step > 1) param.setSourceSubsampling(step, step, 0, 0);
+            return reader.read(page, param);
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.dispose();
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.demo.util;
+
+import javax.imageio.IIOException;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * Shrinks uploaded photos before they are sent to the image host. The source is
+ * streamed, never held as one byte array, and large images are decoded with
+ * subsampling so only about twice the target size is ever in memory. The result is
+ * a JPEG with the EXIF orientation applied, since re-encoding drops the EXIF data.
+ */
+public final class ImageResizer {
+
+    // Opens the source again for each pass, e.g. MultipartFile::getInputStream
+    public interface Source {
+        InputStream open() throws IOException;
+    }
+
+    private ImageResizer() {
+    }
+
+    /**
+     * Writes a copy whose longest side is maxDimension to target and returns true.
+     * Returns false, leaving target alone, when the image is already small enough or is
+     * in a format ImageIO cannot decode; the caller then uploads the original.
+     */
+    public static boolean shrink(Source source, int maxDimension, float quality, Path target) throws IOException {
+        BufferedImage resized = decode(source, maxDimension, true);
+        if (resized == null) return false;
+        writeJpeg(resized, quality, target);
+        return true;
+    }
+
+    /**
+     * Decodes the image upright and with its longest side at most maxDimension, for
+     * callers that work on the pixels, such as OCR. Smaller images keep their size.
+     * Returns null when ImageIO cannot decode the format.
+     */
+    public static BufferedImage read(Source source, int maxDimension) throws IOException {
+        return decode(source, maxDimension, false);
+    }
+
+    // Null for undecodable images, and for small ones when onlyShrink is set
+    private static BufferedImage decode(Source source, int maxDimension, boolean onlyShrink) throws IOException {
+        int orientation;
+        try (InputStream in = source.open()) {
+            orientation = exifOrientation(in);
+        }
+
+        try (InputStream raw = source.open(); ImageInputStream in = ImageIO.createImageInputStream(raw)) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                int longest = Math.max(width, height);
+                if (longest <= maxDimension) {
+                    if (onlyShrink) return null;
+                    BufferedImage decoded = reader.read(0);
+                    return orientation == 1 ? decoded : draw(decoded, width, height, orientation);
+                }
+
+                // Reads every n-th pixel, leaving at most a 2x downscale for the smooth resize
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = longest / maxDimension;
+                if (step > 1) param.setSourceSubsampling(step, step, 0, 0);
+                BufferedImage decoded = reader.read(0, param);
+
+                double scale = (double) maxDimension / longest;
+                int scaledWidth = Math.max(1, (int) Math.round(width * scale));
+                int scaledHeight = Math.max(1, (int) Math.round(height * scale));
+                return draw(decoded, scaledWidth, scaledHeight, orientation);
+            } catch (IIOException e) {
+                // e.g. CMYK JPEGs, which ImageIO cannot decode
+                return null;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height, int orientation) {
+        boolean swapsSides = orientation >= 5 && orientation <= 8;
+        BufferedImage result = new BufferedImage(swapsSides ? height : width, swapsSides ? width : height,
+                BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = result.createGraphics();
+        try {
+            // JPEG has no transparency, so transparent areas become white instead of black
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, result.getWidth(), result.getHeight());
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            AffineTransform transform = orientationTransform(orientation, width, height);
+            transform.scale((double) width / source.getWidth(), (double) height / source.getHeight());
+            g.drawImage(source, transform, null);
+        } finally {
+            g.dispose();
+        }
+        return result;
+    }
+
+    // Maps the stored image (width x height) to how the camera meant it to be shown
+    private static AffineTransform orientationTransform(int orientation, int width, int height) {
+        switch (orientation) {
+            case 2: return new AffineTransform(-1, 0, 0, 1, width, 0);       // Mirrored
+            case 3: return new AffineTransform(-1, 0, 0, -1, width, height); // Upside down
+            case 4: return new AffineTransform(1, 0, 0, -1, 0, height);      // Mirrored upside down
+            case 5: return new AffineTransform(0, 1, 1, 0, 0, 0);            // Mirrored, rotated
+            case 6: return new AffineTransform(0, 1, -1, 0, height, 0);      // Rotated 90 clockwise
+            case 7: return new AffineTransform(0, -1, -1, 0, height, width); // Mirrored, rotated
+            case 8: return new AffineTransform(0, -1, 1, 0, 0, width);       // Rotated 90 counterclockwise
+            default: return new AffineTransform();
+        }
+    }
+
+    private static void writeJpeg(BufferedImage image, float quality, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * The EXIF orientation (1-8) of a JPEG, or 1 when the stream is not a JPEG or has
+     * none. Only the segments before the image data are read.
+     */
+    static int exifOrientation(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        try {
+            if (in.readUnsignedShort() != 0xFFD8) return 1;
+            while (true) {
+                int marker = in.readUnsignedShort();
+                // Start of scan: the image data follows and there was no EXIF segment
+                if ((marker & 0xFF00) != 0xFF00 || marker == 0xFFDA) return 1;
+                int length = in.readUnsignedShort() - 2;
+                if (length < 0) return 1;
+                if (marker == 0xFFE1) {
+                    byte[] segment = new byte[length];
+                    in.readFully(segment);
+                    if (length > 6 && new String(segment, 0, 6, StandardCharsets.ISO_8859_1).equals("Exif\0\0")) {
+                        return tiffOrientation(segment, 6);
+                    }
+                } else {
+                    in.skipNBytes(length);
+                }
+            }
+        } catch (EOFException e) {
+            return 1;
+        }
+    }
+
+    // Looks for the Orientation tag (0x0112) in IFD0 of the TIFF structure at offset tiff
+    private static int tiffOrientation(byte[] data, int tiff) {
+        if (data.length < tiff + 8) return 1;
+        boolean littleEndian = data[tiff] == 'I' && data[tiff + 1] == 'I';
+        int ifd = tiff + (int) readInt(data, tiff + 4, littleEndian);
+        if (ifd < tiff || ifd + 2 > data.length) return 1;
+        int entries = readShort(data, ifd, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > data.length) return 1;
+            if (readShort(data, entry, littleEndian) == 0x0112) {
+                int orientation = readShort(data, entry + 8, littleEndian);
+                return orientation >= 1 && orientation <= 8 ? orientation : 1;
+            }
+        }
+        return 1;
+    }
+
+    private static int readShort(byte[] data, int offset, boolean littleEndian) {
+        int a = data[offset] & 0xFF;
+        int b = data[offset + 1] & 0xFF;
+        return littleEndian ? (b << 8) | a : (a << 8) | b;
+    }
+
+    private static long readInt(byte[] data, int offset, boolean littleEndian) {
+        long high = readShort(data, offset + (littleEndian ? 2 : 0), littleEndian);
+        long low = readShort(data, offset + (littleEndian ? 0 : 2), littleEndian);
+        return (high << 16) | low;
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.demo.util;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+
+/**
+ * Prepares photos of booklists for Tesseract. The photo is turned to grayscale,
+ * straightened, and binarized with a local threshold, so a shadow across the page or
+ * the uneven light of a phone camera does not blank out whole lines the way one global
+ * threshold would. Downscaling happens earlier, while decoding (ImageResizer.read).
+ */
+public final class OcrPreprocessor {
+
+    // Pages photographed more crooked than this are left as they are
+    private static final double MAX_SKEW_DEGREES = 10;
+    // Smaller corrections do not change what Tesseract reads
+    private static final double MIN_SKEW_DEGREES = 0.2;
+    // The skew is measured on a copy with this longest side
+    private static final int SKEW_SAMPLE_DIMENSION = 1000;
+    // A pixel is ink when it is this much darker than the average around it (Bradley-Roth)
+    private static final double THRESHOLD = 0.15;
+
+    private OcrPreprocessor() {
+    }
+
+    /**
+     * The binarized, straightened page as an 8 bit grayscale image holding only black
+     * (ink) and white (paper) pixels.
+     */
+    public static BufferedImage prepare(BufferedImage image) {
+        Gray page = Gray.of(image);
+        double skew = estimateSkew(page);
+        if (Math.abs(skew) >= MIN_SKEW_DEGREES) {
+            page = rotate(page, Math.toRadians(skew));
+        }
+        return binarize(page).toImage();
+    }
+
+    /**
+     * The angle in degrees the text lines slope down to the right (positive) or up,
+     * found as the angle whose horizontal projection of the ink has the sharpest peaks.
+     * Searched in whole degrees first, then in tenths around the best one.
+     */
+    static double estimateSkew(BufferedImage image) {
+        return estimateSkew(Gray.of(image));
+    }
+
+    private static double estimateSkew(Gray page) {
+        Gray sample = page.scaledTo(SKEW_SAMPLE_DIMENSION);
+        Gray ink = binarize(sample);
+        int count = 0;
+        int[] xs = new int[ink.pixels.length];
+        int[] ys = new int[ink.pixels.length];
+        for (int y = 0; y < ink.height; y++) {
+            for (int x = 0; x < ink.width; x++) {
+                if (ink.pixels[y * ink.width + x] == 0) {
+                    xs[count] = x;
+                    ys[count] = y;
+                    count++;
+                }
+            }
+        }
+        if (count == 0) return 0;
+
+        double best = 0;
+        long bestScore = -1;
+        for (double angle = -MAX_SKEW_DEGREES; angle <= MAX_SKEW_DEGREES; angle += 1) {
+            long score = projectionScore(xs, ys, count, ink, angle);
+            if (score > bestScore) {
+                bestScore = score;
+                best = angle;
+            }
+        }
+        double coarse = best;
+        for (double angle = coarse - 0.9; angle <= coarse + 0.9; angle += 0.1) {
+            long score = projectionScore(xs, ys, count, ink, angle);
+            if (score > bestScore) {
+                bestScore = score;
+                best = angle;
+            }
+        }
+        return Math.round(best * 10) / 10.0;
+    }
+
+    // Sum of squared row counts after shearing the ink by the angle; peaks when rows line up with text
+    private static long projectionScore(int[] xs, int[] ys, int count, Gray ink, double degrees) {
+        double slope = Math.tan(Math.toRadians(degrees));
+        int offset = (int) Math.ceil(Math.abs(slope) * ink.width);
+        int[] rows = new int[ink.height + 2 * offset + 1];
+        for (int i = 0; i < count; i++) {
+            rows[(int) Math.round(ys[i] - xs[i] * slope) + offset]++;
+        }
+        long score = 0;
+        for (int row : rows) {
+            score += (long) row * row;
+        }
+        return score;
+    }
+
+    // Turns the page back by the angle on a canvas large enough for the corners, filling with paper
+    private static Gray rotate(Gray page, double radians) {
+        double cos = Math.cos(radians);
+        double sin = Math.sin(radians);
+        int width = (int) Math.ceil(page.width * Math.abs(cos) + page.height * Math.abs(sin));
+        int height = (int) Math.ceil(page.width * Math.abs(sin) + page.height * Math.abs(cos));
+        byte[] pixels = new byte[width * height];
+        double centerX = (page.width - 1) / 2.0;
+        double centerY = (page.height - 1) / 2.0;
+        double targetCenterX = (width - 1) / 2.0;
+        double targetCenterY = (height - 1) / 2.0;
+        for (int y = 0; y < height; y++) {
+            double dy = y - targetCenterY;
+            for (int x = 0; x < width; x++) {
+                double dx = x - targetCenterX;
+                double sourceX = centerX + dx * cos - dy * sin;
+                double sourceY = centerY + dx * sin + dy * cos;
+                pixels[y * width + x] = (byte) page.sample(sourceX, sourceY);
+            }
+        }
+        return new Gray(width, height, pixels);
+    }
+
+    /**
+     * Bradley-Roth adaptive threshold: a pixel is ink when it is THRESHOLD darker than the
+     * mean of the window around it. The window means come from an integral image, so the
+     * cost does not depend on the window size.
+     */
+    private static Gray binarize(Gray page) {
+        int width = page.width;
+        int height = page.height;
+        int half = Math.max(7, Math.max(width, height) / 48);
+        // int sums may overflow on large pages, but every window sum fits, and the
+        // differences below are exact in two's complement arithmetic
+        int[] integral = new int[(width + 1) * (height + 1)];
+        for (int y = 0; y < height; y++) {
+            int rowSum = 0;
+            for (int x = 0; x < width; x++) {
+                rowSum += page.pixels[y * width + x] & 0xFF;
+                integral[(y + 1) * (width + 1) + x + 1] = integral[y * (width + 1) + x + 1] + rowSum;
+            }
+        }
+
+        byte[] result = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            int top = Math.max(0, y - half);
+            int bottom = Math.min(height, y + half + 1);
+            for (int x = 0; x < width; x++) {
+                int left = Math.max(0, x - half);
+                int right = Math.min(width, x + half + 1);
+                int sum = integral[bottom * (width + 1) + right] - integral[top * (width + 1) + right]
+                        - integral[bottom * (width + 1) + left] + integral[top * (width + 1) + left];
+                long area = (long) (right - left) * (bottom - top);
+                int value = page.pixels[y * width + x] & 0xFF;
+                boolean ink = value * area <= (long) (sum * (1 - THRESHOLD));
+                result[y * width + x] = (byte) (ink ? 0 : 255);
+            }
+        }
+        return new Gray(width, height, result);
+    }
+
+    // An 8 bit grayscale page as a plain array, which the loops above can index directly
+    private static final class Gray {
+        final int width;
+        final int height;
+        final byte[] pixels;
+
+        Gray(int width, int height, byte[] pixels) {
+            this.width = width;
+            this.height = height;
+            this.pixels = pixels;
+        }
+
+        static Gray of(BufferedImage image) {
+            BufferedImage gray = image;
+            if (image.getType() != BufferedImage.TYPE_BYTE_GRAY || image.getRaster().getParent() != null) {
+                gray = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+                Graphics2D g = gray.createGraphics();
+                try {
+                    // Transparent areas become paper
+                    g.setColor(Color.WHITE);
+                    g.fillRect(0, 0, gray.getWidth(), gray.getHeight());
+                    g.drawImage(image, 0, 0, null);
+                } finally {
+                    g.dispose();
+                }
+            }
+            byte[] pixels = ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+            return new Gray(gray.getWidth(), gray.getHeight(), pixels);
+        }
+
+        // Nearest neighbour copy with the longest side at most maxDimension
+        Gray scaledTo(int maxDimension) {
+            int step = (Math.max(width, height) + maxDimension - 1) / maxDimension;
+            if (step <= 1) return this;
+            int scaledWidth = width / step;
+            int scaledHeight = height / step;
+            byte[] scaled = new byte[scaledWidth * scaledHeight];
+            for (int y = 0; y < scaledHeight; y++) {
+                for (int x = 0; x < scaledWidth; x++) {
+                    scaled[y * scaledWidth + x] = pixels[y * step * width + x * step];
+                }
+            }
+            return new Gray(scaledWidth, scaledHeight, scaled);
+        }
+
+        // Bilinear sample; outside the page is white paper
+        int sample(double x, double y) {
+            int x0 = (int) Math.floor(x);
+            int y0 = (int) Math.floor(y);
+            if (x0 < -1 || y0 < -1 || x0 >= width || y0 >= height) return 255;
+            double fx = x - x0;
+            double fy = y - y0;
+            double top = value(x0, y0) * (1 - fx) + value(x0 + 1, y0) * fx;
+            double bottom = value(x0, y0 + 1) * (1 - fx) + value(x0 + 1, y0 + 1) * fx;
+            return (int) Math.round(top * (1 - fy) + bottom * fy);
+        }
+
+        private int value(int x, int y) {
+            if (x < 0 || y < 0 || x >= width || y >= height) return 255;
+            return pixels[y * width + x] & 0xFF;
+        }
+
+        BufferedImage toImage() {
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+            image.getRaster().setDataElements(0, 0, width, height, pixels);
+            return image;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.demo.util;
+
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of the last row of a keyset page: the sort key value and id of that row,
+ * plus the sort it was taken from. Clients only see it as an opaque "after" token.
+ */
+public final class PageCursor {
+
+    private final String sortProperty;
+    private final Sort.Direction direction;
+    private final long id;
+    private final String value;
+
+    public PageCursor(String sortProperty, Sort.Direction direction, long id, String value) {
+        this.sortProperty = sortProperty;
+        this.direction = direction;
+        this.id = id;
+        this.value = value;
+    }
+
+    public String encode() {
+        String raw = sortProperty + "|" + direction + "|" + id + "|" + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            // The value goes last because a name may itself contain the separator
+            String[] parts = raw.split("\\|", 4);
+            if (parts.length != 4) throw new IllegalArgumentException("Invalid page cursor");
+            return new PageCursor(parts[0], Sort.Direction.valueOf(parts[1]), Long.parseLong(parts[2]), parts[3]);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page cursor");
+        }
+    }
+
+    public String getSortProperty() {
+        return sortProperty;
+    }
+
+    public Sort.Direction getDirection() {
+        return direction;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getValue() {
+        return value;
+    }
+}
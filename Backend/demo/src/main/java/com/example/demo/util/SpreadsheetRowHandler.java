@@ -0,0 +1,12 @@
+package com.example.demo.util;
+
+import java.util.List;
+
+// Receives the rows of an uploaded CSV or Excel sheet one at a time, header row included
+@FunctionalInterface
+public interface SpreadsheetRowHandler {
+
+    // rowNumber is 1-based like in a spreadsheet, empty cells are ""
+    // The readers may reuse the cells list for the next row, so copy it to keep it
+    void row(int rowNumber, List<String> cells);
+}
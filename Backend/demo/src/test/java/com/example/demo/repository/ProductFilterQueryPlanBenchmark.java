@@ -0,0 +1,177 @@
+package com.example.demo.repository;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Compares the MySQL plans of the old catch-all filter query with the queries
+ * ProductSpecifications emits, on a 500k row copy of the product table.
+ * Needs a MySQL database, so it only runs when asked for:
+ *
+ * mvn test -Dtest=ProductFilterQueryPlanBenchmark -Dbenchmark.jdbc.url=jdbc:mysql://localhost:3306/heladeepaBP
+ *          -Dbenchmark.jdbc.username=heladeepaBP -Dbenchmark.jdbc.password=HBP123
+ */
+@EnabledIfSystemProperty(named = "benchmark.jdbc.url", matches = ".+")
+class ProductFilterQueryPlanBenchmark {
+
+    private static final int ROWS = 500_000;
+    private static final int CATEGORIES = 40;
+    private static final int RUNS = 5;
+
+    // Same columns and indexes Hibernate creates for the Product entity
+    private static final String CREATE_TABLE = "CREATE TABLE bench_product (" +
+            "id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(255), author VARCHAR(255), " +
+            "publisher VARCHAR(255), price DOUBLE NOT NULL, stock INT NOT NULL, category_id BIGINT, " +
+            "INDEX idx_bench_category (category_id), INDEX idx_bench_price (price), " +
+            "INDEX idx_bench_author (author), INDEX idx_bench_publisher (publisher))";
+
+    // The SQL Hibernate generated for the removed findProductsWithFilters
+    private static final String CATCH_ALL = "SELECT * FROM bench_product p WHERE " +
+            "(? IS NULL OR p.price >= ?) AND (? IS NULL OR p.price <= ?) AND " +
+            "(? IS NULL OR p.category_id = ?) AND " +
+            "(? IS NULL OR LOWER(p.author) LIKE LOWER(CONCAT('%', ?, '%'))) AND " +
+            "(? IS NULL OR LOWER(p.publisher) LIKE LOWER(CONCAT('%', ?, '%'))) AND " +
+            "(? IS NULL OR (p.stock > 0 AND ? = TRUE) OR (p.stock = 0 AND ? = FALSE)) LIMIT 10";
+
+    private static Connection connection;
+
+    @BeforeAll
+    static void createTable() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("benchmark.jdbc.url") + "?rewriteBatchedStatements=true&useServerPrepStmts=true",
+                System.getProperty("benchmark.jdbc.username"),
+                System.getProperty("benchmark.jdbc.password"));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS bench_product");
+            statement.execute(CREATE_TABLE);
+        }
+
+        Random random = new Random(42);
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO bench_product (name, author, publisher, price, stock, category_id) VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < ROWS; i++) {
+                insert.setString(1, "Book " + i);
+                insert.setString(2, "Author " + random.nextInt(20_000));
+                insert.setString(3, "Publisher " + random.nextInt(500));
+                insert.setDouble(4, 100 + random.nextInt(9_900));
+                insert.setInt(5, random.nextInt(10) == 0 ? 0 : random.nextInt(50));
+                insert.setLong(6, 1 + random.nextInt(CATEGORIES));
+                insert.addBatch();
+                if (i % 5_000 == 4_999) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE TABLE bench_product");
+        }
+    }
+
+    @AfterAll
+    static void dropTable() throws SQLException {
+        if (connection == null) return;
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS bench_product");
+        }
+        connection.close();
+    }
+
+    @Test
+    void categoryFilter() throws SQLException {
+        compare("category",
+                catchAll(null, null, 7L, null, null, null),
+                new Query("SELECT * FROM bench_product p WHERE p.category_id = ? LIMIT 10", 7L));
+    }
+
+    @Test
+    void authorFilter() throws SQLException {
+        compare("author",
+                catchAll(null, null, null, "Author 1234", null, null),
+                new Query("SELECT * FROM bench_product p WHERE p.author LIKE ? ESCAPE '\\\\' LIMIT 10", "Author 1234%"));
+    }
+
+    @Test
+    void priceRangeAndCategories() throws SQLException {
+        compare("price + categories",
+                catchAll(9_000.0, 9_050.0, 3L, null, null, true),
+                new Query("SELECT * FROM bench_product p WHERE p.price >= ? AND p.price <= ? " +
+                        "AND p.category_id IN (?, ?) AND p.stock > ? LIMIT 10", 9_000.0, 9_050.0, 3L, 4L, 0));
+    }
+
+    private void compare(String name, Query before, Query after) throws SQLException {
+        Plan oldPlan = explain(before);
+        Plan newPlan = explain(after);
+        System.out.printf("%-20s catch-all: type=%s key=%s rows=%s %.2f ms | builder: type=%s key=%s rows=%s %.2f ms%n",
+                name, oldPlan.type, oldPlan.key, oldPlan.rows, time(before),
+                newPlan.type, newPlan.key, newPlan.rows, time(after));
+        assertNotNull(newPlan.key, "Filter query for " + name + " should use an index");
+    }
+
+    private static Query catchAll(Double minPrice, Double maxPrice, Long categoryId,
+                                  String author, String publisher, Boolean inStock) {
+        return new Query(CATCH_ALL, minPrice, minPrice, maxPrice, maxPrice, categoryId, categoryId,
+                author, author, publisher, publisher, inStock, inStock, inStock);
+    }
+
+    private Plan explain(Query query) throws SQLException {
+        try (PreparedStatement statement = query.prepare("EXPLAIN " + query.sql);
+             ResultSet result = statement.executeQuery()) {
+            result.next();
+            return new Plan(result.getString("type"), result.getString("key"), result.getString("rows"));
+        }
+    }
+
+    // Median execution time over a few runs, after one warm up run
+    private double time(Query query) throws SQLException {
+        List<Long> timings = new ArrayList<>();
+        for (int run = 0; run <= RUNS; run++) {
+            long start = System.nanoTime();
+            try (PreparedStatement statement = query.prepare(query.sql);
+                 ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    // Read every row like the repository would
+                }
+            }
+            if (run > 0) timings.add(System.nanoTime() - start);
+        }
+        long[] sorted = timings.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2] / 1_000_000.0;
+    }
+
+    private record Plan(String type, String key, String rows) {
+    }
+
+    private static final class Query {
+        final String sql;
+        final Object[] parameters;
+
+        Query(String sql, Object... parameters) {
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+
+        PreparedStatement prepare(String statementSql) throws SQLException {
+            PreparedStatement statement = connection.prepareStatement(statementSql);
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            return statement;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.demo.repository;
+
+import com.example.demo.TestDatabase;
+import com.example.demo.entity.Category;
+import com.example.demo.entity.Product;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductProjectionRepositoryTest {
+
+    private static final Specification<Product> ALL = (root, query, cb) -> null;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    private List<Product> products;
+
+    @BeforeAll
+    static void clearDatabase(@Autowired JdbcTemplate jdbcTemplate) {
+        TestDatabase.clear(jdbcTemplate);
+    }
+
+    @BeforeEach
+    void seed() {
+        productRepository.deleteAll();
+        Category textbooks = categoryRepository.findAll().stream().findFirst().orElseGet(() -> {
+            Category category = new Category();
+            category.setName("Textbooks");
+            return categoryRepository.save(category);
+        });
+
+        Product maths = new Product("Grade 6 Maths", "For the 2025 syllabus", "/images/m6.jpg", 450, 12, textbooks);
+        maths.setMediumImageUrl("/images/m6-medium.jpg");
+        maths.setThumbnailUrl("/images/m6-thumb.jpg");
+        maths.setAuthor("A. Perera");
+        maths.setPublisher("Sarasavi");
+        maths.setBarcode("9789550000061");
+        maths.setReleaseDate(LocalDate.of(2025, 1, 6));
+        maths.setPreOrderAvailable(true);
+        // No category, image variants or barcode: the category join must not drop it
+        Product notebook = new Product("Square Ruled Book", null, "/images/sq.jpg", 120, 0, null);
+        products = productRepository.saveAll(List.of(maths, notebook));
+    }
+
+    private void assertRowsMatch(List<String> fields, List<Map<String, Object>> rows) {
+        assertEquals(products.size(), rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(fields, new ArrayList<>(rows.get(i).keySet()));
+            assertEquals(ProductFields.project(products.get(i), fields), rows.get(i));
+        }
+    }
+
+    @Test
+    void summaryRowsHoldTheGridColumns() {
+        Page<Map<String, Object>> page = productRepository.findProjected(ALL, ProductFields.SUMMARY,
+                PageRequest.of(0, 10, Sort.by("id")));
+
+        assertRowsMatch(ProductFields.SUMMARY, page.getContent());
+        assertEquals(2, page.getTotalElements());
+        Map<String, Object> maths = page.getContent().get(0);
+        assertEquals("/images/m6-thumb.jpg", maths.get("thumbnailUrl"));
+        assertEquals(450.0, maths.get("price"));
+        assertEquals(12, maths.get("stock"));
+        assertFalse(maths.containsKey("description"));
+    }
+
+    @Test
+    void detailRowsHoldTheProductPageColumns() {
+        List<Map<String, Object>> rows = productRepository.findProjected(
+                ALL.and((root, query, cb) -> {
+                    query.orderBy(cb.asc(root.get("id")));
+                    return null;
+                }), ProductFields.DETAIL, 10);
+
+        assertRowsMatch(ProductFields.DETAIL, rows);
+        Map<String, Object> maths = rows.get(0);
+        assertEquals("For the 2025 syllabus", maths.get("description"));
+        assertEquals(LocalDate.of(2025, 1, 6), maths.get("releaseDate"));
+        assertEquals(true, maths.get("preOrderAvailable"));
+        assertEquals("Textbooks", maths.get("categoryName"));
+        assertNull(rows.get(1).get("categoryId"));
+        assertNull(rows.get(1).get("categoryName"));
+    }
+
+    @Test
+    void selectorsExpandToTheFieldSets() {
+        assertEquals(ProductFields.SUMMARY, ProductFields.parse("summary"));
+        assertEquals(ProductFields.DETAIL, ProductFields.parse("detail"));
+        assertEquals(List.of("id", "name"), ProductFields.parse("id, name, password"));
+        assertNull(ProductFields.parse(" "));
+    }
+}
@@ -0,0 +1,338 @@
+package com.example.demo.service;
+
+import com.example.demo.TestDatabase;
+import com.example.demo.dto.FileValidationResult;
+import com.example.demo.dto.RowError;
+import com.example.demo.entity.Category;
+import com.example.demo.repository.CategoryRepository;
+import com.example.demo.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookImportServiceTest {
+
+    private static final String HEADER = "name,description,imageurl,price,stock,author,publisher,category,barcode";
+    private static final String BOOK_COLUMNS = "SELECT name, description, image_url, price, stock, author, " +
+            "publisher, category_id, barcode FROM product ORDER BY id";
+    // Books already in the catalog before a merge
+    private static final String EXISTING_SQL = "INSERT INTO product (name, description, image_url, " +
+            "image_source_url, medium_image_url, thumbnail_url, price, stock, author, publisher, category_id, " +
+            "barcode, pre_order_available, pre_ordered_quantity, version) " +
+            "VALUES (?, 'Reader', ?, ?, ?, ?, ?, 5, ?, 'Sarasavi', ?, ?, false, 0, 0)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @TempDir
+    private Path tempDir;
+
+    private final ForkJoinPool parallelPool = new ForkJoinPool(4);
+    private final ForkJoinPool sequentialPool = new ForkJoinPool(1);
+
+    @BeforeAll
+    static void clearDatabase(@Autowired JdbcTemplate jdbcTemplate) {
+        TestDatabase.clear(jdbcTemplate);
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM product");
+        if (categoryRepository.findAll().isEmpty()) {
+            Category textbooks = new Category();
+            textbooks.setName("Textbooks");
+            categoryRepository.save(textbooks);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        parallelPool.shutdownNow();
+        sequentialPool.shutdownNow();
+    }
+
+    private BookImportService service(ForkJoinPool pool, int batchSize, int chunkSize) {
+        return new BookImportService(jdbcTemplate, transactionTemplate, categoryRepository,
+                mock(CatalogChangeNotifier.class), mock(ImageIngestionService.class), pool, batchSize, chunkSize);
+    }
+
+    private Path csv(List<String> rows) throws Exception {
+        List<String> lines = new ArrayList<>();
+        lines.add(HEADER);
+        lines.addAll(rows);
+        Path file = Files.createTempFile(tempDir, "books", ".csv");
+        Files.write(file, lines, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static String row(int i, String price, String stock, String category) {
+        return "Book " + i + ",Grade " + (i % 13) + " reader,https://img.example.com/" + i + ".jpg," + price + ","
+                + stock + ",Author " + (i % 7) + ",Publisher " + (i % 3) + "," + category + ",978" + (1000000000 + i);
+    }
+
+    private static List<String> errors(FileValidationResult result) {
+        List<String> errors = new ArrayList<>();
+        for (RowError error : result.getErrors()) {
+            errors.add(error.getRowNumber() + ": " + error.getMessage());
+        }
+        return errors;
+    }
+
+    private FileValidationResult importFile(BookImportService service, Path file,
+                                            BookImportService.ImportMode mode) throws Exception {
+        return service.importBooks(file, "books.csv", mode, new BookImportService.ImportProgress() {
+            @Override
+            public void rowProcessed() {
+            }
+
+            @Override
+            public void rowFailed(RowError error) {
+            }
+        });
+    }
+
+    // The outcome of a merge: its result and what the progress callbacks counted
+    private static class Counts implements BookImportService.ImportProgress {
+        FileValidationResult result;
+        int inserted;
+        int updated;
+        int unchanged;
+
+        @Override
+        public void rowProcessed() {
+        }
+
+        @Override
+        public void rowFailed(RowError error) {
+        }
+
+        @Override
+        public void rowsInserted(int count) {
+            inserted += count;
+        }
+
+        @Override
+        public void rowsUpdated(int count) {
+            updated += count;
+        }
+
+        @Override
+        public void rowsUnchanged(int count) {
+            unchanged += count;
+        }
+    }
+
+    private long textbooksId() {
+        return categoryRepository.findAll().get(0).getId();
+    }
+
+    private long existing(String name, String author, String barcode, String imageUrl, String sourceUrl, double price) {
+        String variant = sourceUrl == null ? null : imageUrl.replace(".jpg", "");
+        jdbcTemplate.update(EXISTING_SQL, name, imageUrl, sourceUrl, variant == null ? null : variant + "-medium.jpg",
+                variant == null ? null : variant + "-thumb.jpg", price, author, textbooksId(), barcode);
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM product", Long.class);
+    }
+
+    private static String mergeRow(String name, String author, String barcode, String imageUrl, double price) {
+        return name + ",Reader," + imageUrl + "," + price + ",5," + author + ",Sarasavi,Textbooks," + (barcode == null ? "" : barcode);
+    }
+
+    private Counts merge(String... rows) throws Exception {
+        Counts counts = new Counts();
+        counts.result = service(parallelPool, 2, 3).importBooks(csv(List.of(rows)), "books.csv",
+                BookImportService.ImportMode.MERGE, counts);
+        return counts;
+    }
+
+    private String column(long id, String column) {
+        return jdbcTemplate.queryForObject("SELECT " + column + " FROM product WHERE id = ?", String.class, id);
+    }
+
+    @Test
+    void mergeUpdatesTheBookWithTheSameBarcode() throws Exception {
+        long id = existing("Grade 6 Maths", "A. Perera", "9780000000001", "https://img.example.com/m6.jpg", null, 100);
+
+        Counts counts = merge(
+                mergeRow("Grade 6 Mathematics", "A. Perera", "9780000000001", "https://img.example.com/m6.jpg", 150));
+
+        assertTrue(counts.result.isValid(), () -> errors(counts.result).toString());
+        assertEquals(1, counts.updated);
+        assertEquals(0, counts.inserted);
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product", Integer.class));
+        assertEquals("Grade 6 Mathematics", column(id, "name"));
+        assertEquals(150.0, Double.parseDouble(column(id, "price")));
+        // The import moved the version, so a product edit that read the book earlier fails instead of undoing it
+        assertEquals("1", column(id, "version"));
+    }
+
+    @Test
+    void mergeFallsBackToNameAndAuthor() throws Exception {
+        long withoutBarcode = existing("Grade 7 Science", "K. Silva", null, "https://img.example.com/s7.jpg", null, 200);
+        long otherEdition = existing("Grade 8 Science", "K. Silva", "9780000000008", "https://img.example.com/s8.jpg", null, 300);
+
+        Counts counts = merge(
+                // Found by name and author, and given the barcode from the sheet
+                mergeRow("Grade 7 Science", "K. Silva", "9780000000007", "https://img.example.com/s7.jpg", 220),
+                // Same name and author as a book with another barcode: a new edition
+                mergeRow("Grade 8 Science", "K. Silva", "9780000000099", "https://img.example.com/s8.jpg", 300));
+
+        assertTrue(counts.result.isValid(), () -> errors(counts.result).toString());
+        assertEquals(1, counts.updated);
+        assertEquals(1, counts.inserted);
+        assertEquals("9780000000007", column(withoutBarcode, "barcode"));
+        assertEquals(220.0, Double.parseDouble(column(withoutBarcode, "price")));
+        assertEquals("9780000000008", column(otherEdition, "barcode"));
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product", Integer.class));
+    }
+
+    @Test
+    void mergeRejectsRowsThatMatchTheSameBook() throws Exception {
+        long id = existing("Grade 9 History", "N. Fernando", "9780000000009", "https://img.example.com/h9.jpg", null, 400);
+
+        Counts duplicate = merge(
+                mergeRow("Grade 9 History", "N. Fernando", "9780000000009", "https://img.example.com/h9.jpg", 410),
+                mergeRow("Grade 9 History", "N. Fernando", "9780000000009", "https://img.example.com/h9.jpg", 420));
+        assertEquals(List.of("3: Duplicate of row 2."), errors(duplicate.result));
+
+        // Different keys in the sheet, but the barcode and the name and author find the same book
+        Counts ambiguous = merge(
+                mergeRow("Grade 9 History", "N. Fernando", "9780000000009", "https://img.example.com/h9.jpg", 410),
+                mergeRow("Grade 9 History", "N. Fernando", null, "https://img.example.com/h9.jpg", 420));
+        assertEquals(List.of("3: Matches the same book as an earlier row."), errors(ambiguous.result));
+
+        // Nothing is written from a sheet with an error
+        assertEquals(400.0, Double.parseDouble(column(id, "price")));
+    }
+
+    @Test
+    void mergeKeepsImagesAlreadyCopiedToTheStore() throws Exception {
+        long copied = existing("Grade 10 ICT", "R. Jayasinghe", "9780000000010", "https://store.example.com/ict10.jpg",
+                "https://supplier.example.com/ict10.jpg", 500);
+        long replaced = existing("Grade 11 ICT", "R. Jayasinghe", "9780000000011", "https://store.example.com/ict11.jpg",
+                "https://supplier.example.com/ict11.jpg", 500);
+
+        Counts counts = merge(
+                // The supplier's URL of an image the store already holds is not a change
+                mergeRow("Grade 10 ICT", "R. Jayasinghe", "9780000000010", "https://supplier.example.com/ict10.jpg", 500),
+                mergeRow("Grade 11 ICT", "R. Jayasinghe", "9780000000011", "https://supplier.example.com/ict11-v2.jpg", 500));
+
+        assertTrue(counts.result.isValid(), () -> errors(counts.result).toString());
+        assertEquals(1, counts.unchanged);
+        assertEquals(1, counts.updated);
+        assertEquals("https://store.example.com/ict10.jpg", column(copied, "image_url"));
+        assertEquals("https://store.example.com/ict10-medium.jpg", column(copied, "medium_image_url"));
+        assertEquals("https://supplier.example.com/ict11-v2.jpg", column(replaced, "image_url"));
+        // The variants of the old image are dropped until ingestion makes new ones
+        assertNull(column(replaced, "medium_image_url"));
+        assertNull(column(replaced, "thumbnail_url"));
+        assertNull(column(replaced, "image_source_url"));
+    }
+
+    @Test
+    void mergeDoesNotUndoStockTakenWhileTheFileIsImported() throws Exception {
+        long id = existing("Grade 5 Sinhala", "S. Dias", "9780000000005", "https://img.example.com/si5.jpg", null, 250);
+
+        // The batch's new books are inserted after its existing ones were read and before they are
+        // updated; a checkout reserves a copy from another transaction in between
+        Counts counts = new Counts() {
+            @Override
+            public void rowsInserted(int count) {
+                super.rowsInserted(count);
+                assertEquals(1, CompletableFuture.supplyAsync(() -> productRepository.takeStock(id, 1)).join());
+            }
+        };
+        counts.result = service(parallelPool, 2, 3).importBooks(csv(List.of(
+                        "Grade 5 Sinhala,Reader,https://img.example.com/si5.jpg,250,8,S. Dias,Sarasavi,Textbooks,9780000000005",
+                        mergeRow("Grade 5 Tamil", "S. Dias", "9780000000055", "https://img.example.com/ta5.jpg", 250))),
+                "books.csv", BookImportService.ImportMode.MERGE, counts);
+
+        assertEquals(List.of("2: The book was changed, e.g. sold, while the file was imported. " +
+                "Please upload the file again."), errors(counts.result));
+        // The sheet's 8 copies did not overwrite the sale, and nothing from the sheet was kept
+        assertEquals("4", column(id, "stock"));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product", Integer.class));
+    }
+
+    @Test
+    void parallelValidationReportsTheSameErrorsInRowOrder() throws Exception {
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            if (i % 11 == 3) {
+                rows.add(row(i, "free", "-2", "Textbooks"));
+            } else if (i % 7 == 5) {
+                rows.add(row(i, "250", "4", "Comics"));
+            } else if (i % 13 == 8) {
+                rows.add(",,,,,,,,");
+                rows.add("Book " + i + ",,,,,,,,");
+            } else {
+                rows.add(row(i, String.valueOf(100 + i), String.valueOf(i % 5), "Textbooks"));
+            }
+        }
+        Path file = csv(rows);
+
+        FileValidationResult sequential = importFile(service(sequentialPool, 1000, 1000), file,
+                BookImportService.ImportMode.INSERT);
+        FileValidationResult parallel = importFile(service(parallelPool, 2, 3), file,
+                BookImportService.ImportMode.INSERT);
+
+        assertFalse(parallel.isValid());
+        assertEquals(errors(sequential), errors(parallel));
+        List<Integer> rowNumbers = parallel.getErrors().stream().map(RowError::getRowNumber).toList();
+        assertEquals(rowNumbers.stream().sorted().toList(), rowNumbers);
+        // Both messages of a row with a bad price and a negative stock are kept
+        assertTrue(errors(parallel).contains("5: Invalid price format."));
+        assertTrue(errors(parallel).contains("5: Stock should be a non-negative integer."));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product", Integer.class));
+    }
+
+    @Test
+    void parallelValidationInsertsTheSameBooks() throws Exception {
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            rows.add(row(i, String.valueOf(100 + i), String.valueOf(i % 5), i % 2 == 0 ? "Textbooks" : "textbooks"));
+        }
+        Path file = csv(rows);
+
+        assertTrue(importFile(service(sequentialPool, 1000, 1000), file, BookImportService.ImportMode.INSERT).isValid());
+        List<?> sequential = jdbcTemplate.queryForList(BOOK_COLUMNS);
+        jdbcTemplate.update("DELETE FROM product");
+
+        assertTrue(importFile(service(parallelPool, 2, 3), file, BookImportService.ImportMode.INSERT).isValid());
+        List<?> parallel = jdbcTemplate.queryForList(BOOK_COLUMNS);
+
+        assertEquals(50, parallel.size());
+        assertEquals(sequential, parallel);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.demo.service;
+
+import com.example.demo.TestDatabase;
+import com.example.demo.entity.BookItem;
+import com.example.demo.entity.Booklist;
+import com.example.demo.entity.Role;
+import com.example.demo.entity.User;
+import com.example.demo.repository.BooklistRepository;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BooklistOcrServiceTest {
+
+    private static final String EMAIL = "parent@example.com";
+
+    @Autowired
+    private BooklistRepository booklistRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final ImageUploadService imageUploadService = mock(ImageUploadService.class);
+    private final OCRService ocrService = mock(OCRService.class);
+    private final EmailService emailService = mock(EmailService.class);
+    // The photo is only read when the test runs the queued tasks
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    private BooklistOcrService service;
+
+    @BeforeAll
+    static void clearDatabase(@Autowired JdbcTemplate jdbcTemplate) {
+        TestDatabase.clear(jdbcTemplate);
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        booklistRepository.deleteAll();
+        if (userRepository.findByEmail(EMAIL).isEmpty()) {
+            User parent = new User();
+            parent.setEmail(EMAIL);
+            parent.setPassword("secret");
+            parent.setRole(Role.CUSTOMER);
+            userRepository.save(parent);
+        }
+        when(imageUploadService.uploadImage(any(), anyString(), anyInt()))
+                .thenReturn(new ImageStore.StoredImage("/images/booklist.jpg", null, null));
+        when(ocrService.recognize(any())).thenReturn("Grade 6 Maths x2");
+        when(ocrService.parseBookItems(anyString())).thenReturn(List.of(new BookItem("Grade 6 Maths", 2)));
+        service = new BooklistOcrService(booklistRepository, userRepository, imageUploadService, ocrService,
+                emailService, tasks::add, transactionTemplate, 2400);
+    }
+
+    private Booklist upload() throws Exception {
+        return service.submit(new MockMultipartFile("image", "list.jpg", "image/jpeg", new byte[]{1, 2, 3, 4}),
+                EMAIL, "Grade 6");
+    }
+
+    private void readPhoto() {
+        while (!tasks.isEmpty()) tasks.poll().run();
+    }
+
+    // Books are loaded lazily, so the booklist is read back in a transaction
+    private Booklist reload(Long id) {
+        return transactionTemplate.execute(status -> {
+            Booklist booklist = booklistRepository.findById(id).orElseThrow();
+            booklist.getBooks().size();
+            return booklist;
+        });
+    }
+
+    @Test
+    void theReadBooksMakeTheBooklistPending() throws Exception {
+        Booklist booklist = upload();
+        readPhoto();
+
+        Booklist read = reload(booklist.getId());
+        assertEquals(Booklist.BooklistStatus.PENDING, read.getStatus());
+        assertEquals("/images/booklist.jpg", read.getImageUrl());
+        assertEquals("Grade 6 Maths", read.getBooks().get(0).getTitle());
+        verify(emailService).sendAdminBooklistNotification(any());
+    }
+
+    @Test
+    void aBooklistSubmittedWhileItsPhotoIsReadKeepsTheCustomersBooks() throws Exception {
+        Booklist booklist = upload();
+
+        // The customer types the list in and submits it before the photo is read
+        Booklist edited = reload(booklist.getId());
+        edited.setBooks(List.of(new BookItem("Grade 6 Science", 1)));
+        edited.setStatus(Booklist.BooklistStatus.SUBMITTED);
+        booklistRepository.save(edited);
+        readPhoto();
+
+        Booklist read = reload(booklist.getId());
+        assertEquals(Booklist.BooklistStatus.SUBMITTED, read.getStatus());
+        assertEquals(1, read.getBooks().size());
+        assertEquals("Grade 6 Science", read.getBooks().get(0).getTitle());
+        assertEquals("/images/booklist.jpg", read.getImageUrl());
+        verify(emailService, never()).sendAdminBooklistNotification(any());
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.demo.service;
+
+import com.example.demo.TestDatabase;
+import com.example.demo.entity.Product;
+import com.example.demo.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({CatalogVersion.class, CatalogChangeNotifier.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CatalogVersionTest {
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private CatalogChangeNotifier catalogChangeNotifier;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeAll
+    static void clearDatabase(@Autowired JdbcTemplate jdbcTemplate) {
+        TestDatabase.clear(jdbcTemplate);
+    }
+
+    @Test
+    void theETagMovesOnlyOnceTheWriteCommits() {
+        String before = catalogVersion.getETag();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            catalogChangeNotifier.productSaved(productRepository.save(
+                    new Product("Grade 8 English", null, null, 300, 4, null)));
+            catalogVersion.changed();
+            // A request arriving now reads the old rows, so it must get the old tag
+            assertEquals(before, catalogVersion.getETag());
+        });
+
+        assertNotEquals(before, catalogVersion.getETag());
+    }
+
+    @Test
+    void aRolledBackWriteKeepsTheETag() {
+        String before = catalogVersion.getETag();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            catalogChangeNotifier.productSaved(productRepository.save(
+                    new Product("Grade 8 Sinhala", null, null, 300, 4, null)));
+            catalogVersion.changed();
+            status.setRollbackOnly();
+        });
+
+        assertEquals(before, catalogVersion.getETag());
+    }
+
+    @Test
+    void changesOutsideATransactionMoveItAtOnce() {
+        String before = catalogVersion.getETag();
+        catalogVersion.changed();
+        assertNotEquals(before, catalogVersion.getETag());
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Product;
+import com.example.demo.repository.ProductRepository;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs the image pipeline offline: images come from an in-process HTTP server and go to
+ * the local image store in a temp directory.
+ */
+class ImageIngestionServiceTest {
+
+    private static final byte[] COVER = "same cover bytes".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path storeDirectory;
+
+    private HttpServer server;
+    private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+    private ThreadPoolTaskExecutor executor;
+    private JdbcTemplate jdbcTemplate;
+    private CatalogChangeNotifier catalogChangeNotifier;
+    private ImageIngestionService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            int count = requests.computeIfAbsent(path, key -> new AtomicInteger()).incrementAndGet();
+            int status = 200;
+            byte[] body = COVER;
+            if (path.startsWith("/flaky") && count == 1) status = 503;
+            if (path.startsWith("/missing")) status = 404;
+            if (path.startsWith("/other")) body = "another cover".getBytes(StandardCharsets.UTF_8);
+            if (path.startsWith("/photo")) body = photo(1000, 800);
+            if (path.startsWith("/moved")) {
+                status = 302;
+                exchange.getResponseHeaders().add("Location", "/a.jpg");
+            }
+            exchange.getResponseHeaders().add("Content-Type", "image/jpeg");
+            exchange.sendResponseHeaders(status, status == 200 ? body.length : -1);
+            if (status == 200) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.initialize();
+
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            int[] counts = new int[invocation.<List<?>>getArgument(1).size()];
+            Arrays.fill(counts, 1);
+            return counts;
+        });
+        catalogChangeNotifier = mock(CatalogChangeNotifier.class);
+
+        // The test server is on the loopback address, which is only fetched when allowed
+        service = service(executor, true);
+    }
+
+    private ImageIngestionService service(TaskExecutor executor, boolean allowPrivateHosts) {
+        LocalImageStore store = new LocalImageStore(storeDirectory, "http://localhost:8080/images");
+        return new ImageIngestionService(store, jdbcTemplate, mock(ProductRepository.class),
+                catalogChangeNotifier, executor, 3, 10, 1024 * 1024, allowPrivateHosts);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    private static byte[] photo(int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "jpg", out);
+        return out.toByteArray();
+    }
+
+    private static Product product(long id, String imageUrl) {
+        Product product = new Product();
+        product.setId(id);
+        product.setImageUrl(imageUrl);
+        return product;
+    }
+
+    private Map<Long, String> ingest(Product... products) throws Exception {
+        return service.ingest(List.of(products)).get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void fetchesEachUrlOnceAndStoresEachPictureOnce() throws Exception {
+        Map<Long, String> patched = ingest(
+                product(1, url("/a.jpg")), product(2, url("/a.jpg")), product(3, url("/b.jpg")),
+                product(4, url("/other.jpg")));
+
+        assertEquals(1, requests.get("/a.jpg").get());
+        assertEquals(4, patched.size());
+        // a.jpg and b.jpg are the same picture
+        assertEquals(patched.get(1L), patched.get(3L));
+        assertNotEquals(patched.get(1L), patched.get(4L));
+        try (var files = Files.list(storeDirectory)) {
+            assertEquals(2, files.count());
+        }
+        assertEquals(1L, service.getStats().get("deduplicated"));
+        verify(catalogChangeNotifier).productsSaved(any());
+    }
+
+    @Test
+    void storesAThumbnailAndAMediumVariantOfRealPictures() throws Exception {
+        Map<Long, String> patched = ingest(product(1, url("/photo.jpg")), product(2, url("/a.jpg")));
+
+        try (var files = Files.list(storeDirectory)) {
+            // The photo with both variants, and a.jpg which is not a decodable picture
+            assertEquals(4, files.count());
+        }
+        BufferedImage thumbnail = ImageIO.read(Files.list(storeDirectory)
+                .filter(file -> file.getFileName().toString().endsWith("-thumb.jpg")).findFirst().orElseThrow().toFile());
+        assertEquals(200, thumbnail.getWidth());
+        assertEquals(160, thumbnail.getHeight());
+
+        verify(jdbcTemplate).batchUpdate(anyString(), argThat((List<Object[]> updates) -> updates.stream().allMatch(row -> {
+            String url = (String) row[0];
+            String thumbnailUrl = (String) row[2];
+            return row[4].equals(1L)
+                    ? url.equals(patched.get(1L)) && thumbnailUrl.endsWith("-thumb.jpg") && ((String) row[1]).endsWith("-medium.jpg")
+                    : url.equals(thumbnailUrl) && url.equals(row[1]);
+        })));
+    }
+
+    @Test
+    void retriesServerErrorsButNotMissingImages() throws Exception {
+        Map<Long, String> patched = ingest(product(1, url("/flaky.jpg")), product(2, url("/missing.jpg")));
+
+        assertEquals(Set.of(1L), patched.keySet());
+        assertEquals(2, requests.get("/flaky.jpg").get());
+        assertEquals(1, requests.get("/missing.jpg").get());
+        assertEquals(1L, service.getStats().get("retries"));
+        assertEquals(1L, service.getStats().get("failed"));
+    }
+
+    @Test
+    void skipsImagesAlreadyInTheStore() throws Exception {
+        Map<Long, String> patched = ingest(product(1, "http://localhost:8080/images/abc.jpg"), product(2, ""));
+
+        assertTrue(patched.isEmpty());
+        assertTrue(requests.isEmpty());
+        verifyNoInteractions(jdbcTemplate, catalogChangeNotifier);
+    }
+
+    @Test
+    void followsRedirects() throws Exception {
+        Map<Long, String> patched = ingest(product(1, url("/moved.jpg")));
+
+        assertEquals(Set.of(1L), patched.keySet());
+        assertEquals(1, requests.get("/moved.jpg").get());
+        assertEquals(1, requests.get("/a.jpg").get());
+    }
+
+    @Test
+    void doesNotFetchInternalAddresses() throws Exception {
+        service = service(executor, false);
+
+        Map<Long, String> patched = ingest(product(1, url("/a.jpg")), product(2, "http://10.0.0.1/b.jpg"),
+                product(3, "http://169.254.169.254/latest/meta-data"));
+
+        assertTrue(patched.isEmpty());
+        assertTrue(requests.isEmpty());
+        assertEquals(3L, service.getStats().get("failed"));
+    }
+
+    @Test
+    void tellsPublicAddressesFromInternalOnes() throws Exception {
+        assertTrue(ImageIngestionService.isPublic(InetAddress.getByName("93.184.216.34")));
+        assertTrue(ImageIngestionService.isPublic(InetAddress.getByName("2606:2800:220:1::1")));
+        for (String internal : List.of("127.0.0.1", "0.0.0.0", "10.1.2.3", "172.16.0.1", "192.168.1.1",
+                "169.254.169.254", "::1", "fe80::1", "fd00::1")) {
+            assertFalse(ImageIngestionService.isPublic(InetAddress.getByName(internal)), internal);
+        }
+    }
+
+    @Test
+    void countsImagesRejectedByAFullQueueAsFailed() throws Exception {
+        service = service(task -> {
+            throw new TaskRejectedException("The queue is full");
+        }, true);
+
+        Map<Long, String> patched = ingest(product(1, url("/a.jpg")), product(2, url("/b.jpg")));
+
+        assertTrue(patched.isEmpty());
+        assertTrue(requests.isEmpty());
+        assertEquals(2L, service.getStats().get("failed"));
+        verifyNoInteractions(jdbcTemplate);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.demo.service;
+
+import com.example.demo.util.DocumentPages;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Wall clock time for reading a 12 page booklist PDF with 1, 2, 4 ... workers and as
+ * many engines, up to one per core, next to the time each page took. Needs a Tesseract
+ * install with eng traineddata, so it only runs when asked for:
+ *
+ * mvn test -Dtest=MultiPageOcrBenchmark -Dbenchmark.ocr=true -Docr.tessdata=/usr/share/tesseract-ocr/5/tessdata
+ */
+@EnabledIfSystemProperty(named = "benchmark.ocr", matches = "true")
+class MultiPageOcrBenchmark {
+
+    private static final int PAGES = 12;
+
+    @TempDir
+    Path dir;
+
+    private Path booklist() throws IOException {
+        Path file = dir.resolve("booklist.pdf");
+        try (PDDocument document = new PDDocument()) {
+            for (int page = 0; page < PAGES; page++) {
+                PDPage pdfPage = new PDPage(PDRectangle.A4);
+                document.addPage(pdfPage);
+                try (PDPageContentStream content = new PDPageContentStream(document, pdfPage)) {
+                    content.setFont(PDType1Font.HELVETICA, 14);
+                    for (int line = 0; line < 30; line++) {
+                        content.beginText();
+                        content.newLineAtOffset(60, 780 - line * 24);
+                        content.showText("Grade " + (page % 6 + 6) + " Workbook part " + (line + 1) + " - " + (line % 3 + 1));
+                        content.endText();
+                    }
+                }
+            }
+            document.save(file.toFile());
+        }
+        return file;
+    }
+
+    @Test
+    void wallClockScalesWithWorkers() throws Exception {
+        Path file = booklist();
+        int cores = Runtime.getRuntime().availableProcessors();
+        TreeSet<Integer> workerCounts = new TreeSet<>();
+        for (int workers = 1; workers < cores; workers *= 2) workerCounts.add(workers);
+        workerCounts.add(cores);
+
+        System.out.printf(Locale.ROOT, "%-8s %12s %14s %10s%n", "workers", "wall ms", "page work ms", "speedup");
+        double single = 0;
+        for (int workers : workerCounts) {
+            OcrEnginePool pool = new OcrEnginePool(System.getProperty("ocr.tessdata", ""), "eng", workers, 600);
+            ExecutorService executor = Executors.newFixedThreadPool(workers);
+            try (DocumentPages pages = DocumentPages.open(file)) {
+                pool.extractTessdata();
+                OCRService service = new OCRService(pool, executor, true, 2500, PAGES);
+                // Loads the traineddata into every engine before timing
+                service.recognizePages(pages);
+
+                long start = System.nanoTime();
+                List<OCRService.PageText> result = service.recognizePages(pages);
+                double wall = (System.nanoTime() - start) / 1e6;
+                long work = result.stream().mapToLong(page -> page.getRenderMillis() + page.getOcrMillis()).sum();
+                if (workers == 1) single = wall;
+                System.out.printf(Locale.ROOT, "%-8d %12.0f %14d %9.2fx%n", workers, wall, work, single / wall);
+                for (OCRService.PageText page : result) {
+                    System.out.printf(Locale.ROOT, "    page %2d: render %5d ms, ocr %6d ms%n",
+                            page.getPage(), page.getRenderMillis(), page.getOcrMillis());
+                }
+            } finally {
+                executor.shutdownNow();
+                pool.close();
+            }
+        }
+    }
+}
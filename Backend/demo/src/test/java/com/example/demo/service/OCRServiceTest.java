@@ -0,0 +1,108 @@
+package com.example.demo.service;
+
+import com.example.demo.util.DocumentPages;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OCRServiceTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    // Page n is an n pixel wide image; the later pages finish first
+    private static DocumentPages pages(int count) {
+        return new DocumentPages() {
+            @Override
+            public int count() {
+                return count;
+            }
+
+            @Override
+            public BufferedImage render(int page, int maxDimension) {
+                return new BufferedImage(page + 1, 1, BufferedImage.TYPE_BYTE_GRAY);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    @Test
+    void readsPagesInParallelAndKeepsTheirOrder() throws Exception {
+        OcrEnginePool pool = mock(OcrEnginePool.class);
+        when(pool.recognize(any())).thenAnswer(invocation -> {
+            int page = invocation.<BufferedImage>getArgument(0).getWidth();
+            Thread.sleep((6 - page) * 20L);
+            return "Book " + page + " - " + page;
+        });
+        OCRService service = new OCRService(pool, executor, false, 2500, 30);
+
+        List<OCRService.PageText> result = service.recognizePages(pages(5));
+
+        assertEquals(5, result.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i + 1, result.get(i).getPage());
+            assertEquals("Book " + (i + 1) + " - " + (i + 1), result.get(i).getText());
+        }
+    }
+
+    @Test
+    void failsTheDocumentWhenAPageFails() throws Exception {
+        OcrEnginePool pool = mock(OcrEnginePool.class);
+        when(pool.recognize(any())).thenAnswer(invocation -> {
+            if (invocation.<BufferedImage>getArgument(0).getWidth() == 2) {
+                throw new IllegalStateException("All OCR engines are busy");
+            }
+            return "text";
+        });
+        OCRService service = new OCRService(pool, executor, false, 2500, 30);
+
+        assertThrows(IllegalStateException.class, () -> service.recognizePages(pages(3)));
+    }
+
+    @Test
+    void waitsForThePagesBeingReadBeforeFailing() throws Exception {
+        CountDownLatch slowPageStarted = new CountDownLatch(1);
+        AtomicBoolean slowPageDone = new AtomicBoolean();
+        OcrEnginePool pool = mock(OcrEnginePool.class);
+        when(pool.recognize(any())).thenAnswer(invocation -> {
+            if (invocation.<BufferedImage>getArgument(0).getWidth() == 2) {
+                slowPageStarted.countDown();
+                Thread.sleep(300);
+                slowPageDone.set(true);
+                return "text";
+            }
+            slowPageStarted.await();
+            throw new IllegalStateException("All OCR engines are busy");
+        });
+        OCRService service = new OCRService(pool, executor, false, 2500, 30);
+
+        assertThrows(IllegalStateException.class, () -> service.recognizePages(pages(2)));
+        // The caller closes the document next, which must not happen under a page still rendering
+        assertTrue(slowPageDone.get());
+    }
+
+    @Test
+    void refusesTooManyPages() {
+        OCRService service = new OCRService(mock(OcrEnginePool.class), executor, false, 2500, 30);
+
+        assertThrows(IllegalArgumentException.class, () -> service.recognizePages(pages(31)));
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OcrEnginePoolTest {
+
+    private static final BufferedImage PAGE = new BufferedImage(1, 1, BufferedImage.TYPE_BYTE_GRAY);
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicInteger ended = new AtomicInteger();
+    private final AtomicInteger busy = new AtomicInteger();
+    private final AtomicInteger mostBusy = new AtomicInteger();
+
+    @AfterEach
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    // A pool of engines that count their lives and run the given work instead of Tesseract
+    private OcrEnginePool pool(int size, long timeoutSeconds, Work work) {
+        return new OcrEnginePool("", "eng", size, timeoutSeconds) {
+            @Override
+            Engine createEngine() {
+                created.incrementAndGet();
+                return new Engine() {
+                    @Override
+                    public String recognize(BufferedImage image) {
+                        mostBusy.accumulateAndGet(busy.incrementAndGet(), Math::max);
+                        try {
+                            return work.run();
+                        } finally {
+                            busy.decrementAndGet();
+                        }
+                    }
+
+                    @Override
+                    public void end() {
+                        ended.incrementAndGet();
+                    }
+                };
+            }
+        };
+    }
+
+    private interface Work {
+        String run();
+    }
+
+    private static String sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "text";
+    }
+
+    @Test
+    void neverCreatesMoreEnginesThanThePoolSize() throws Exception {
+        OcrEnginePool pool = pool(2, 30, () -> sleep(20));
+
+        List<Future<String>> pages = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            pages.add(executor.submit(() -> pool.recognize(PAGE)));
+        }
+        for (Future<String> page : pages) {
+            assertEquals("text", page.get());
+        }
+
+        assertEquals(2, created.get());
+        assertEquals(2, mostBusy.get());
+        assertEquals(0, ended.get());
+        pool.close();
+        assertEquals(2, ended.get());
+    }
+
+    @Test
+    void givesUpWhenEveryEngineStaysBusy() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        OcrEnginePool pool = pool(1, 1, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "text";
+        });
+        Future<String> first = executor.submit(() -> pool.recognize(PAGE));
+        while (busy.get() == 0) Thread.sleep(5);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> pool.recognize(PAGE));
+        assertEquals("All OCR engines are busy, please try again later", e.getMessage());
+
+        release.countDown();
+        assertEquals("text", first.get());
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    void replacesAnEngineThatFailed() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        OcrEnginePool pool = pool(1, 1, () -> {
+            if (calls.incrementAndGet() == 1) throw new IllegalStateException("Tesseract crashed");
+            return "text";
+        });
+
+        assertThrows(IllegalStateException.class, () -> pool.recognize(PAGE));
+        assertEquals(1, ended.get());
+        assertEquals("text", pool.recognize(PAGE));
+        assertEquals(2, created.get());
+    }
+
+    @Test
+    void endsEveryEngineWhenClosedWhilePagesAreRead() throws Exception {
+        for (int run = 0; run < 20; run++) {
+            created.set(0);
+            ended.set(0);
+            OcrEnginePool pool = pool(4, 1, () -> "text");
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    for (int page = 0; page < 200; page++) {
+                        try {
+                            pool.recognize(PAGE);
+                        } catch (IllegalStateException e) {
+                            // Busy while the pool shuts down
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            pool.close();
+            for (Future<?> worker : workers) {
+                worker.get(10, TimeUnit.SECONDS);
+            }
+
+            // Every native handle is released, including those of pages still being read at close()
+            assertEquals(created.get(), ended.get(), "run " + run);
+        }
+    }
+}
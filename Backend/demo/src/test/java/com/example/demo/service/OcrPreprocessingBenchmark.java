@@ -0,0 +1,209 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Measures OCR time per image and line accuracy with and without the preprocessing in
+ * OCRService. The corpus is generated: 12 MP JPEG "phone photos" of booklists, turned
+ * by up to 7 degrees, with a shadow across the page and sensor noise, whose lines are
+ * known. Real photos can be added with -Dbenchmark.ocr.corpus=dir, each image next to a
+ * .txt file holding its expected lines. Needs a Tesseract install with eng traineddata,
+ * so it only runs when asked for:
+ *
+ * mvn test -Dtest=OcrPreprocessingBenchmark -Dbenchmark.ocr=true -Docr.tessdata=/usr/share/tesseract-ocr/5/tessdata
+ */
+@EnabledIfSystemProperty(named = "benchmark.ocr", matches = "true")
+class OcrPreprocessingBenchmark {
+
+    private static final String[] SUBJECTS = {
+            "Mathematics", "Science", "Sinhala Language", "English Reader", "History", "Geography",
+            "Health Science", "Buddhism", "Art Activity Book", "Tamil Language", "ICT Workbook", "Civic Education"
+    };
+    private static final double[] SKEWS = {0, 1.5, -2, 3, -4, 5, -6, 7};
+
+    private static OcrEnginePool pool;
+
+    @BeforeAll
+    static void startEngines() throws IOException {
+        pool = new OcrEnginePool(System.getProperty("ocr.tessdata", ""), "eng", 1, 60);
+        pool.extractTessdata();
+    }
+
+    @AfterAll
+    static void stopEngines() throws IOException {
+        pool.close();
+    }
+
+    private static final class Sample {
+        final String name;
+        final byte[] image;
+        final List<String> lines;
+
+        Sample(String name, byte[] image, List<String> lines) {
+            this.name = name;
+            this.image = image;
+            this.lines = lines;
+        }
+    }
+
+    private static List<Sample> corpus() throws IOException {
+        List<Sample> samples = new ArrayList<>();
+        Random random = new Random(42);
+        for (double skew : SKEWS) {
+            samples.add(photo(random, skew));
+        }
+        String directory = System.getProperty("benchmark.ocr.corpus");
+        if (directory != null) {
+            try (Stream<Path> files = Files.list(Paths.get(directory))) {
+                for (Path file : files.sorted().toList()) {
+                    String name = file.getFileName().toString();
+                    if (name.endsWith(".txt")) continue;
+                    Path expected = file.resolveSibling(name.replaceFirst("\\.[^.]+$", "") + ".txt");
+                    if (!Files.exists(expected)) continue;
+                    List<String> lines = Files.readAllLines(expected, StandardCharsets.UTF_8).stream()
+                            .filter(line -> !line.isBlank()).toList();
+                    samples.add(new Sample(name, Files.readAllBytes(file), lines));
+                }
+            }
+        }
+        return samples;
+    }
+
+    // 4032 x 3024 like a 12 MP phone camera, held in portrait
+    private static Sample photo(Random random, double skew) throws IOException {
+        int width = 3024;
+        int height = 4032;
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 18; i++) {
+            lines.add("Grade " + (6 + random.nextInt(6)) + " " + SUBJECTS[random.nextInt(SUBJECTS.length)]
+                    + " - " + (1 + random.nextInt(5)));
+        }
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        // The shadow of the phone over one corner of the page
+        g.setPaint(new GradientPaint(0, 0, new Color(95, 92, 88), width * 0.7f, height * 0.6f, new Color(235, 232, 225)));
+        g.fillRect(0, 0, width, height);
+        g.rotate(Math.toRadians(skew), width / 2.0, height / 2.0);
+        g.setColor(new Color(35, 35, 45));
+        g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 84));
+        for (int i = 0; i < lines.size(); i++) {
+            g.drawString(lines.get(i), 380, 520 + i * 170);
+        }
+        g.dispose();
+
+        for (int i = 0; i < width * height / 8; i++) {
+            int x = random.nextInt(width);
+            int y = random.nextInt(height);
+            int rgb = image.getRGB(x, y);
+            int noise = random.nextInt(61) - 30;
+            int r = Math.max(0, Math.min(255, ((rgb >> 16) & 0xFF) + noise));
+            int gr = Math.max(0, Math.min(255, ((rgb >> 8) & 0xFF) + noise));
+            int b = Math.max(0, Math.min(255, (rgb & 0xFF) + noise));
+            image.setRGB(x, y, (r << 16) | (gr << 8) | b);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return new Sample(String.format(Locale.ROOT, "generated, skew %+.1f", skew), out.toByteArray(), lines);
+    }
+
+    @Test
+    void compareWithAndWithoutPreprocessing() throws Exception {
+        List<Sample> samples = corpus();
+        OCRService raw = new OCRService(pool, Runnable::run, false, 0, 1);
+        OCRService preprocessed = new OCRService(pool, Runnable::run, true, 2500, 1);
+        // The first call loads the traineddata
+        raw.recognize(() -> new ByteArrayInputStream(samples.get(0).image));
+
+        System.out.printf(Locale.ROOT, "%-28s %12s %9s %12s %9s%n", "image", "raw ms", "raw acc", "prep ms", "prep acc");
+        double[] totals = new double[4];
+        for (Sample sample : samples) {
+            double[] before = run(raw, sample);
+            double[] after = run(preprocessed, sample);
+            System.out.printf(Locale.ROOT, "%-28s %12.0f %8.0f%% %12.0f %8.0f%%%n",
+                    sample.name, before[0], before[1] * 100, after[0], after[1] * 100);
+            totals[0] += before[0];
+            totals[1] += before[1];
+            totals[2] += after[0];
+            totals[3] += after[1];
+        }
+        int n = samples.size();
+        System.out.printf(Locale.ROOT, "%-28s %12.0f %8.0f%% %12.0f %8.0f%%%n",
+                "mean", totals[0] / n, totals[1] / n * 100, totals[2] / n, totals[3] / n * 100);
+    }
+
+    // Milliseconds for decode, preprocessing and recognition, and the share of lines read correctly
+    private static double[] run(OCRService service, Sample sample) throws Exception {
+        long start = System.nanoTime();
+        String text = service.recognize(() -> new ByteArrayInputStream(sample.image));
+        double millis = (System.nanoTime() - start) / 1e6;
+        return new double[]{millis, lineAccuracy(sample.lines, text)};
+    }
+
+    /**
+     * An expected line counts as read when some recognized line is within a 10% edit
+     * distance of it, ignoring case and spacing.
+     */
+    static double lineAccuracy(List<String> expected, String text) {
+        List<String> recognized = text.lines().map(OcrPreprocessingBenchmark::normalize)
+                .filter(line -> !line.isEmpty()).toList();
+        int read = 0;
+        for (String line : expected) {
+            String wanted = normalize(line);
+            for (String candidate : recognized) {
+                if (editDistance(wanted, candidate) <= wanted.length() / 10) {
+                    read++;
+                    break;
+                }
+            }
+        }
+        return expected.isEmpty() ? 1 : (double) read / expected.size();
+    }
+
+    private static String normalize(String line) {
+        return line.toLowerCase(Locale.ROOT).replaceAll("\\s+", " ").trim();
+    }
+
+    private static int editDistance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) previous[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
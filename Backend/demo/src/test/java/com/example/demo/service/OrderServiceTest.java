@@ -0,0 +1,151 @@
+package com.example.demo.service;
+
+import com.example.demo.TestDatabase;
+import com.example.demo.entity.Order;
+import com.example.demo.entity.Product;
+import com.example.demo.entity.Role;
+import com.example.demo.entity.User;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.StockReservationRepository;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({OrderService.class, ProductCache.class, StockReservationService.class, CatalogChangeNotifier.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderServiceTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoSpyBean
+    private ProductRepository productRepository;
+
+    @MockitoBean
+    private EmailService emailService;
+
+    // Named, so it is added next to ProductCache instead of replacing the only listener bean
+    @MockitoBean(name = "catalogListener")
+    private CatalogChangeListener catalogListener;
+
+    private User user;
+    private final List<Product> books = new ArrayList<>();
+
+    @BeforeAll
+    static void clearDatabase(@Autowired JdbcTemplate jdbcTemplate) {
+        TestDatabase.clear(jdbcTemplate);
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM order_products");
+        jdbcTemplate.update("DELETE FROM orders");
+        reservationRepository.deleteAll();
+        User customer = new User();
+        customer.setEmail("parent" + System.nanoTime() + "@example.com");
+        customer.setPassword("secret");
+        customer.setRole(Role.CUSTOMER);
+        user = userRepository.save(customer);
+        books.clear();
+        for (int i = 0; i < 30; i++) {
+            books.add(productRepository.save(new Product("Grade 6 book " + i, null, null, 100 + i, 5, null)));
+        }
+        clearInvocations(productRepository, catalogListener);
+    }
+
+    private List<OrderService.OrderLine> booklist() {
+        List<OrderService.OrderLine> lines = new ArrayList<>();
+        for (Product book : books) {
+            lines.add(new OrderService.OrderLine(book.getId(), 2));
+        }
+        return lines;
+    }
+
+    @Test
+    void pricesAndStoresALargeOrderWithOneProductLookup() {
+        Order order = orderService.createPendingOrder("school-1", user, booklist(), 10, 50);
+
+        // One lookup to price the lines, one to refresh the catalog with the reserved stock
+        verify(productRepository, times(2)).findAllById(anyIterable());
+        verify(productRepository, never()).findById(anyLong());
+        // 2 x (100 + ... + 129) = 6870, less 10% and with 50 shipping
+        assertEquals(6870 * 0.9 + 50, order.getAmount(), 0.001);
+        assertEquals(30, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM order_products WHERE order_id = 'school-1'", Integer.class));
+        assertEquals("Pending", jdbcTemplate.queryForObject(
+                "SELECT status FROM orders WHERE order_id = 'school-1'", String.class));
+        assertEquals(3, productRepository.findById(books.get(0).getId()).orElseThrow().getStock());
+        verify(catalogListener).onProductsSaved(anyCollection());
+    }
+
+    @Test
+    void aRetriedCheckoutReplacesThePendingOrder() {
+        orderService.createPendingOrder("school-2", user, booklist(), 0, 50);
+        orderService.createPendingOrder("school-2", user,
+                List.of(new OrderService.OrderLine(books.get(0).getId(), 1)), 0, 50);
+
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM order_products WHERE order_id = 'school-2'", Integer.class));
+        assertEquals(4, productRepository.findById(books.get(0).getId()).orElseThrow().getStock());
+        assertEquals(5, productRepository.findById(books.get(1).getId()).orElseThrow().getStock());
+    }
+
+    @Test
+    void keepsNeitherOrderNorStockWhenALineIsShort() {
+        List<OrderService.OrderLine> lines = booklist();
+        lines.add(new OrderService.OrderLine(books.get(29).getId(), 4));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> orderService.createPendingOrder("school-3", user, lines, 0, 50));
+
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM orders WHERE order_id = 'school-3'", Integer.class));
+        assertEquals(5, productRepository.findById(books.get(0).getId()).orElseThrow().getStock());
+        assertTrue(reservationRepository.findAll().isEmpty());
+    }
+
+    @Test
+    void aFailedOrderInsertLeavesTheCatalogAlone() {
+        orderService.createPendingOrder("school-4", user, booklist(), 0, 50);
+        jdbcTemplate.update("UPDATE orders SET status = 'Paid' WHERE order_id = 'school-4'");
+        clearInvocations(catalogListener);
+
+        // The paid order is not replaced, so inserting it again fails after the stock was reserved
+        assertThrows(DataAccessException.class,
+                () -> orderService.createPendingOrder("school-4", user, booklist(), 0, 50));
+
+        assertEquals(3, productRepository.findById(books.get(0).getId()).orElseThrow().getStock());
+        verify(catalogListener, never()).onProductsSaved(anyCollection());
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.AutocompleteSuggestion;
+import com.example.demo.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductAutocompleteIndexTest {
+
+    private ProductAutocompleteIndex index;
+
+    private static Product product(long id, String name, String author, String barcode) {
+        Product product = new Product(name, null, null, 500, 10, null);
+        product.setId(id);
+        product.setAuthor(author);
+        product.setBarcode(barcode);
+        return product;
+    }
+
+    private List<String> texts(String query) {
+        return index.suggest(query, 10).stream().map(AutocompleteSuggestion::getText).toList();
+    }
+
+    @BeforeEach
+    void loadCatalog() {
+        index = new ProductAutocompleteIndex();
+        index.onCatalogLoaded(List.of(
+                product(1, "Harry Potter and the Philosopher's Stone", "J. K. Rowling", "9780747532699"),
+                product(2, "Grade 6 Maths", "A. Perera", "9789550000061"),
+                product(3, "Grade 6 Science", "K. Silva", "9789550000062"),
+                product(4, "Madol Doova", "Martin Wickramasinghe", null)));
+    }
+
+    @Test
+    void suggestsTitlesAuthorsAndBarcodesByPrefix() {
+        assertTrue(index.isReady());
+        List<AutocompleteSuggestion> harry = index.suggest("HARR", 10);
+        assertEquals(1, harry.size());
+        assertEquals("Harry Potter and the Philosopher's Stone", harry.get(0).getText());
+        assertEquals("TITLE", harry.get(0).getType());
+        assertEquals(1L, harry.get(0).getProductId());
+        assertEquals(0, harry.get(0).getDistance());
+
+        // Any later word of a title or author starts a suggestion too
+        assertEquals(List.of("Harry Potter and the Philosopher's Stone"), texts("potter"));
+        assertEquals(List.of("Martin Wickramasinghe"), texts("wickram"));
+        assertNull(index.suggest("wickram", 10).get(0).getProductId());
+
+        // Barcodes only match from the start. Texts that start with the query come before
+        // those with a later word matching it, then titles before authors
+        assertEquals(List.of("9789550000061", "9789550000062"), texts("97895"));
+        assertEquals(List.of("Madol Doova", "Martin Wickramasinghe", "Grade 6 Maths"), texts("ma"));
+    }
+
+    @Test
+    void toleratesOneTypo() {
+        List<AutocompleteSuggestion> typo = index.suggest("pottet", 10);
+        assertEquals(1, typo.size());
+        assertEquals("Harry Potter and the Philosopher's Stone", typo.get(0).getText());
+        assertEquals(1, typo.get(0).getDistance());
+
+        // Short queries and the first letter have to be typed right
+        assertTrue(texts("pot").contains("Harry Potter and the Philosopher's Stone"));
+        assertTrue(texts("mwd").isEmpty());
+        assertTrue(texts("xotter").isEmpty());
+        // Exact prefixes come before typo matches
+        assertEquals("Grade 6 Maths", texts("maths").get(0));
+    }
+
+    @Test
+    void aCatalogChangeRefreshesTheCachedSuggestions() {
+        assertEquals(List.of("Grade 6 Maths", "Grade 6 Science"), texts("grade 6"));
+
+        // A second copy of the same title makes it the more common one
+        index.onProductSaved(product(5, "Grade 6 Science", "K. Silva", null));
+        assertEquals(List.of("Grade 6 Science", "Grade 6 Maths"), texts("grade 6"));
+
+        index.onProductSaved(product(2, "Grade 6 Mathematics", "A. Perera", "9789550000061"));
+        assertEquals(List.of("Grade 6 Science", "Grade 6 Mathematics"), texts("grade 6"));
+        assertTrue(texts("grade 6 maths").stream().noneMatch("Grade 6 Maths"::equals));
+
+        index.onProductDeleted(3L);
+        index.onProductDeleted(5L);
+        assertEquals(List.of("Grade 6 Mathematics"), texts("grade 6"));
+        assertTrue(texts("k. silva").isEmpty());
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.demo.service;
+
+import com.example.demo.TestDatabase;
+import com.example.demo.entity.Product;
+import com.example.demo.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({ProductCache.class, CatalogChangeNotifier.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductCacheTest {
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private CatalogChangeNotifier catalogChangeNotifier;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeAll
+    static void clearDatabase(@Autowired JdbcTemplate jdbcTemplate) {
+        TestDatabase.clear(jdbcTemplate);
+    }
+
+    @Test
+    void aLookupWhileAnEditCommitsDoesNotKeepTheOldRow() {
+        Product book = productRepository.save(new Product("Grade 7 Science", null, null, 500, 10, null));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Product edited = productRepository.findById(book.getId()).orElseThrow();
+            edited.setPrice(650);
+            catalogChangeNotifier.productSaved(productRepository.saveAndFlush(edited));
+
+            // Another request looks the book up before the edit commits and still sees the old price
+            Product seen = CompletableFuture.supplyAsync(
+                    () -> productCache.findById(book.getId()).orElseThrow()).join();
+            assertEquals(500, seen.getPrice());
+        });
+
+        assertEquals(650, productCache.findById(book.getId()).orElseThrow().getPrice());
+    }
+
+    @Test
+    void aRolledBackEditKeepsTheCachedRow() {
+        Product book = productRepository.save(new Product("Grade 7 History", null, null, 400, 10, null));
+        productCache.findById(book.getId());
+        long misses = (long) productCache.getStats().get("misses");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Product edited = productRepository.findById(book.getId()).orElseThrow();
+            edited.setPrice(450);
+            catalogChangeNotifier.productSaved(productRepository.saveAndFlush(edited));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(400, productCache.findById(book.getId()).orElseThrow().getPrice());
+        assertEquals(misses, (long) productCache.getStats().get("misses"));
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ProductFilterRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCountCacheTest {
+
+    private final ProductCountCache cache = new ProductCountCache();
+    private final AtomicInteger queries = new AtomicInteger();
+
+    private long count(ProductFilterRequest filter, long rows) {
+        return cache.count(filter, () -> {
+            queries.incrementAndGet();
+            return rows;
+        });
+    }
+
+    @Test
+    void countsEachFilterOnceUntilTheCatalogChanges() {
+        ProductFilterRequest inStock = new ProductFilterRequest();
+        inStock.setInStock(true);
+
+        assertEquals(40, count(inStock, 40));
+        assertEquals(40, count(inStock, 41));
+        assertEquals(1, queries.get());
+
+        cache.onProductDeleted(7L);
+        assertEquals(39, count(inStock, 39));
+        assertEquals(2, queries.get());
+    }
+
+    @Test
+    void aCountTakenWhileAWriteCommitsIsNotKept() {
+        ProductFilterRequest all = new ProductFilterRequest();
+
+        // The write commits, and invalidates the cache, after the query read the old rows
+        long counted = cache.count(all, () -> {
+            queries.incrementAndGet();
+            cache.onProductSaved(null);
+            return 40L;
+        });
+        assertEquals(40, counted);
+
+        assertEquals(41, count(all, 41));
+        assertEquals(2, queries.get());
+    }
+}
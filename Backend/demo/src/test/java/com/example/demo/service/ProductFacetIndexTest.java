@@ -0,0 +1,68 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.FacetCountsDTO;
+import com.example.demo.dto.ProductFilterRequest;
+import com.example.demo.entity.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductFacetIndexTest {
+
+    private static Product product(long id, double price) {
+        Product product = new Product("Book " + id, null, null, price, 10, null);
+        product.setId(id);
+        return product;
+    }
+
+    @Test
+    void choosingAPriceRangeFindsWhatItCounted() {
+        ProductFacetIndex index = new ProductFacetIndex();
+        index.onCatalogLoaded(List.of(product(1, 250), product(2, 499.99), product(3, 500), product(4, 1000),
+                product(5, 7500)));
+
+        List<FacetCountsDTO.FacetValue> ranges = index.count(new ProductFilterRequest(), 10).getPriceRanges();
+        for (FacetCountsDTO.FacetValue range : ranges) {
+            ProductFilterRequest filter = new ProductFilterRequest();
+            filter.setMinPrice(range.getMinPrice());
+            filter.setMaxPrice(range.getMaxPrice());
+            assertEquals(range.getCount(), index.count(filter, 10).getTotal(), range.getLabel());
+        }
+        assertEquals(2, ranges.get(0).getCount());
+        assertEquals(499.99, ranges.get(0).getMaxPrice());
+        assertEquals(1, ranges.get(1).getCount());
+        assertNull(ranges.get(ranges.size() - 1).getMaxPrice());
+    }
+
+    @Test
+    void anyPriceBoundsFindTheBooksInBetween() {
+        Random random = new Random(7);
+        List<Product> products = new ArrayList<>();
+        for (long id = 1; id <= 300; id++) {
+            // Whole cents, with some books right on a range boundary
+            double price = random.nextInt(4) == 0
+                    ? new double[]{0, 499.99, 500, 999.99, 1000, 2000, 5000}[random.nextInt(7)]
+                    : random.nextInt(800_000) / 100.0;
+            products.add(product(id, price));
+        }
+        ProductFacetIndex index = new ProductFacetIndex();
+        index.onCatalogLoaded(products);
+
+        Double[] bounds = {null, 0.0, 250.0, 499.99, 500.0, 1000.0, 1999.99, 2000.0, 3333.33, 4999.99, 5000.0, 9000.0};
+        for (Double min : bounds) {
+            for (Double max : bounds) {
+                ProductFilterRequest filter = new ProductFilterRequest();
+                filter.setMinPrice(min);
+                filter.setMaxPrice(max);
+                long expected = products.stream()
+                        .filter(product -> (min == null || product.getPrice() >= min) && (max == null || product.getPrice() <= max))
+                        .count();
+                assertEquals(expected, index.count(filter, 10).getTotal(), min + " - " + max);
+            }
+        }
+    }
+}
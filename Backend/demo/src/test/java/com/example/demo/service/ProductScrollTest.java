@@ -0,0 +1,160 @@
+package com.example.demo.service;
+
+import com.example.demo.TestDatabase;
+import com.example.demo.controller.ProductController;
+import com.example.demo.dto.KeysetPage;
+import com.example.demo.dto.ProductFilterRequest;
+import com.example.demo.entity.Product;
+import com.example.demo.repository.CategoryRepository;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.WishlistRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductScrollTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private WishlistRepository wishlistRepository;
+
+    private ProductService productService;
+    private final ProductCountCache productCountCache = new ProductCountCache();
+
+    @BeforeAll
+    static void clearDatabase(@Autowired JdbcTemplate jdbcTemplate) {
+        TestDatabase.clear(jdbcTemplate);
+    }
+
+    @BeforeEach
+    void setUp() {
+        productRepository.deleteAll();
+        // Few distinct prices and names, so most pages end in the middle of a tie
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 47; i++) {
+            products.add(new Product("Reader " + (char) ('A' + i % 5), null, null, 100 + (i % 4) * 50, i % 3, null));
+        }
+        productRepository.saveAll(products);
+        productService = new ProductService(productRepository, categoryRepository, mock(ImageUploadService.class),
+                wishlistRepository, mock(EmailService.class), mock(CatalogChangeNotifier.class),
+                mock(ProductCache.class), productCountCache, mock(ProductValueDictionary.class));
+    }
+
+    private static ProductFilterRequest filter(int size, Boolean inStock) {
+        ProductFilterRequest filter = new ProductFilterRequest();
+        filter.setSize(size);
+        filter.setInStock(inStock);
+        return filter;
+    }
+
+    // Follows nextCursor to the last page and returns the ids in the order they were served
+    private List<Long> scroll(ProductFilterRequest filter, String sort, List<String> fields) {
+        List<Long> ids = new ArrayList<>();
+        String after = null;
+        do {
+            KeysetPage<?> page = productService.scrollProducts(filter, after, sort, false, fields);
+            assertTrue(page.getContent().size() <= filter.getSize());
+            for (Object row : page.getContent()) {
+                ids.add(row instanceof Product ? ((Product) row).getId() : (Long) ((Map<?, ?>) row).get("id"));
+            }
+            assertEquals(page.getNextCursor() != null, page.isHasNext());
+            after = page.getNextCursor();
+        } while (after != null);
+        return ids;
+    }
+
+    // Rows ordered by (sort key, id), both reversed for a descending sort
+    private List<Long> expected(Comparator<Product> key, boolean descending, boolean inStockOnly) {
+        Comparator<Product> order = key.thenComparing(Product::getId);
+        return productRepository.findAll().stream()
+                .filter(product -> !inStockOnly || product.getStock() > 0)
+                .sorted(descending ? order.reversed() : order)
+                .map(Product::getId)
+                .toList();
+    }
+
+    private static void assertNoDuplicates(List<Long> ids) {
+        Set<Long> seen = new HashSet<>(ids);
+        assertEquals(ids.size(), seen.size());
+    }
+
+    @Test
+    void pagesThroughEverySortWithoutDuplicatesOrGaps() {
+        Function<Product, Double> price = Product::getPrice;
+        Function<Product, String> name = Product::getName;
+
+        List<Long> byId = scroll(filter(10, null), "id", null);
+        assertEquals(expected(Comparator.comparing(Product::getId), false, false), byId);
+        assertEquals(47, byId.size());
+
+        List<Long> byPrice = scroll(filter(7, null), "price,asc", null);
+        assertNoDuplicates(byPrice);
+        assertEquals(expected(Comparator.comparing(price), false, false), byPrice);
+
+        List<Long> byPriceDesc = scroll(filter(6, null), "price,desc", null);
+        assertNoDuplicates(byPriceDesc);
+        assertEquals(expected(Comparator.comparing(price), true, false), byPriceDesc);
+
+        List<Long> byName = scroll(filter(4, null), "name,desc", null);
+        assertNoDuplicates(byName);
+        assertEquals(expected(Comparator.comparing(name), true, false), byName);
+    }
+
+    @Test
+    void pagesThroughFilteredAndProjectedRows() {
+        List<Long> inStock = scroll(filter(5, true), "price,desc", List.of("name", "price"));
+        assertNoDuplicates(inStock);
+        assertEquals(expected(Comparator.comparing(Product::getPrice), true, true), inStock);
+
+        KeysetPage<?> first = productService.scrollProducts(filter(5, true), null, "price,desc", true, null);
+        assertEquals(inStock.size(), first.getTotal());
+    }
+
+    @Test
+    void rejectsCursorsFromAnotherSortAndBadRequests() {
+        String cursor = productService.scrollProducts(filter(5, null), null, "price,asc", false, null).getNextCursor();
+        assertThrows(IllegalArgumentException.class,
+                () -> productService.scrollProducts(filter(5, null), cursor, "price,desc", false, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> productService.scrollProducts(filter(5, null), cursor, "name,asc", false, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> productService.scrollProducts(filter(5, null), "not a cursor", "price,asc", false, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> productService.scrollProducts(filter(5, null), null, "stock", false, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> productService.scrollProducts(filter(101, null), null, "id", false, null));
+
+        // The controller turns them into a 400
+        ProductController controller = new ProductController();
+        ReflectionTestUtils.setField(controller, "productService", productService);
+        assertEquals(HttpStatus.BAD_REQUEST,
+                controller.scrollProducts(filter(5, null), cursor, "price,desc", false, null).getStatusCode());
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex index;
+
+    private static Product product(long id, String name, String author, String description) {
+        Product product = new Product(name, description, null, 500, 10, null);
+        product.setId(id);
+        product.setAuthor(author);
+        product.setPublisher("Sarasavi");
+        return product;
+    }
+
+    private List<Long> ids(String keyword) {
+        return index.search(keyword).stream().map(Product::getId).toList();
+    }
+
+    @BeforeEach
+    void loadCatalog() {
+        index = new ProductSearchIndex();
+        index.onCatalogLoaded(List.of(
+                product(1, "Grade 6 Mathematics", "A. Perera", "Textbook for the new syllabus"),
+                product(2, "Grade 6 Science", "K. Silva", "Covers mathematics used in physics"),
+                product(3, "Mathematical Puzzles", "N. Fernando", "Puzzles for young readers"),
+                product(4, "Grade 7 History", "Pererawatte Bros", "Sri Lankan history")));
+    }
+
+    @Test
+    void ranksNameMatchesAboveDescriptionMatches() {
+        assertTrue(index.isReady());
+        assertEquals(4, index.size());
+        assertEquals(List.of(1L, 2L), ids("mathematics"));
+    }
+
+    @Test
+    void everyTermMustMatch() {
+        // Book 2 only has mathematics in its description, so it comes after the title match
+        assertEquals(List.of(1L, 2L), ids("grade mathematics"));
+        assertEquals(List.of(3L), ids("puzzles mathematical"));
+        assertEquals(List.of(4L), ids("history 7"));
+        assertTrue(ids("grade geography").isEmpty());
+        assertTrue(ids(" , ").isEmpty());
+    }
+
+    @Test
+    void matchesWordPrefixesBelowWholeWords() {
+        // Typed so far: "mathemat" is a prefix of both mathematics and mathematical; the rarer
+        // word weighs more, and a description match comes last
+        assertEquals(List.of(3L, 1L, 2L), ids("mathemat"));
+        // A whole word is worth more than the prefix of a longer one
+        assertEquals(List.of(1L, 4L), ids("perera"));
+        // One letter is too short to be a prefix
+        assertTrue(ids("m").isEmpty());
+        // Only whole words match, not text inside them
+        assertTrue(ids("ematics").isEmpty());
+    }
+
+    @Test
+    void appliesTheFilterBeforeRanking() {
+        assertEquals(List.of(2L), index.search("mathematics", product -> product.getName().contains("Science"))
+                .stream().map(Product::getId).toList());
+    }
+
+    @Test
+    void followsSavesAndDeletes() {
+        index.onProductSaved(product(3, "Logic Puzzles", "N. Fernando", "Puzzles for young readers"));
+        assertEquals(List.of(1L, 2L), ids("mathemat"));
+        assertEquals(List.of(3L), ids("logic"));
+
+        index.onProductsSaved(List.of(product(5, "Grade 8 Mathematics", "A. Perera", null)));
+        assertEquals(List.of(1L, 5L, 2L), ids("grade mathematics"));
+
+        index.onProductDeleted(1L);
+        assertEquals(List.of(5L, 2L), ids("grade mathematics"));
+        assertEquals(4, index.size());
+        // A deleted book's words no longer match anything
+        index.onProductDeleted(2L);
+        index.onProductDeleted(5L);
+        assertTrue(ids("mathematics").isEmpty());
+    }
+}
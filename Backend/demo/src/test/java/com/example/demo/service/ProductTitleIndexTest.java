@@ -0,0 +1,71 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductTitleIndexTest {
+
+    private ProductTitleIndex index;
+
+    private static Product product(long id, String name) {
+        Product product = new Product(name, null, null, 500, 10, null);
+        product.setId(id);
+        return product;
+    }
+
+    @BeforeEach
+    void loadCatalog() {
+        index = new ProductTitleIndex();
+        index.onCatalogLoaded(List.of(
+                product(1, "Grade 6 Mathematics Textbook"),
+                product(2, "Grade 7 Mathematics Textbook"),
+                product(3, "Grade 6 Science Workbook"),
+                product(4, "ගණිතය 6 ශ්‍රේණිය"),
+                product(5, "සිංහල භාෂාව හා සාහිත්‍යය 8 ශ්‍රේණිය"),
+                product(6, "English Reader Grade 6")));
+    }
+
+    @Test
+    void matchesEnglishLinesDespiteOcrMistakes() {
+        List<ProductTitleIndex.Match> matches = index.match("Grade 6 Mathemat1cs Texbook", 3, 0.3);
+
+        assertFalse(matches.isEmpty());
+        assertEquals(1L, matches.get(0).getProduct().getId());
+        // Best match first
+        for (int i = 1; i < matches.size(); i++) {
+            assertTrue(matches.get(i - 1).getSimilarity() >= matches.get(i).getSimilarity());
+        }
+    }
+
+    @Test
+    void matchesSinhalaLines() {
+        assertEquals(4L, index.match("ගණිතය 6 ශ්‍රේණිය", 3, 0.3).get(0).getProduct().getId());
+        // A dropped vowel sign still finds the book
+        assertEquals(5L, index.match("සිංහල භාෂව හා සාහිත්‍යය 8 ශ්‍රේණිය", 3, 0.3).get(0).getProduct().getId());
+    }
+
+    @Test
+    void leavesUnknownLinesWithoutCandidates() {
+        assertTrue(index.match("Pencil case blue", 3, 0.3).isEmpty());
+        assertTrue(index.match("   ", 3, 0.3).isEmpty());
+    }
+
+    @Test
+    void followsCatalogChanges() {
+        index.onProductSaved(product(1, "Grade 6 Geography Textbook"));
+        index.onProductDeleted(2L);
+
+        List<Long> ids = new ArrayList<>();
+        for (ProductTitleIndex.Match match : index.match("Grade 7 Mathematics Textbook", 5, 0.3)) {
+            ids.add(match.getProduct().getId());
+        }
+        assertFalse(ids.contains(2L));
+        assertEquals(1L, index.match("Geography textbook grade 6", 1, 0.3).get(0).getProduct().getId());
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductValueDictionaryTest {
+
+    private ProductValueDictionary dictionary;
+
+    private static Product product(long id, String author, String publisher) {
+        Product product = new Product("Book " + id, null, null, 500, 10, null);
+        product.setId(id);
+        product.setAuthor(author);
+        product.setPublisher(publisher);
+        return product;
+    }
+
+    @BeforeEach
+    void loadCatalog() {
+        dictionary = new ProductValueDictionary();
+        dictionary.onCatalogLoaded(List.of(
+                product(1, "A. Perera", "Sarasavi"),
+                product(2, "a. perera", "Sarasavi"),
+                product(3, "A. Perera", "Godage"),
+                product(4, "K. Silva", null),
+                product(5, " ", "Vijitha Yapa")));
+    }
+
+    @Test
+    void listsSortedNamesOnceInTheirMostUsedSpelling() {
+        assertTrue(dictionary.isReady());
+        assertEquals(List.of("A. Perera", "K. Silva"), dictionary.getAuthors(null, 10));
+        assertEquals(List.of("Godage", "Sarasavi", "Vijitha Yapa"), dictionary.getPublishers(null, 10));
+        assertEquals(List.of("K. Silva"), dictionary.getAuthors(" k.", 10));
+        assertEquals(List.of("Godage"), dictionary.getPublishers(null, 1));
+    }
+
+    @Test
+    void followsEditsAndDeletes() {
+        // Renaming the last Godage book drops Godage
+        dictionary.onProductSaved(product(3, "A. Perera", "Sarasavi"));
+        assertEquals(List.of("Sarasavi", "Vijitha Yapa"), dictionary.getPublishers(null, 10));
+
+        // Once the lower-case spelling is the more used one it is shown
+        dictionary.onProductsSaved(List.of(product(1, "a. perera", "Sarasavi"), product(6, "M. Wickramasinghe", "Sarasavi")));
+        assertEquals(List.of("a. perera", "K. Silva", "M. Wickramasinghe"), dictionary.getAuthors(null, 10));
+
+        dictionary.onProductDeleted(4L);
+        dictionary.onProductDeleted(4L);
+        assertEquals(List.of("a. perera", "M. Wickramasinghe"), dictionary.getAuthors(null, 10));
+    }
+
+    @Test
+    void staysEqualToTheDistinctValuesOfTheCatalog() {
+        String[] authors = {"A. Perera", "a. perera", "K. Silva", "Martin Wickramasinghe", null};
+        String[] publishers = {"Sarasavi", "SARASAVI", "Godage", "Vijitha Yapa", ""};
+        Map<Long, Product> catalog = new HashMap<>();
+        dictionary.onCatalogLoaded(List.of());
+        Random random = new Random(7);
+
+        for (int step = 0; step < 2000; step++) {
+            long id = 1 + random.nextInt(40);
+            if (random.nextInt(4) == 0) {
+                catalog.remove(id);
+                dictionary.onProductDeleted(id);
+            } else {
+                Product product = product(id, authors[random.nextInt(authors.length)],
+                        publishers[random.nextInt(publishers.length)]);
+                catalog.put(id, product);
+                dictionary.onProductSaved(product);
+            }
+
+            if (step % 100 == 99) {
+                assertEquals(distinct(catalog, Product::getAuthor), lowerCase(dictionary.getAuthors(null, 100)));
+                assertEquals(distinct(catalog, Product::getPublisher), lowerCase(dictionary.getPublishers(null, 100)));
+            }
+        }
+    }
+
+    // SELECT DISTINCT under a case-insensitive collation, ordered
+    private static List<String> distinct(Map<Long, Product> catalog, Function<Product, String> column) {
+        TreeMap<String, Boolean> values = new TreeMap<>();
+        for (Product product : catalog.values()) {
+            String value = column.apply(product);
+            if (value != null && !value.isBlank()) values.put(value.toLowerCase(Locale.ROOT), true);
+        }
+        return new ArrayList<>(values.keySet());
+    }
+
+    private static List<String> lowerCase(List<String> values) {
+        return values.stream().map(value -> value.toLowerCase(Locale.ROOT)).toList();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.demo.service;
+
+import com.example.demo.controller.SearchController;
+import com.example.demo.dto.ProductFilterRequest;
+import com.example.demo.entity.Product;
+import com.example.demo.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class SearchServiceTest {
+
+    private final ProductSearchIndex productSearchIndex = mock(ProductSearchIndex.class);
+    private final SearchService searchService = new SearchService();
+
+    @BeforeEach
+    void setUp() {
+        List<Product> products = new ArrayList<>();
+        for (long id = 1; id <= 250; id++) {
+            Product product = new Product("Book " + id, null, null, 100, 10, null);
+            product.setId(id);
+            products.add(product);
+        }
+        when(productSearchIndex.isReady()).thenReturn(true);
+        when(productSearchIndex.search(any(), any())).thenAnswer(invocation -> new ArrayList<>(products));
+        ReflectionTestUtils.setField(searchService, "productSearchIndex", productSearchIndex);
+        ReflectionTestUtils.setField(searchService, "productRepository", mock(ProductRepository.class));
+    }
+
+    private static ProductFilterRequest page(int size) {
+        ProductFilterRequest filter = new ProductFilterRequest();
+        filter.setPage(1);
+        filter.setSize(size);
+        return filter;
+    }
+
+    @Test
+    void returnsPagesUpToTheLargestSize() {
+        Page<Product> page = searchService.searchProductsWithFilters("book", page(SearchService.MAX_PAGE_SIZE), Sort.unsorted());
+
+        assertEquals(SearchService.MAX_PAGE_SIZE, page.getContent().size());
+        assertEquals(101L, page.getContent().get(0).getId());
+        assertEquals(250, page.getTotalElements());
+    }
+
+    @Test
+    void refusesLargerPages() {
+        assertThrows(IllegalArgumentException.class,
+                () -> searchService.searchProductsWithFilters("book", page(1_000_000), Sort.unsorted()));
+        assertThrows(IllegalArgumentException.class,
+                () -> searchService.searchProductsWithFilters("book", page(0), Sort.unsorted()));
+
+        SearchController controller = new SearchController();
+        ReflectionTestUtils.setField(controller, "searchService", searchService);
+        ResponseEntity<?> response = controller.searchAndFilterProducts("book", page(1_000_000), null, Sort.unsorted());
+        assertEquals(400, response.getStatusCode().value());
+    }
+}
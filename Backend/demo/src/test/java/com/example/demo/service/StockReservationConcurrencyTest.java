@@ -0,0 +1,341 @@
+package com.example.demo.service;
+
+import com.example.demo.TestDatabase;
+import com.example.demo.dto.ManualSaleItemRequest;
+import com.example.demo.dto.ManualSalesRequest;
+import com.example.demo.entity.ManualSaleItem;
+import com.example.demo.entity.Product;
+import com.example.demo.entity.Role;
+import com.example.demo.entity.StockReservation;
+import com.example.demo.entity.User;
+import com.example.demo.repository.ManualSaleItemRepository;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.StockReservationRepository;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hundreds of checkouts and counter sales racing for a few copies, on an in-memory
+ * database, to show that stock is never sold twice and that every reservation that is
+ * given back is given back once.
+ */
+@DataJpaTest(properties = "stock.reservation.ttl-minutes=15")
+@ActiveProfiles("test")
+@Import({StockReservationService.class, ManualSaleService.class, PreOrderService.class, StockNotificationService.class,
+        ProductCache.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockReservationConcurrencyTest {
+
+    private static final int THREADS = 32;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private ManualSaleService manualSaleService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    @Autowired
+    private ManualSaleItemRepository manualSaleItemRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PreOrderService preOrderService;
+
+    @Autowired
+    private StockNotificationService stockNotificationService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockitoBean
+    private CatalogChangeNotifier catalogChangeNotifier;
+
+    @MockitoBean
+    private EmailService emailService;
+
+    @MockitoBean
+    private JavaMailSender mailSender;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+    @BeforeAll
+    static void clearDatabase(@Autowired JdbcTemplate jdbcTemplate) {
+        TestDatabase.clear(jdbcTemplate);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        executor.shutdownNow();
+        reservationRepository.deleteAll();
+        manualSaleItemRepository.deleteAll();
+    }
+
+    private Product product(String name, int stock) {
+        return productRepository.save(new Product(name, null, null, 1000, stock, null));
+    }
+
+    private int stockOf(Product product) {
+        return productRepository.findById(product.getId()).orElseThrow().getStock();
+    }
+
+    // Runs every task at once and counts the ones that did not throw
+    private int race(List<Callable<Void>> tasks) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (Callable<Void> task : tasks) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    task.call();
+                    succeeded.incrementAndGet();
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    // Out of stock
+                } catch (RuntimeException e) {
+                    if (e.getMessage() == null || !e.getMessage().startsWith("Insufficient stock")) throw e;
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        return succeeded.get();
+    }
+
+    @Test
+    void parallelCheckoutsNeverOversell() throws Exception {
+        Product book = product("Grade 6 Mathematics", 50);
+        Product workbook = product("Grade 6 Mathematics Workbook", 30);
+
+        List<Callable<Void>> checkouts = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            String orderId = "order-" + i;
+            // Every third order wants the workbook too, listed first so the lock order differs from the request
+            Map<Long, Integer> quantities = i % 3 == 0
+                    ? Map.of(workbook.getId(), 1, book.getId(), 1)
+                    : Map.of(book.getId(), 1);
+            checkouts.add(() -> {
+                stockReservationService.reserve(orderId, quantities);
+                return null;
+            });
+        }
+        int succeeded = race(checkouts);
+
+        assertEquals(0, stockOf(book));
+        assertTrue(stockOf(workbook) >= 0);
+        assertEquals(50, succeeded);
+        int held = 0;
+        for (StockReservation reservation : reservationRepository.findAll()) {
+            if (reservation.getProduct().getId().equals(book.getId())) held += reservation.getQuantity();
+        }
+        assertEquals(50, held);
+        assertEquals(30 - stockOf(workbook), reservationRepository.findAll().stream()
+                .filter(reservation -> reservation.getProduct().getId().equals(workbook.getId()))
+                .mapToInt(StockReservation::getQuantity).sum());
+    }
+
+    @Test
+    void counterSalesAndCheckoutsShareTheStock() throws Exception {
+        Product book = product("සිංහල 7 ශ්‍රේණිය", 40);
+
+        List<Callable<Void>> sales = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            String orderId = "mixed-" + i;
+            if (i % 2 == 0) {
+                sales.add(() -> {
+                    stockReservationService.reserve(orderId, Map.of(book.getId(), 2));
+                    return null;
+                });
+            } else {
+                ManualSaleItemRequest item = new ManualSaleItemRequest();
+                item.setProductId(book.getId());
+                item.setQuantity(1);
+                item.setItemTotalAmount(1000);
+                ManualSalesRequest request = new ManualSalesRequest();
+                request.setItems(List.of(item));
+                sales.add(() -> {
+                    manualSaleService.createManualSale(request);
+                    return null;
+                });
+            }
+        }
+        race(sales);
+
+        int reserved = reservationRepository.findAll().stream().mapToInt(StockReservation::getQuantity).sum();
+        int sold = manualSaleItemRepository.findAll().stream().mapToInt(ManualSaleItem::getQuantity).sum();
+        assertEquals(40, reserved + sold);
+        // The counter sales take single copies, so every copy went to someone
+        assertEquals(0, stockOf(book));
+    }
+
+    @Test
+    void failedPaymentsAndTheSweepGiveStockBackOnce() throws Exception {
+        Product book = product("English Reader Grade 8", 100);
+        for (int i = 0; i < 100; i++) {
+            stockReservationService.reserve("abandoned-" + i, Map.of(book.getId(), 1));
+        }
+        assertEquals(0, stockOf(book));
+        // Every reservation has run out
+        jdbcTemplate.update("UPDATE stock_reservations SET expires_at = ?", LocalDateTime.now().minusMinutes(1));
+
+        List<Callable<Void>> releases = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String orderId = "abandoned-" + i;
+            releases.add(() -> {
+                stockReservationService.release(orderId);
+                return null;
+            });
+            releases.add(() -> {
+                stockReservationService.releaseExpired();
+                return null;
+            });
+        }
+        race(releases);
+
+        assertEquals(100, stockOf(book));
+        assertTrue(reservationRepository.findAll().stream()
+                .allMatch(reservation -> reservation.getStatus() == StockReservation.Status.RELEASED));
+    }
+
+    @Test
+    void preOrdersAndThresholdChangesNeverPutSoldStockBack() throws Exception {
+        Product book = new Product("Grade 10 ICT", null, null, 1500, 60, null);
+        book.setPreOrderAvailable(true);
+        book.setReleaseDate(LocalDate.now().plusMonths(1));
+        Product saved = productRepository.save(book);
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < 240; i++) {
+            String orderId = "busy-" + i;
+            switch (i % 4) {
+                case 0, 1 -> tasks.add(() -> {
+                    stockReservationService.reserve(orderId, Map.of(saved.getId(), 1));
+                    return null;
+                });
+                case 2 -> {
+                    User customer = new User();
+                    customer.setEmail(orderId + "@example.com");
+                    customer.setPassword("secret");
+                    customer.setRole(Role.CUSTOMER);
+                    String email = userRepository.save(customer).getEmail();
+                    tasks.add(() -> {
+                        preOrderService.createPreOrder(email, saved.getId(), 1);
+                        return null;
+                    });
+                }
+                default -> {
+                    int threshold = i;
+                    tasks.add(() -> {
+                        stockNotificationService.updateThreshold(saved.getId(), threshold);
+                        return null;
+                    });
+                }
+            }
+        }
+        // Half the checkouts find the book sold out, every pre-order and threshold change goes through
+        assertEquals(180, race(tasks));
+
+        Product after = productRepository.findById(saved.getId()).orElseThrow();
+        assertEquals(0, after.getStock());
+        assertEquals(60, after.getPreOrderedQuantity());
+        assertNotNull(after.getStockThreshold());
+        assertEquals(60, reservationRepository.findAll().stream()
+                .filter(reservation -> reservation.getProduct().getId().equals(saved.getId()))
+                .mapToInt(StockReservation::getQuantity).sum());
+    }
+
+    @Test
+    void aProductReadBeforeASaleCannotBeSavedOverIt() {
+        Product book = product("Grade 11 Commerce", 5);
+        Product edited = productRepository.findById(book.getId()).orElseThrow();
+        stockReservationService.reserve("edited", Map.of(book.getId(), 2));
+
+        edited.setBarcode("9781000000001");
+        assertThrows(OptimisticLockingFailureException.class, () -> productRepository.save(edited));
+        assertEquals(3, stockOf(book));
+    }
+
+    @Test
+    void latePaymentsRacingTheSweepKeepTheirStock() throws Exception {
+        Product book = product("Grade 6 Tamil", 150);
+        for (int i = 0; i < 100; i++) {
+            stockReservationService.reserve("late-" + i, Map.of(book.getId(), 1));
+        }
+        jdbcTemplate.update("UPDATE stock_reservations SET expires_at = ?", LocalDateTime.now().minusMinutes(1));
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        AtomicInteger committed = new AtomicInteger();
+        for (int i = 0; i < 100; i++) {
+            String orderId = "late-" + i;
+            tasks.add(() -> {
+                if (stockReservationService.commit(orderId)) committed.incrementAndGet();
+                return null;
+            });
+            tasks.add(() -> {
+                stockReservationService.releaseExpired();
+                return null;
+            });
+        }
+        race(tasks);
+
+        // Whether the sweep got there first or not, every paid copy is taken exactly once
+        assertEquals(100, committed.get());
+        assertEquals(50, stockOf(book));
+        assertEquals(100, reservationRepository.findAll().stream()
+                .filter(reservation -> reservation.getStatus() == StockReservation.Status.COMMITTED)
+                .count());
+    }
+
+    @Test
+    void paymentCommitsTheHeldStock() {
+        Product book = product("Grade 9 Science", 3);
+        stockReservationService.reserve("paid", Map.of(book.getId(), 2));
+        // A retried checkout replaces its reservation instead of holding the stock twice
+        stockReservationService.reserve("paid", Map.of(book.getId(), 2));
+        assertEquals(1, stockOf(book));
+
+        assertTrue(stockReservationService.commit("paid"));
+        stockReservationService.releaseExpired();
+
+        assertEquals(1, stockOf(book));
+        List<StockReservation> reservations = reservationRepository.findByOrderIdAndStatus("paid",
+                StockReservation.Status.COMMITTED);
+        assertEquals(1, reservations.size());
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of CsvRowReader with the BufferedReader + line.split(",", -1) loop it
+ * replaced, on a generated 20k row catalog with Sinhala titles. A third of the
+ * descriptions are quoted and contain commas; split cuts those rows apart, so its time
+ * is a lower bound for doing the job correctly. Only runs when asked for:
+ *
+ * mvn test -Dtest=CsvRowReaderBenchmark -Dbenchmark.jmh=true
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CsvRowReaderBenchmark {
+
+    private static final int ROWS = 20_000;
+
+    private byte[] csv;
+
+    @Setup
+    public void createCatalog() {
+        Random random = new Random(42);
+        StringBuilder builder = new StringBuilder("\uFEFFname,description,imageUrl,price,stock,author,publisher,category\r\n");
+        for (int i = 0; i < ROWS; i++) {
+            builder.append("මඩොල් දූපත ").append(i).append(',');
+            if (i % 3 == 0) {
+                builder.append("\"A boy, his friend and the island, edition ").append(i).append("\",");
+            } else {
+                builder.append("Classic novel edition ").append(i).append(',');
+            }
+            builder.append("https://res.cloudinary.com/demo/image/upload/book").append(i).append(".jpg,")
+                    .append(100 + random.nextInt(5000)).append(',')
+                    .append(random.nextInt(50)).append(',')
+                    .append("Martin Wickramasinghe,Sarasavi,Novel\r\n");
+        }
+        csv = builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void lineSplit(Blackhole blackhole) throws IOException {
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(csv), StandardCharsets.UTF_8));
+        String line;
+        int rowNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            rowNumber++;
+            List<String> cells = Arrays.asList(line.split(",", -1));
+            blackhole.consume(rowNumber);
+            blackhole.consume(cells);
+        }
+    }
+
+    @Benchmark
+    public void csvRowReader(Blackhole blackhole) throws IOException {
+        CsvRowReader.read(new ByteArrayInputStream(csv), (rowNumber, cells) -> {
+            blackhole.consume(rowNumber);
+            blackhole.consume(cells);
+        });
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark.jmh", matches = "true")
+    void runBenchmarks() throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(CsvRowReaderBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CsvRowReaderTest {
+
+    private static List<List<String>> read(String csv) throws IOException {
+        return read(new StringReader(csv));
+    }
+
+    private static List<List<String>> read(Reader reader) throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        CsvRowReader.read(reader, (rowNumber, cells) -> {
+            assertEquals(rows.size() + 1, rowNumber);
+            rows.add(new ArrayList<>(cells));
+        });
+        return rows;
+    }
+
+    @Test
+    void readsPlainRowsAndKeepsEmptyFields() throws IOException {
+        assertEquals(List.of(List.of("name", "price"), List.of("Book", ""), List.of("", "", "")),
+                read("name,price\nBook,\n,,\n"));
+    }
+
+    @Test
+    void readsQuotedFieldsWithCommasQuotesAndLineBreaks() throws IOException {
+        List<List<String>> rows = read("name,description\r\n" +
+                "\"Madol Doova\",\"A boy, his friend and \"\"the\"\" island\"\r\n" +
+                "Gamperaliya,\"First line\r\nsecond line\nthird\"\r\n");
+
+        assertEquals(3, rows.size());
+        assertEquals(List.of("Madol Doova", "A boy, his friend and \"the\" island"), rows.get(1));
+        assertEquals(List.of("Gamperaliya", "First line\r\nsecond line\nthird"), rows.get(2));
+    }
+
+    @Test
+    void supportsAllLineEndingsAndAMissingFinalLineBreak() throws IOException {
+        assertEquals(List.of(List.of("a"), List.of("b"), List.of("c"), List.of("d")), read("a\r\nb\rc\nd"));
+    }
+
+    @Test
+    void keepsEmptyLinesAsSingleEmptyCellRows() throws IOException {
+        assertEquals(List.of(List.of("a"), List.of(""), List.of("b")), read("a\n\nb\n"));
+    }
+
+    @Test
+    void decodesUtf8AndSkipsTheByteOrderMark() throws IOException {
+        String csv = "\uFEFFname,author\nමඩොල් දූපත,මාර්ටින් වික්\u200Dරමසිංහ\n";
+        List<List<String>> rows = new ArrayList<>();
+        CsvRowReader.read(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+                (rowNumber, cells) -> rows.add(new ArrayList<>(cells)));
+
+        assertEquals(List.of("name", "author"), rows.get(0));
+        assertEquals(List.of("මඩොල් දූපත", "මාර්ටින් වික්\u200Dරමසිංහ"), rows.get(1));
+    }
+
+    @Test
+    void readsRowsSpanningBufferBoundaries() throws IOException {
+        StringBuilder csv = new StringBuilder();
+        String description = "x".repeat(5000);
+        for (int i = 0; i < 20; i++) {
+            csv.append("Book ").append(i).append(",\"").append(description).append(",\"\"\r\n\"\"\"\r\n");
+        }
+        // One char per read forces every quote and CRLF pair across a refill
+        Reader trickle = new StringReader(csv.toString()) {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(length, 1));
+            }
+        };
+
+        for (List<List<String>> rows : List.of(read(csv.toString()), read(trickle))) {
+            assertEquals(20, rows.size());
+            assertEquals(List.of("Book 19", description + ",\"\r\n\""), rows.get(19));
+        }
+    }
+
+    @Test
+    void readsMalformedQuotesLeniently() throws IOException {
+        assertEquals(List.of(List.of("5\" disk", "ok"), List.of("open, to the end\n")),
+                read("5\" disk,ok\n\"open, to the end\n"));
+    }
+}
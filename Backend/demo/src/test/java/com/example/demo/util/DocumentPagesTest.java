@@ -0,0 +1,85 @@
+package com.example.demo.util;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentPagesTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void rendersEveryPageOfAPdf() throws IOException {
+        Path file = dir.resolve("booklist.pdf");
+        try (PDDocument document = new PDDocument()) {
+            document.addPage(new PDPage(PDRectangle.A4));
+            document.addPage(new PDPage(PDRectangle.A4));
+            document.addPage(new PDPage(PDRectangle.LETTER));
+            document.save(file.toFile());
+        }
+
+        try (DocumentPages pages = DocumentPages.open(file)) {
+            assertNotNull(pages);
+            assertEquals(3, pages.count());
+            // 300 DPI when it fits: A4 is 8.27 x 11.69 inches
+            BufferedImage full = pages.render(0, 5000);
+            assertEquals(3508, full.getHeight(), 2);
+            BufferedImage limited = pages.render(2, 1000);
+            assertTrue(Math.max(limited.getWidth(), limited.getHeight()) <= 1000);
+            assertEquals(BufferedImage.TYPE_BYTE_GRAY, limited.getType());
+        }
+    }
+
+    @Test
+    void rendersEveryPageOfATiff() throws IOException {
+        Path file = dir.resolve("booklist.tif");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("tiff").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(file.toFile())) {
+            writer.setOutput(out);
+            writer.prepareWriteSequence(null);
+            writer.writeToSequence(new IIOImage(new BufferedImage(2400, 3300, BufferedImage.TYPE_BYTE_GRAY), null, null), null);
+            writer.writeToSequence(new IIOImage(new BufferedImage(1200, 1600, BufferedImage.TYPE_BYTE_GRAY), null, null), null);
+            writer.endWriteSequence();
+        } finally {
+            writer.dispose();
+        }
+
+        try (DocumentPages pages = DocumentPages.open(file)) {
+            assertNotNull(pages);
+            assertEquals(2, pages.count());
+            assertEquals(1650, pages.render(0, 2000).getHeight());
+            assertEquals(1600, pages.render(1, 2000).getHeight());
+        }
+    }
+
+    @Test
+    void leavesPhotosToTheImageReader() throws IOException {
+        Path file = dir.resolve("photo.png");
+        ImageIO.write(new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB), "png", file.toFile());
+
+        assertFalse(DocumentPages.isDocument(file));
+        assertNull(DocumentPages.open(file));
+    }
+
+    @Test
+    void refusesADamagedPdf() throws IOException {
+        Path file = dir.resolve("broken.pdf");
+        Files.writeString(file, "%PDF-1.7 and then nothing");
+
+        assertThrows(IllegalArgumentException.class, () -> DocumentPages.open(file));
+    }
+}
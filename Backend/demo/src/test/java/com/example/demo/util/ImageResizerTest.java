@@ -0,0 +1,98 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageResizerTest {
+
+    @TempDir
+    Path directory;
+
+    // A landscape photo whose left half is red, so the orientation can be checked
+    private static byte[] photo(String format, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.BLUE);
+        g.fillRect(0, 0, width, height);
+        g.setColor(Color.RED);
+        g.fillRect(0, 0, width / 2, height);
+        g.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+
+    // Inserts an APP1 segment with a big-endian EXIF orientation tag after the JPEG SOI marker
+    private static byte[] withOrientation(byte[] jpeg, int orientation) {
+        byte[] exif = {
+                'E', 'x', 'i', 'f', 0, 0,
+                'M', 'M', 0, 42, 0, 0, 0, 8,                        // TIFF header, IFD0 at 8
+                0, 1,                                               // One entry
+                0x01, 0x12, 0, 3, 0, 0, 0, 1, 0, (byte) orientation, 0, 0,
+                0, 0, 0, 0                                          // No next IFD
+        };
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(jpeg, 0, 2);
+        out.write(0xFF);
+        out.write(0xE1);
+        out.write((exif.length + 2) >> 8);
+        out.write((exif.length + 2) & 0xFF);
+        out.write(exif, 0, exif.length);
+        out.write(jpeg, 2, jpeg.length - 2);
+        return out.toByteArray();
+    }
+
+    private BufferedImage shrink(byte[] image, int maxDimension) throws IOException {
+        Path target = directory.resolve("resized.jpg");
+        assertTrue(ImageResizer.shrink(() -> new ByteArrayInputStream(image), maxDimension, 0.85f, target));
+        return ImageIO.read(target.toFile());
+    }
+
+    @Test
+    void shrinksTheLongestSideToTheMaximum() throws IOException {
+        BufferedImage resized = shrink(photo("png", 4000, 3000), 1600);
+
+        assertEquals(1600, resized.getWidth());
+        assertEquals(1200, resized.getHeight());
+        assertTrue(new Color(resized.getRGB(100, 600)).getRed() > 200);
+        assertTrue(new Color(resized.getRGB(1500, 600)).getBlue() > 200);
+    }
+
+    @Test
+    void appliesTheExifOrientation() throws IOException {
+        byte[] rotated = withOrientation(photo("jpg", 2000, 1000), 6);
+        assertEquals(6, ImageResizer.exifOrientation(new ByteArrayInputStream(rotated)));
+
+        BufferedImage resized = shrink(rotated, 800);
+
+        // Turned 90 degrees clockwise: the red left half is now on top
+        assertEquals(400, resized.getWidth());
+        assertEquals(800, resized.getHeight());
+        assertTrue(new Color(resized.getRGB(200, 100)).getRed() > 200);
+        assertTrue(new Color(resized.getRGB(200, 700)).getBlue() > 200);
+    }
+
+    @Test
+    void leavesSmallAndUnreadableFilesAlone() throws IOException {
+        Path target = directory.resolve("untouched.jpg");
+
+        assertFalse(ImageResizer.shrink(() -> new ByteArrayInputStream(photo("png", 800, 600)), 1600, 0.85f, target));
+        assertFalse(ImageResizer.shrink(() -> new ByteArrayInputStream("not an image".getBytes(StandardCharsets.UTF_8)),
+                1600, 0.85f, target));
+        assertFalse(Files.exists(target));
+        assertEquals(1, ImageResizer.exifOrientation(new ByteArrayInputStream(photo("jpg", 10, 10))));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OcrPreprocessorTest {
+
+    // A page of booklist lines, turned clockwise by degrees, on paper shaded from the top left
+    private static BufferedImage page(double degrees, Color dark) {
+        BufferedImage image = new BufferedImage(1200, 1600, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setPaint(new GradientPaint(0, 0, dark, 1200, 1600, Color.WHITE));
+        g.fillRect(0, 0, 1200, 1600);
+        g.rotate(Math.toRadians(degrees), 600, 800);
+        g.setColor(new Color(30, 30, 30));
+        g.setFont(new Font(Font.SERIF, Font.PLAIN, 36));
+        for (int line = 0; line < 25; line++) {
+            g.drawString("Grade " + line + " Mathematics workbook - " + (line % 4 + 1), 150, 200 + line * 50);
+        }
+        g.dispose();
+        return image;
+    }
+
+    @Test
+    void measuresTheSkewOfTheTextLines() {
+        assertEquals(4.0, OcrPreprocessor.estimateSkew(page(4, Color.WHITE)), 0.3);
+        assertEquals(-2.5, OcrPreprocessor.estimateSkew(page(-2.5, Color.WHITE)), 0.3);
+        assertEquals(0.0, OcrPreprocessor.estimateSkew(page(0, Color.WHITE)), 0.3);
+    }
+
+    @Test
+    void straightensThePage() {
+        BufferedImage prepared = OcrPreprocessor.prepare(page(6, Color.WHITE));
+
+        // The canvas grows to keep the corners
+        assertTrue(prepared.getWidth() > 1200 && prepared.getHeight() > 1600);
+        assertEquals(0.0, OcrPreprocessor.estimateSkew(prepared), 0.3);
+    }
+
+    @Test
+    void keepsTextAndDropsShadowsUnderUnevenLight() {
+        BufferedImage prepared = OcrPreprocessor.prepare(page(0, new Color(110, 110, 110)));
+
+        assertEquals(BufferedImage.TYPE_BYTE_GRAY, prepared.getType());
+        int ink = 0;
+        int shadowInk = 0;
+        for (int y = 0; y < prepared.getHeight(); y++) {
+            for (int x = 0; x < prepared.getWidth(); x++) {
+                int value = prepared.getRaster().getSample(x, y, 0);
+                assertTrue(value == 0 || value == 255);
+                if (value == 0) {
+                    ink++;
+                    // Left of the text, where the shadow is darkest, is blank paper
+                    if (x < 120 && y < 400) shadowInk++;
+                }
+            }
+        }
+        assertEquals(0, shadowInk);
+        // Text in the shadowed top rows survives as well as at the bottom
+        assertTrue(inkInRows(prepared, 170, 210) > 500);
+        assertTrue(inkInRows(prepared, 1370, 1410) > 500);
+        assertTrue(ink > 10_000);
+    }
+
+    private static int inkInRows(BufferedImage image, int from, int to) {
+        int ink = 0;
+        for (int y = from; y < to; y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                if (image.getRaster().getSample(x, y, 0) == 0) ink++;
+            }
+        }
+        return ink;
+    }
+}
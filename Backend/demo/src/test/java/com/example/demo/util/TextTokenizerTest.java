@@ -0,0 +1,32 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextTokenizerTest {
+
+    @Test
+    void splitsOnPunctuationAndLowerCases() {
+        assertEquals(List.of("grade", "6", "maths", "vol", "2"), TextTokenizer.tokenize("  Grade-6 MATHS, Vol.2 "));
+    }
+
+    @Test
+    void keepsSinhalaSignsInsideTheWord() {
+        // The vowel signs and the joiner in ශ්‍රේ are marks, not separators
+        assertEquals(List.of("සිංහල", "ශ්‍රේණිය"), TextTokenizer.tokenize("සිංහල ශ්‍රේණිය"));
+    }
+
+    @Test
+    void composesAccentsBeforeComparing() {
+        assertEquals(TextTokenizer.tokenize("Café"), TextTokenizer.tokenize("Café"));
+    }
+
+    @Test
+    void hasNoTokensForBlankText() {
+        assertTrue(TextTokenizer.tokenize(null).isEmpty());
+        assertTrue(TextTokenizer.tokenize(" - , ").isEmpty());
+    }
+}
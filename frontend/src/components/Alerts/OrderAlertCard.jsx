@@ -1,6 +1,24 @@
 import React from 'react';
 
 const OrderAlertCard = ({ order }) => {
+    // A paid order whose books were sold to someone else while the customer was paying
+    if (order.stockShort) {
+        return (
+            <div className="border-l-4 border-red-500 bg-red-50 p-4 mb-3 rounded-md shadow-sm">
+                <div className="flex justify-between items-center">
+                    <div>
+                        <p className="text-sm font-semibold text-red-700">
+                            ⚠️ Paid Order Short of Stock: <span className="text-black">#{order.orderId}</span>
+                        </p>
+                        <p className="text-xs text-gray-600">
+                            Customer: {order.customerName} | Date: {new Date(order.createdAt).toLocaleString()}
+                        </p>
+                    </div>
+                </div>
+            </div>
+        );
+    }
+
     return (
         <div className="border-l-4 border-blue-500 bg-blue-50 p-4 mb-3 rounded-md shadow-sm">
             <div className="flex justify-between items-center">
@@ -115,9 +115,9 @@ const SearchBar = () => {
                                     className="p-3 sm:p-4 hover:bg-[#F5E6CA] cursor-pointer transition-colors duration-200 border-b border-[#D7CCC8] last:border-b-0"
                                 >
                                     <div className="flex items-center space-x-3 sm:space-x-4">
-                                        {result.imageUrl && (
+                                        {(result.thumbnailUrl || result.imageUrl) && (
                                             <img
-                                                src={result.imageUrl}
+                                                src={result.thumbnailUrl || result.imageUrl}
                                                 alt={result.name}
                                                 className="w-12 h-12 sm:w-16 sm:h-16 object-cover rounded-lg"
                                             />
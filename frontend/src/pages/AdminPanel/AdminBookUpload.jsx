@@ -33,6 +33,8 @@ const AdminBookUpload = () => {
     const [searchQuery, setSearchQuery] = useState('');
     const [uploading, setUploading] = useState(false);
     const [progress, setProgress] = useState(0);
+    const [importJob, setImportJob] = useState(null); // Status of the server side import
+    const [mergeExisting, setMergeExisting] = useState(false); // Update books already in the catalog
     const [isValidFile, setIsValidFile] = useState(true); // Track file validity
     const [fileTypeError, setFileTypeError] = useState(false);
     const [hasDuplicate, setHasDuplicate] = useState(false); // Flag to track duplicates
@@ -318,6 +320,21 @@ const AdminBookUpload = () => {
     });
 
 
+    // Polls the import job until the server has finished with the file
+    const waitForImport = async (jobId) => {
+        const authHeader = { 'Authorization': `Bearer ${localStorage.getItem('accessToken')}` };
+        for (;;) {
+            const { data } = await axios.get(`http://localhost:8080/api/upload/jobs/${jobId}`, {
+                headers: authHeader,
+            });
+            setImportJob(data);
+            if (data.finishedAt) {
+                return data;
+            }
+            await new Promise((resolve) => setTimeout(resolve, 1000));
+        }
+    };
+
     const handleUpload = async () => {
         if (!file) {
             toast.error('Please select a file first.');
@@ -345,9 +362,11 @@ const AdminBookUpload = () => {
         try {
             setUploading(true);
             setProgress(0);
+            setImportJob(null);
 
-            // Make the API call to upload the file
-            await axios.post('http://localhost:8080/api/upload/books', formData, {
+            // Upload the file; the server queues it and returns the import job
+            const mode = mergeExisting ? 'merge' : 'insert';
+            const { data: job } = await axios.post(`http://localhost:8080/api/upload/books?mode=${mode}`, formData, {
                 headers: {
                     'Content-Type': 'multipart/form-data',
                     'Authorization': `Bearer ${localStorage.getItem('accessToken')}`
@@ -358,8 +377,19 @@ const AdminBookUpload = () => {
                 },
             });
 
+            setImportJob(job);
+            const result = await waitForImport(job.id);
+            if (result.status !== 'SUCCEEDED') {
+                const firstErrors = (result.errors || [])
+                    .slice(0, 5)
+                    .map((e) => `Row ${e.rowNumber}: ${e.message}`)
+                    .join('\n');
+                toast.error(`${result.message || 'Upload failed.'}${firstErrors ? '\n' + firstErrors : ''}`);
+                return;
+            }
+
             // Show success message and toast notification
-            toast.success('Upload successful!');
+            toast.success(result.message || 'Upload successful!');
             setFile(null);
             setPreviewData([]);
             setFile(null);
@@ -442,6 +472,16 @@ const AdminBookUpload = () => {
                 </>
             )}
 
+            <label className="mt-6 flex items-center gap-2 text-sm text-gray-700">
+                <input
+                    type="checkbox"
+                    checked={mergeExisting}
+                    onChange={(e) => setMergeExisting(e.target.checked)}
+                    disabled={uploading}
+                />
+                Update existing books (matched by barcode, otherwise by name and author)
+            </label>
+
             <button
                 className="mt-6 w-full py-2 bg-blue-600 text-white rounded-xl hover:bg-blue-700 transition-all disabled:bg-gray-400"
                 onClick={handleUpload}
@@ -460,6 +500,22 @@ const AdminBookUpload = () => {
                     />
                 </div>
             )}
+
+            {importJob && (
+                <div className="mt-4 text-sm text-gray-700">
+                    <p>
+                        Import {importJob.status.toLowerCase()}: {importJob.rowsProcessed} rows processed
+                        ({importJob.rowsPerSecond} rows/s), {importJob.errorCount} errors
+                    </p>
+                    {importJob.errors && importJob.errors.length > 0 && (
+                        <ul className="mt-2 max-h-40 overflow-y-auto text-red-600">
+                            {importJob.errors.map((e, i) => (
+                                <li key={i}>Row {e.rowNumber}: {e.message}</li>
+                            ))}
+                        </ul>
+                    )}
+                </div>
+            )}
         </div>
     );
 };
@@ -1,4 +1,4 @@
-import React, { useState, useEffect } from 'react';
+import React, { useState, useEffect, useRef } from 'react';
 import axios from 'axios';
 import { jwtDecode } from 'jwt-decode';
 import {
@@ -30,6 +30,10 @@ import SendIcon from '@mui/icons-material/Send';
 import ImageIcon from '@mui/icons-material/Image';
 import { toast } from 'react-toastify';
 
+// The booklist status is checked every 2 seconds for at most 3 minutes
+const STATUS_POLL_INTERVAL_MS = 2000;
+const MAX_STATUS_POLLS = 90;
+
 const CustomerBooklistPanel = () => {
   const [booklists, setBooklists] = useState([]);
   const [openDialog, setOpenDialog] = useState(false);
@@ -48,6 +52,14 @@ const CustomerBooklistPanel = () => {
 
   const [isUploading, setIsUploading] = useState(false);
 
+  // Stops the status polling once the panel is gone
+  const unmounted = useRef(false);
+  useEffect(() => {
+    unmounted.current = false;
+    return () => {
+      unmounted.current = true;
+    };
+  }, []);
 
 
   useEffect(() => {
@@ -98,6 +110,27 @@ const CustomerBooklistPanel = () => {
     }
   };
 
+  // The photo is read in the background; polls until the booklist is no longer PROCESSING.
+  // Returns null when the panel is closed first; after MAX_STATUS_POLLS it may still be PROCESSING.
+  const waitForBooklist = async (booklistId) => {
+    let data = null;
+    for (let attempt = 0; attempt < MAX_STATUS_POLLS; attempt++) {
+      await new Promise((resolve) => setTimeout(resolve, STATUS_POLL_INTERVAL_MS));
+      if (unmounted.current) {
+        return null;
+      }
+      ({ data } = await axios.get(`http://localhost:8080/api/booklists/${booklistId}`, {
+        headers: {
+          Authorization: `Bearer ${localStorage.getItem('accessToken')}`,
+        },
+      }));
+      if (data.status !== 'PROCESSING') {
+        return data;
+      }
+    }
+    return data;
+  };
+
   const handleOcrUpload = async () => {
     if (!ocrImage || !ocrBooklistName) {
       toast.error('Please provide both a name and an image');
@@ -134,12 +167,26 @@ const CustomerBooklistPanel = () => {
       );
 
       console.log('OCR Booklist Added:', response.data);
-      toast.success('Booklist created successfully from image');
+      toast.info('Reading your booklist, this may take a moment...');
       setOcrDialogOpen(false);
       setOcrBooklistName('');
       setOcrImage(null);
       
       await fetchBooklists(email);
+      setIsUploading(false);
+
+      const result = await waitForBooklist(response.data.id);
+      if (!result || unmounted.current) {
+        return;
+      }
+      if (result.status === 'PROCESSING') {
+        toast.info('Your booklist is still being read, check back in a few minutes');
+      } else if (result.status === 'FAILED') {
+        toast.error(result.ocrError || 'Could not read the booklist image');
+      } else {
+        toast.success('Booklist created successfully from image');
+      }
+      await fetchBooklists(email);
     } catch (error) {
       console.error('Error uploading and processing image:', error);
       toast.error(
@@ -223,6 +270,24 @@ const CustomerBooklistPanel = () => {
     }
   };
 
+  // Adds the books the catalog recognised with confidence to the cart
+  const handleAddToCart = async (id) => {
+    try {
+      const { data } = await axios.post(`http://localhost:8080/api/booklists/${id}/cart`, null, {
+        headers: {
+          Authorization: `Bearer ${localStorage.getItem('accessToken')}`,
+        },
+      });
+      if (data.length === 0) {
+        toast.info('None of the books could be matched to the shop with confidence');
+      } else {
+        toast.success(`Added ${data.length} book(s) to your cart`);
+      }
+    } catch (error) {
+      toast.error(error.response?.data || 'Error adding books to cart');
+    }
+  };
+
   const handleAddBookField = () => {
     setNewBooklist({ ...newBooklist, books: [...newBooklist.books, { title: '', quantity: 1 }] });
   };
@@ -311,10 +376,16 @@ const CustomerBooklistPanel = () => {
 
                   <Chip
                     label={booklist.status}
-                    color={booklist.status === 'PENDING' ? 'warning' : 'success'}
+                    color={booklist.status === 'PENDING' || booklist.status === 'PROCESSING' ? 'warning'
+                        : booklist.status === 'FAILED' ? 'error' : 'success'}
                     size="small"
-                    sx={{ mb: 2, bgcolor: booklist.status === 'PENDING' ? '#F5DEB3' : '#D7CCC8' }}
+                    sx={{ mb: 2, bgcolor: booklist.status === 'PENDING' || booklist.status === 'PROCESSING' ? '#F5DEB3' : '#D7CCC8' }}
                   />
+                  {booklist.status === 'FAILED' && booklist.ocrError && (
+                    <Typography variant="body2" sx={{ mb: 1, color: '#B71C1C' }}>
+                      {booklist.ocrError}
+                    </Typography>
+                  )}
 
                   <List dense sx={{maxHeight:200, overflowY:'auto',flexGrow: 1}}>
                     {booklist.books.map((book, index) => (
@@ -339,6 +410,15 @@ const CustomerBooklistPanel = () => {
                     <Typography variant="caption" sx={{ color: '#8D6E63' }}>
                       Submitted: {new Date(booklist.submittedDate).toLocaleDateString()}
                     </Typography>
+                    <Box>
+                    <Button
+                      variant="outlined"
+                      onClick={() => handleAddToCart(booklist.id)}
+                      disabled={booklist.books.length === 0}
+                      sx={{ mr: 1, color: '#5D4037', borderColor: '#8D6E63' }}
+                    >
+                      Add to cart
+                    </Button>
                     <Button
                       variant="contained"
                       endIcon={<SendIcon />}
@@ -352,6 +432,7 @@ const CustomerBooklistPanel = () => {
                     >
                       Submit
                     </Button>
+                    </Box>
                   </Box>
                 </CardContent>
               </Card>
@@ -497,10 +578,10 @@ const CustomerBooklistPanel = () => {
                     },
                   }}
               >
-                Choose Image
+                Choose Image or PDF
                 <input
                     type="file"
-                    accept="image/*"
+                    accept="image/*,application/pdf"
                     hidden
                     onChange={(e) => setOcrImage(e.target.files[0])}
                 />
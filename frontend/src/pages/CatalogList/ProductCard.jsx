@@ -14,7 +14,7 @@ const ProductCard = ({ product , addToCart , email}) => {
         <div className="bg-white rounded-xl shadow-lg p-4 transition-transform transform hover:-translate-y-2 hover:shadow-xl h-full min-h-[320px]">
             {/* Book Cover */}
             <div className="relative">
-                <img src={product.imageUrl} alt={product.name} className="w-full h-48 object-contain rounded-lg" />
+                <img src={product.thumbnailUrl || product.imageUrl} alt={product.name} className="w-full h-48 object-contain rounded-lg" />
 
 
                 {/* Stock Badge or Pre-order Badge */}
@@ -178,7 +178,7 @@ const Wishlist = () => {
                         <div key={item.id} className="bg-white rounded-lg shadow-md overflow-hidden">
                             <div className="relative">
                                 <img
-                                    src={item.product.imageUrl || "/placeholder.svg"}
+                                    src={item.product.thumbnailUrl || item.product.imageUrl || "/placeholder.svg"}
                                     alt={item.product.name}
                                     className="w-full h-48 object-cover"
                                 />